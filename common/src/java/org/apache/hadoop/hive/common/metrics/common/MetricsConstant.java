@@ -83,4 +83,10 @@ public class MetricsConstant {
   public static final String QC_REJECTED_TOO_LARGE = "qc_rejected_too_large";
   public static final String QC_TOTAL_ENTRIES_ADDED = "qc_total_entries_added";
 
+  // Parse cache
+  public static final String PARSE_CACHE_HITS = "parse_cache_hits";
+  public static final String PARSE_CACHE_MISSES = "parse_cache_misses";
+  // Parse time in milliseconds avoided by parse cache hits
+  public static final String PARSE_CACHE_SAVED_TIME = "parse_cache_saved_time";
+
 }
\ No newline at end of file
@@ -2135,6 +2135,11 @@ public static enum ConfVars {
         + "optimization rewrites distinct aggregates from a single stage to multi-stage "
         + "aggregation. This may not be optimal in all cases. Ideally, whether to trigger it or "
         + "not should be cost based decision. Until Hive formalizes cost model for this, this is config driven."),
+    HIVEOPTIMIZEDISTINCTREWRITEGROUPBY("hive.optimize.distinct.rewrite.groupby", false,
+        "Whether the distinct aggregate rewrite also turns several COUNT(DISTINCT)s with group keys\n" +
+        "into grouping sets, one per distinct argument, followed by a count per group.  Unlike the\n" +
+        "row mode distinct GROUP BY, this plan can be vectorized.  Only applies when\n" +
+        "hive.optimize.distinct.rewrite is true."),
     // whether to optimize union followed by select followed by filesink
     // It creates sub-directories in the final output, so should not be turned on in systems
     // where MAPREDUCE-1501 is not present
@@ -2529,8 +2534,15 @@ public static enum ConfVars {
 
     HIVE_COMPACTOR_CLEANER_RUN_INTERVAL("hive.compactor.cleaner.run.interval", "5000ms",
         new TimeValidator(TimeUnit.MILLISECONDS), "Time between runs of the cleaner thread"),
+    HIVE_COMPACTOR_CLEANER_THREADS("hive.compactor.cleaner.threads", 1,
+        "Number of threads the cleaner uses to remove obsolete directories of compactions\n" +
+        "that are ready to be cleaned. Each compaction is still cleaned by a single thread."),
     COMPACTOR_JOB_QUEUE("hive.compactor.job.queue", "", "Used to specify name of Hadoop queue to which\n" +
       "Compaction jobs will be submitted.  Set to empty string to let Hadoop choose the queue."),
+    COMPACTOR_LOCAL_MODE_MAX_BYTES("hive.compactor.local.mode.max.bytes", 0L,
+      "Compactions that read at most this many bytes run their job in-process in the compactor\n" +
+      "worker instead of submitting it to the cluster, avoiding the job and container startup\n" +
+      "cost that dominates compacting small partitions. 0 disables local compaction."),
     /**
      * @deprecated Use MetastoreConf.COMPACTOR_HISTORY_RETENTION_SUCCEEDED
      */
@@ -2954,6 +2966,12 @@ public static enum ConfVars {
         "Bind host on which to run the HiveServer2 Thrift service."),
     HIVE_SERVER2_PARALLEL_COMPILATION("hive.driver.parallel.compilation", false, "Whether to\n" +
         "enable parallel compilation of the queries between sessions and within the same session on HiveServer2. The default is false."),
+    HIVE_SERVER2_PARALLEL_COMPILATION_LIMIT("hive.driver.parallel.compilation.global.limit", -1,
+        "Maximum number of queries compiled concurrently in HiveServer2 when\n" +
+        "hive.driver.parallel.compilation is enabled. Further queries wait for a free slot, in the order\n" +
+        "they arrived, subject to hive.server2.compile.lock.timeout. A nonpositive value means unbounded.\n" +
+        "The limit is read once per HiveServer2, when the first query is compiled, so it cannot be\n" +
+        "changed per session and changing it requires a restart."),
     HIVE_SERVER2_COMPILE_LOCK_TIMEOUT("hive.server2.compile.lock.timeout", "0s",
         new TimeValidator(TimeUnit.SECONDS),
         "Number of seconds a request will wait to acquire the compile lock before giving up. " +
@@ -3067,6 +3085,10 @@ public static enum ConfVars {
         "  EXECUTION: Log completion of tasks\n" +
         "  PERFORMANCE: Execution + Performance logs \n" +
         "  VERBOSE: All logs" ),
+    HIVE_SERVER2_LOGGING_OPERATION_MEMORY_LINES("hive.server2.logging.operation.memory.lines", 0,
+        "If positive, operation logs are kept in an in-memory ring buffer of this many lines per\n" +
+        "operation instead of in a file per query under hive.server2.logging.operation.log.location.\n" +
+        "Clients only see the most recent lines if an operation logs more than this between fetches."),
 
     // HS2 connections guard rails
     HIVE_SERVER2_LIMIT_CONNECTIONS_PER_USER("hive.server2.limit.connections.per.user", 0,
@@ -3167,6 +3189,11 @@ public static enum ConfVars {
     HIVE_SERVER2_LONG_POLLING_TIMEOUT("hive.server2.long.polling.timeout", "5000ms",
         new TimeValidator(TimeUnit.MILLISECONDS),
         "Time that HiveServer2 will wait before responding to asynchronous calls that use long polling"),
+    HIVE_SERVER2_LONG_POLLING_MAX_WAITERS("hive.server2.long.polling.max.waiters", -1,
+        "Maximum number of GetOperationStatus calls that can wait in long polling at the same time.\n" +
+        "Each waiting call holds a Thrift worker thread. Calls over the limit return the current status\n" +
+        "right away, which keeps threads available for other requests when many clients are polling.\n" +
+        "A nonpositive value means unbounded."),
 
     HIVE_SESSION_IMPL_CLASSNAME("hive.session.impl.classname", null, "Classname for custom implementation of hive session"),
     HIVE_SESSION_IMPL_WITH_UGI_CLASSNAME("hive.session.impl.withugi.classname", null, "Classname for custom implementation of hive session with UGI"),
@@ -3431,6 +3458,10 @@ public static enum ConfVars {
     HIVE_VECTORIZATION_REDUCE_GROUPBY_ENABLED("hive.vectorized.execution.reduce.groupby.enabled", true,
         "This flag should be set to true to enable vectorized mode of the reduce-side GROUP BY query execution.\n" +
         "The default value is true."),
+    HIVE_VECTORIZATION_REDUCE_GROUPBY_RUNS_ENABLED("hive.vectorized.execution.reduce.groupby.runs.enabled", false,
+        "This flag should be set to true to let the vectorized reduce-side MERGEPARTIAL GROUP BY receive\n" +
+        "the rows of several key groups in one batch and aggregate the group runs of the batch\n" +
+        "together, instead of receiving one batch (or more) per key group."),
     HIVE_VECTORIZATION_MAPJOIN_NATIVE_ENABLED("hive.vectorized.execution.mapjoin.native.enabled", true,
          "This flag should be set to true to enable native (i.e. non-pass through) vectorization\n" +
          "of queries using MapJoin.\n" +
@@ -3458,10 +3489,34 @@ public static enum ConfVars {
         "Exceeding this will trigger a flush irrelevant of memory pressure condition."),
     HIVE_VECTORIZATION_GROUPBY_FLUSH_PERCENT("hive.vectorized.groupby.flush.percent", (float) 0.1,
         "Percent of entries in the group by aggregation hash flushed when the memory threshold is exceeded."),
+    HIVE_VECTORIZATION_GROUPBY_GROUPING_SETS_ROLLUP("hive.vectorized.groupby.grouping.sets.rollup", false,
+        "Whether the vector hash group by aggregates only the finest grouping set of a GROUPING SETS,\n" +
+        "ROLLUP or CUBE and derives the coarser grouping sets from its hash table when flushing,\n" +
+        "instead of processing every input batch once per grouping set. Needs aggregations whose\n" +
+        "buffers can be merged (count, approx_count_distinct, and sum, min, max on long and\n" +
+        "double). When the finest grouping set does not fit in the hash table, its entries are\n" +
+        "emitted once per grouping set without merging, and each grouping set is processed\n" +
+        "separately from then on."),
     HIVE_VECTORIZATION_REDUCESINK_NEW_ENABLED("hive.vectorized.execution.reducesink.new.enabled", true,
         "This flag should be set to true to enable the new vectorization\n" +
         "of queries using ReduceSink.\ni" +
         "The default value is true."),
+    HIVE_VECTORIZATION_REDUCESINK_COLUMNAR_ENABLED("hive.vectorized.execution.reducesink.columnar.enabled", false,
+        "This flag should be set to true to shuffle the values of a native vectorized ReduceSink\n" +
+        "without a key as column blocks of whole batches instead of row by row, when the\n" +
+        "reducer is vectorized too. Only primitive long, double, string and binary family\n" +
+        "value types are supported."),
+    HIVE_VECTORIZATION_REDUCESINK_TOPN_FILTER_ENABLED("hive.vectorized.execution.reducesink.topn.filter.enabled", true,
+        "This flag should be set to true to let a native vectorized ReduceSink with a limit drop the\n" +
+        "rows of a batch whose first key column cannot make the top N, before serializing them.\n" +
+        "Only primitive long and double family first key columns are supported."),
+    HIVE_VECTORIZATION_REDUCESINK_HOTKEY_SKETCH_SIZE("hive.vectorized.execution.reducesink.hotkey.sketch.size", 0,
+        "The number of shuffle hash codes a native vectorized ReduceSink with a key tracks in a heavy\n" +
+        "hitter sketch to detect hot keys at runtime.  The row count of the heaviest hash code is\n" +
+        "logged by each task.  0 disables the sketch."),
+    HIVE_VECTORIZATION_REDUCESINK_HOTKEY_FRACTION("hive.vectorized.execution.reducesink.hotkey.fraction", 0.1f,
+        "The fraction of the rows of a native vectorized ReduceSink above which a hash code found by\n" +
+        "the hot key sketch is logged as a hot key."),
     HIVE_VECTORIZATION_USE_VECTORIZED_INPUT_FILE_FORMAT("hive.vectorized.use.vectorized.input.format", true,
         "This flag should be set to true to enable vectorizing with vectorized input file format capable SerDe.\n" +
         "The default value is true."),
@@ -3617,6 +3672,12 @@ public static enum ConfVars {
     TEZ_MIN_PARTITION_FACTOR("hive.tez.min.partition.factor", 0.25f,
         "When auto reducer parallelism is enabled this factor will be used to put a lower limit to the number\n" +
         "of reducers that tez specifies."),
+    TEZ_UNCERTAIN_MAX_PARTITION_FACTOR("hive.tez.uncertain.max.partition.factor", 0f,
+        "When auto reducer parallelism is enabled and the data size estimate of a shuffle is not based\n" +
+        "on complete basic and column statistics, this factor is used instead of hive.tez.max.partition.factor\n" +
+        "to over-partition the shuffle, and the lower limit of reducers is dropped to 1.  This lets tez\n" +
+        "pick from the shuffle output sizes seen at runtime both far fewer and far more reducers than\n" +
+        "estimated.  It is only used when larger than hive.tez.max.partition.factor."),
     TEZ_OPTIMIZE_BUCKET_PRUNING(
         "hive.tez.bucket.pruning", false,
          "When pruning is enabled, filters on bucket columns will be processed by \n" +
@@ -4309,6 +4370,26 @@ public static enum ConfVars {
         (long) 10 * 1024 * 1024,
         "Maximum size in bytes that a single query result is allowed to use in the results cache directory"),
 
+    HIVE_PARSE_CACHE_SIZE("hive.parse.cache.size", 0,
+        "Maximum number of parsed statements and view definitions kept in memory, so that\n" +
+        "statements which are compiled repeatedly do not have to be parsed again. This is a\n" +
+        "process wide setting, 0 disables the cache."),
+
+    HIVE_QUERY_RESULTS_CACHE_SHARED_ENABLED("hive.query.results.cache.shared.enabled", false,
+        "Whether HiveServer2 instances using the same hive.query.results.cache.directory on a shared\n" +
+        "filesystem can reuse each other's cached query results. Only results of queries that read\n" +
+        "transactional tables exclusively are shared, as their validity can be checked with write IDs.\n" +
+        "Requires a positive hive.query.results.cache.max.entry.lifetime, since shared results are\n" +
+        "removed based on their age and on leases which expire after the entry lifetime, rather than\n" +
+        "by the instance that created them."),
+
+    HIVE_QUERY_RESULTS_CACHE_SHARED_NEGATIVE_LOOKUP_TTL(
+        "hive.query.results.cache.shared.negative.lookup.ttl", "5s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "How long a query which was not found among the query results shared by other instances\n" +
+        "is remembered, so that repeating it does not go to the shared filesystem again. Results\n" +
+        "published in the meantime are not used until this has expired. 0 disables it."),
+
     HIVE_NOTFICATION_EVENT_POLL_INTERVAL("hive.notification.event.poll.interval", "60s",
         new TimeValidator(TimeUnit.SECONDS),
         "How often the notification log is polled for new NotificationEvents from the metastore." +
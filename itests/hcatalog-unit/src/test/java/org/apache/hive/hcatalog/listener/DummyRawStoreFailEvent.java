@@ -401,6 +401,12 @@ public List<Partition> getPartitionsByNames(String catName, String dbName, Strin
     return objectStore.getPartitionsByNames(catName, dbName, tblName, partNames);
   }
 
+  @Override
+  public List<String> getExistingPartitionNames(String catName, String dbName, String tblName,
+      List<String> partNames) throws MetaException {
+    return objectStore.getExistingPartitionNames(catName, dbName, tblName, partNames);
+  }
+
   @Override
   public boolean getPartitionsByExpr(String catName, String dbName, String tblName, byte[] expr,
                                      String defaultPartitionName, short maxParts, List<Partition> result) throws TException {
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hive.benchmark.vectorization;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorSerializeRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.binarysortable.fast.BinarySortableSerializeWrite;
+import org.apache.hadoop.hive.serde2.fast.SerializeWrite;
+import org.apache.hadoop.hive.serde2.lazybinary.fast.LazyBinarySerializeWrite;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This test measures the performance of serializing complex type columns of a
+ * VectorizedRowBatch the way the native vectorized reduce sink writes its keys and values.
+ * <p/>
+ * This test uses JMH framework for benchmarking.
+ * You may execute this benchmark tool using JMH command line in different ways:
+ * <p/>
+ * To use the settings shown in the main() function, use:
+ * $ java -cp target/benchmarks.jar org.apache.hive.benchmark.vectorization.VectorSerializeRowBench
+ * <p/>
+ * To use the default settings used by JMH, use:
+ * $ java -jar target/benchmarks.jar org.apache.hive.benchmark.vectorization.VectorSerializeRowBench
+ */
+@State(Scope.Benchmark)
+public class VectorSerializeRowBench {
+
+  private static final int ELEMENT_COUNT = 8;
+
+  @BenchmarkMode(Mode.AverageTime)
+  @Fork(1)
+  @State(Scope.Thread)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public static abstract class AbstractSerializeRowBench {
+
+    private static final TypeInfo[] TYPE_INFOS = new TypeInfo[] {
+        TypeInfoUtils.getTypeInfoFromTypeString("array<bigint>"),
+        TypeInfoUtils.getTypeInfoFromTypeString("map<bigint,bigint>"),
+        TypeInfoUtils.getTypeInfoFromTypeString("struct<a:bigint,b:bigint>")
+    };
+
+    protected VectorizedRowBatch rowBatch;
+    protected VectorSerializeRow<SerializeWrite> vectorSerializeRow;
+    protected Output output;
+
+    protected abstract SerializeWrite createSerializeWrite(int fieldCount);
+
+    @Setup
+    public void setup() throws HiveException {
+      rowBatch = buildRowBatch();
+      vectorSerializeRow =
+          new VectorSerializeRow<SerializeWrite>(createSerializeWrite(TYPE_INFOS.length));
+      vectorSerializeRow.init(TYPE_INFOS);
+      output = new Output();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+    public void bench() throws IOException {
+      for (int i = 0; i < rowBatch.size; i++) {
+        output.reset();
+        vectorSerializeRow.setOutput(output);
+        vectorSerializeRow.serializeWrite(rowBatch, i);
+      }
+    }
+
+    private static VectorizedRowBatch buildRowBatch() {
+      final int size = VectorizedRowBatch.DEFAULT_SIZE;
+      final int childSize = size * ELEMENT_COUNT;
+      Random random = new Random(12345);
+
+      VectorizedRowBatch rowBatch = new VectorizedRowBatch(3);
+      ListColumnVector listColVector =
+          new ListColumnVector(size, randomLongColumnVector(childSize, random));
+      MapColumnVector mapColVector =
+          new MapColumnVector(size, randomLongColumnVector(childSize, random),
+              randomLongColumnVector(childSize, random));
+      for (int i = 0; i < size; i++) {
+        listColVector.offsets[i] = mapColVector.offsets[i] = i * ELEMENT_COUNT;
+        listColVector.lengths[i] = mapColVector.lengths[i] = ELEMENT_COUNT;
+      }
+      listColVector.childCount = mapColVector.childCount = childSize;
+      rowBatch.cols[0] = listColVector;
+      rowBatch.cols[1] = mapColVector;
+      rowBatch.cols[2] =
+          new StructColumnVector(size, randomLongColumnVector(size, random),
+              randomLongColumnVector(size, random));
+      rowBatch.size = size;
+      return rowBatch;
+    }
+
+    private static LongColumnVector randomLongColumnVector(int size, Random random) {
+      LongColumnVector columnVector = new LongColumnVector(size);
+      for (int i = 0; i < size; i++) {
+        columnVector.vector[i] = random.nextLong();
+      }
+      return columnVector;
+    }
+  }
+
+  public static class LazyBinaryBench extends AbstractSerializeRowBench {
+    @Override
+    protected SerializeWrite createSerializeWrite(int fieldCount) {
+      return new LazyBinarySerializeWrite(fieldCount);
+    }
+  }
+
+  public static class BinarySortableBench extends AbstractSerializeRowBench {
+    @Override
+    protected SerializeWrite createSerializeWrite(int fieldCount) {
+      return new BinarySortableSerializeWrite(fieldCount);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(".*" + VectorSerializeRowBench.class.getSimpleName() +
+        ".*").build();
+    new Runner(opt).run();
+  }
+}
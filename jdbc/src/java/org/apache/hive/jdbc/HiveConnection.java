@@ -137,6 +137,7 @@ public class HiveConnection implements java.sql.Connection {
   private int loginTimeout = 0;
   private TProtocolVersion protocol;
   private int fetchSize = HiveStatement.DEFAULT_FETCH_SIZE;
+  private boolean fetchInBackground = false;
   private String initFile = null;
   private String wmPool = null, wmApp = null;
   private Properties clientInfo;
@@ -179,6 +180,10 @@ public HiveConnection(String uri, Properties info) throws SQLException {
     if (sessConfMap.containsKey(JdbcConnectionParams.FETCH_SIZE)) {
       fetchSize = Integer.parseInt(sessConfMap.get(JdbcConnectionParams.FETCH_SIZE));
     }
+    if (sessConfMap.containsKey(JdbcConnectionParams.FETCH_IN_BACKGROUND)) {
+      fetchInBackground = Boolean.parseBoolean(
+          sessConfMap.get(JdbcConnectionParams.FETCH_IN_BACKGROUND));
+    }
     if (sessConfMap.containsKey(JdbcConnectionParams.INIT_FILE)) {
       initFile = sessConfMap.get(JdbcConnectionParams.INIT_FILE);
     }
@@ -1548,6 +1553,10 @@ public TProtocolVersion getProtocol() {
     return protocol;
   }
 
+  boolean isFetchInBackground() {
+    return fetchInBackground;
+  }
+
   public static TCLIService.Iface newSynchronizedClient(
       TCLIService.Iface client) {
     return (TCLIService.Iface) Proxy.newProxyInstance(
@@ -29,6 +29,10 @@
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.hadoop.hive.common.type.HiveDecimal;
@@ -78,6 +82,12 @@ public class HiveQueryResultSet extends HiveBaseResultSet {
   private boolean isScrollable = false;
   private boolean fetchFirst = false;
 
+  // Fetch the next batch of rows while the caller consumes the current one
+  private final boolean fetchInBackground;
+  private Future<RowSet> pendingFetch;
+  private long fetchWaitNanos = 0;
+  private final long openedAt = System.nanoTime();
+
   private final TProtocolVersion protocol;
 
   public static class Builder {
@@ -101,6 +111,7 @@ public static class Builder {
     private int fetchSize = 50;
     private boolean emptyResultSet = false;
     private boolean isScrollable = false;
+    private boolean fetchInBackground = false;
     private ReentrantLock transportLock = null;
 
     public Builder(Statement statement) throws SQLException {
@@ -170,6 +181,11 @@ public Builder setScrollable(boolean setScrollable) {
       return this;
     }
 
+    public Builder setFetchInBackground(boolean fetchInBackground) {
+      this.fetchInBackground = fetchInBackground;
+      return this;
+    }
+
     public Builder setTransportLock(ReentrantLock transportLock) {
       this.transportLock = transportLock;
       return this;
@@ -206,6 +222,7 @@ protected HiveQueryResultSet(Builder builder) throws SQLException {
       this.maxRows = builder.maxRows;
     }
     this.isScrollable = builder.isScrollable;
+    this.fetchInBackground = builder.fetchInBackground;
     this.protocol = builder.getProtocolVersion();
   }
 
@@ -304,6 +321,13 @@ private void setSchema(List<String> colNames, List<String> colTypes,
 
   @Override
   public void close() throws SQLException {
+    discardPendingFetch();
+    if (LOG.isDebugEnabled() && rowsFetched > 0) {
+      long elapsedMs = Math.max(1, (System.nanoTime() - openedAt) / 1000000);
+      LOG.debug("Fetched " + rowsFetched + " rows in " + elapsedMs + "ms (" +
+          (rowsFetched * 1000L / elapsedMs) + " rows/s), " + (fetchWaitNanos / 1000000) +
+          "ms of which were spent waiting for results");
+    }
     if (this.statement != null && (this.statement instanceof HiveStatement)) {
       HiveStatement s = (HiveStatement) this.statement;
       s.closeClientOperation();
@@ -365,17 +389,21 @@ public boolean next() throws SQLException {
         fetchedRows = null;
         fetchedRowsItr = null;
         fetchFirst = false;
+        discardPendingFetch();
       }
       if (fetchedRows == null || !fetchedRowsItr.hasNext()) {
-        TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle,
-            orientation, fetchSize);
-        TFetchResultsResp fetchResp;
-        fetchResp = client.FetchResults(fetchReq);
-        Utils.verifySuccessWithInfo(fetchResp.getStatus());
-
-        TRowSet results = fetchResp.getResults();
-        fetchedRows = RowSetFactory.create(results, protocol);
+        long start = System.nanoTime();
+        if (pendingFetch != null) {
+          fetchedRows = takePendingFetch();
+        } else {
+          fetchedRows = fetchRows(orientation);
+        }
+        fetchWaitNanos += System.nanoTime() - start;
         fetchedRowsItr = fetchedRows.iterator();
+        int numRows = fetchedRows.numRows();
+        if (fetchInBackground && numRows > 0 && (maxRows <= 0 || rowsFetched + numRows < maxRows)) {
+          startBackgroundFetch();
+        }
       }
 
       if (fetchedRowsItr.hasNext()) {
@@ -395,6 +423,59 @@ public boolean next() throws SQLException {
     return true;
   }
 
+  private RowSet fetchRows(TFetchOrientation orientation) throws Exception {
+    TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle,
+        orientation, fetchSize);
+    TFetchResultsResp fetchResp;
+    fetchResp = client.FetchResults(fetchReq);
+    Utils.verifySuccessWithInfo(fetchResp.getStatus());
+
+    TRowSet results = fetchResp.getResults();
+    return RowSetFactory.create(results, protocol);
+  }
+
+  /**
+   * Background fetches of all result sets share one pool of daemon threads, so a result set that
+   * is never closed does not leave a thread behind. Idle threads go away after a minute.
+   */
+  private static final class FetchExecutorHolder {
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "HiveQueryResultSet-fetch");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  private void startBackgroundFetch() {
+    pendingFetch = FetchExecutorHolder.EXECUTOR.submit(
+        () -> fetchRows(TFetchOrientation.FETCH_NEXT));
+  }
+
+  private RowSet takePendingFetch() throws Exception {
+    Future<RowSet> fetch = pendingFetch;
+    pendingFetch = null;
+    try {
+      return fetch.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
+  /**
+   * Wait for an outstanding background fetch and drop its rows; the caller either restarts from
+   * the first row or closes the result set.
+   */
+  private void discardPendingFetch() {
+    if (pendingFetch != null) {
+      try {
+        takePendingFetch();
+      } catch (Exception e) {
+        LOG.debug("Ignoring error of discarded background fetch", e);
+      }
+    }
+  }
+
   @Override
   public ResultSetMetaData getMetaData() throws SQLException {
     if (isClosed) {
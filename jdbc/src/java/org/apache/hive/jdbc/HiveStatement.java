@@ -120,6 +120,16 @@ public class HiveStatement implements java.sql.Statement {
 
   private InPlaceUpdateStream inPlaceUpdateStream = InPlaceUpdateStream.NO_OP;
 
+  /**
+   * A status call which comes back this quickly while the operation is still running has not
+   * been long polled by the server, e.g. because too many status calls are already waiting
+   * there. The next call is then delayed, starting with MIN_POLL_BACKOFF_MS and doubling up to
+   * MAX_POLL_BACKOFF_MS, so that the client does not spin on the server.
+   */
+  private static final long SHORT_POLL_MS = 100;
+  private static final long MIN_POLL_BACKOFF_MS = 10;
+  private static final long MAX_POLL_BACKOFF_MS = 1000;
+
   public HiveStatement(HiveConnection connection, TCLIService.Iface client,
       TSessionHandle sessHandle) {
     this(connection, client, sessHandle, false, DEFAULT_FETCH_SIZE);
@@ -272,6 +282,7 @@ public boolean execute(String sql) throws SQLException {
     resultSet =  new HiveQueryResultSet.Builder(this).setClient(client).setSessionHandle(sessHandle)
         .setStmtHandle(stmtHandle).setMaxRows(maxRows).setFetchSize(fetchSize)
         .setScrollable(isScrollableResultset)
+        .setFetchInBackground(connection.isFetchInBackground())
         .build();
     return true;
   }
@@ -300,7 +311,8 @@ public boolean executeAsync(String sql) throws SQLException {
     resultSet =
         new HiveQueryResultSet.Builder(this).setClient(client).setSessionHandle(sessHandle)
             .setStmtHandle(stmtHandle).setMaxRows(maxRows).setFetchSize(fetchSize)
-            .setScrollable(isScrollableResultset).build();
+            .setScrollable(isScrollableResultset)
+            .setFetchInBackground(connection.isFetchInBackground()).build();
     return true;
   }
 
@@ -367,6 +379,7 @@ TGetOperationStatusResp waitForOperationToComplete() throws SQLException {
       inPlaceUpdateStream.getEventNotifier().progressBarCompleted();
     }
     TGetOperationStatusResp statusResp = null;
+    long pollBackoffMs = 0;
 
     // Poll on the operation status, till the operation is complete
     while (!isOperationComplete) {
@@ -375,6 +388,7 @@ TGetOperationStatusResp waitForOperationToComplete() throws SQLException {
          * For an async SQLOperation, GetOperationStatus will use the long polling approach It will
          * essentially return after the HIVE_SERVER2_LONG_POLLING_TIMEOUT (a server config) expires
          */
+        long pollStartMs = System.currentTimeMillis();
         statusResp = client.GetOperationStatus(statusReq);
         inPlaceUpdateStream.update(statusResp.getProgressUpdateResponse());
         Utils.verifySuccessWithInfo(statusResp.getStatus());
@@ -407,9 +421,19 @@ TGetOperationStatusResp waitForOperationToComplete() throws SQLException {
             break;
           }
         }
+        if (!isOperationComplete) {
+          pollBackoffMs = getPollBackoffMs(System.currentTimeMillis() - pollStartMs, pollBackoffMs);
+          if (pollBackoffMs > 0) {
+            Thread.sleep(pollBackoffMs);
+          }
+        }
       } catch (SQLException e) {
         isLogBeingGenerated = false;
         throw e;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        isLogBeingGenerated = false;
+        throw new SQLException("Interrupted while waiting for the query to complete", "08S01", e);
       } catch (Exception e) {
         isLogBeingGenerated = false;
         throw new SQLException(e.toString(), "08S01", e);
@@ -423,6 +447,19 @@ TGetOperationStatusResp waitForOperationToComplete() throws SQLException {
     return statusResp;
   }
 
+  /**
+   * @return how long to wait before the next status call, given how long the last one took and
+   *         the previous wait
+   */
+  @VisibleForTesting
+  static long getPollBackoffMs(long pollDurationMs, long pollBackoffMs) {
+    if (pollDurationMs >= SHORT_POLL_MS) {
+      return 0;
+    }
+    return pollBackoffMs == 0
+        ? MIN_POLL_BACKOFF_MS : Math.min(MAX_POLL_BACKOFF_MS, 2 * pollBackoffMs);
+  }
+
   private void checkConnection(String action) throws SQLException {
     if (isClosed) {
       throw new SQLException("Can't " + action + " after statement has been closed");
@@ -128,6 +128,8 @@ public static class JdbcConnectionParams {
     static final String HTTP_HEADER_PREFIX = "http.header.";
     // Set the fetchSize
     static final String FETCH_SIZE = "fetchSize";
+    // Fetch the next batch of results while the current one is consumed
+    static final String FETCH_IN_BACKGROUND = "fetchInBackground";
     static final String INIT_FILE = "initFile";
     static final String WM_POOL = "wmPool";
     // Cookie prefix
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hive.jdbc;
+
+import org.apache.hive.service.cli.RowBasedSet;
+import org.apache.hive.service.cli.TableSchema;
+import org.apache.hive.service.rpc.thrift.TCLIService;
+import org.apache.hive.service.rpc.thrift.TCloseOperationReq;
+import org.apache.hive.service.rpc.thrift.TCloseOperationResp;
+import org.apache.hive.service.rpc.thrift.TFetchResultsReq;
+import org.apache.hive.service.rpc.thrift.TFetchResultsResp;
+import org.apache.hive.service.rpc.thrift.TOperationHandle;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.apache.hive.service.rpc.thrift.TStatus;
+import org.apache.hive.service.rpc.thrift.TStatusCode;
+import org.apache.thrift.TException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for fetching the rows of a HiveQueryResultSet in the background.
+ */
+public class TestHiveQueryResultSet {
+
+  private static final int FETCH_SIZE = 2;
+
+  private TCLIService.Iface client;
+  private HiveConnection connection;
+
+  @Before
+  public void setUp() throws Exception {
+    client = mock(TCLIService.Iface.class);
+    connection = mock(HiveConnection.class);
+    when(connection.getProtocol()).thenReturn(TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V1);
+    when(client.CloseOperation(any(TCloseOperationReq.class)))
+        .thenReturn(new TCloseOperationResp(new TStatus(TStatusCode.SUCCESS_STATUS)));
+  }
+
+  @Test
+  public void testBackgroundFetchReachesEndOfData() throws Exception {
+    when(client.FetchResults(any(TFetchResultsReq.class)))
+        .thenReturn(fetchResp(0, FETCH_SIZE), fetchResp(FETCH_SIZE, FETCH_SIZE), fetchResp(0, 0));
+    HiveQueryResultSet rs = createResultSet();
+
+    List<String> values = new ArrayList<>();
+    while (rs.next()) {
+      values.add(rs.getString(1));
+    }
+    assertEquals(Arrays.asList("0", "1", "2", "3"), values);
+    // No further fetch is started once the server returned an empty batch
+    verify(client, times(3)).FetchResults(any(TFetchResultsReq.class));
+
+    rs.close();
+    verify(client).CloseOperation(any(TCloseOperationReq.class));
+  }
+
+  @Test
+  public void testBackgroundFetchError() throws Exception {
+    when(client.FetchResults(any(TFetchResultsReq.class)))
+        .thenReturn(fetchResp(0, FETCH_SIZE))
+        .thenThrow(new TException("fetch failed"));
+    HiveQueryResultSet rs = createResultSet();
+
+    assertTrue(rs.next());
+    assertTrue(rs.next());
+    try {
+      rs.next();
+      fail("SQLException should have been thrown");
+    } catch (SQLException e) {
+      assertTrue(e.getCause() instanceof TException);
+      assertEquals("fetch failed", e.getCause().getMessage());
+    }
+    rs.close();
+    assertTrue(rs.isClosed());
+  }
+
+  @Test
+  public void testCloseWhileBackgroundFetchRunning() throws Exception {
+    final CountDownLatch fetchStarted = new CountDownLatch(1);
+    final CountDownLatch fetchRelease = new CountDownLatch(1);
+    when(client.FetchResults(any(TFetchResultsReq.class)))
+        .thenReturn(fetchResp(0, FETCH_SIZE))
+        .thenAnswer(new Answer<TFetchResultsResp>() {
+          @Override
+          public TFetchResultsResp answer(InvocationOnMock invocation) throws Throwable {
+            fetchStarted.countDown();
+            fetchRelease.await();
+            return fetchResp(FETCH_SIZE, FETCH_SIZE);
+          }
+        });
+    final HiveQueryResultSet rs = createResultSet();
+    assertTrue(rs.next());
+    assertTrue(fetchStarted.await(10, TimeUnit.SECONDS));
+
+    Thread closer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          rs.close();
+        } catch (SQLException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    closer.start();
+    // The operation must not be closed under the fetch which is still using the transport
+    closer.join(200);
+    verify(client, never()).CloseOperation(any(TCloseOperationReq.class));
+
+    fetchRelease.countDown();
+    closer.join(10000);
+    assertFalse(closer.isAlive());
+    assertTrue(rs.isClosed());
+    verify(client).CloseOperation(any(TCloseOperationReq.class));
+    verify(client, times(2)).FetchResults(any(TFetchResultsReq.class));
+  }
+
+  private HiveQueryResultSet createResultSet() throws SQLException {
+    return new HiveQueryResultSet.Builder(connection)
+        .setClient(client)
+        .setStmtHandle(new TOperationHandle())
+        .setSchema(Arrays.asList("c"), Arrays.asList("string"))
+        .setFetchSize(FETCH_SIZE)
+        .setFetchInBackground(true)
+        .build();
+  }
+
+  private static TFetchResultsResp fetchResp(int start, int numRows) {
+    RowBasedSet rows = new RowBasedSet(new TableSchema().addStringColumn("c", null));
+    for (int i = start; i < start + numRows; i++) {
+      rows.addRow(new Object[] {Integer.toString(i)});
+    }
+    TFetchResultsResp resp = new TFetchResultsResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    resp.setResults(rows.toTRowSet());
+    return resp;
+  }
+}
@@ -17,11 +17,23 @@
  */
 package org.apache.hive.jdbc;
 
+import org.apache.hive.service.rpc.thrift.TCLIService;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusReq;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusResp;
+import org.apache.hive.service.rpc.thrift.TOperationState;
+import org.apache.hive.service.rpc.thrift.TStatus;
+import org.apache.hive.service.rpc.thrift.TStatusCode;
 import org.junit.Test;
 
 import java.sql.SQLException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TestHiveStatement {
 
@@ -55,4 +67,42 @@ public void testaddBatch() throws SQLException {
       assertEquals("java.sql.SQLFeatureNotSupportedException: Method not supported", e.toString());
     }
   }
+
+  @Test
+  public void testPollBackoff() {
+    // A status call which was long polled by the server is repeated right away
+    assertEquals(0, HiveStatement.getPollBackoffMs(500, 0));
+    assertEquals(0, HiveStatement.getPollBackoffMs(500, 40));
+    // One which came back early is delayed, exponentially up to a second
+    assertEquals(10, HiveStatement.getPollBackoffMs(0, 0));
+    assertEquals(20, HiveStatement.getPollBackoffMs(0, 10));
+    assertEquals(1000, HiveStatement.getPollBackoffMs(0, 640));
+    assertEquals(1000, HiveStatement.getPollBackoffMs(0, 1000));
+  }
+
+  @Test
+  public void testWaitForOperationBacksOffWhenNotLongPolled() throws Exception {
+    // The server returns at once, as it does when too many status calls are already waiting
+    TCLIService.Iface client = mock(TCLIService.Iface.class);
+    when(client.GetOperationStatus(any(TGetOperationStatusReq.class))).thenReturn(
+        statusResp(TOperationState.RUNNING_STATE), statusResp(TOperationState.RUNNING_STATE),
+        statusResp(TOperationState.RUNNING_STATE), statusResp(TOperationState.RUNNING_STATE),
+        statusResp(TOperationState.FINISHED_STATE));
+    HiveStatement stmt = new HiveStatement(null, client, null);
+
+    long start = System.currentTimeMillis();
+    stmt.waitForOperationToComplete();
+    long elapsed = System.currentTimeMillis() - start;
+
+    verify(client, times(5)).GetOperationStatus(any(TGetOperationStatusReq.class));
+    // Waited 10 + 20 + 40 + 80 ms between the calls
+    assertTrue("Polled without waiting, took " + elapsed + "ms", elapsed >= 150);
+  }
+
+  private static TGetOperationStatusResp statusResp(TOperationState state) {
+    TGetOperationStatusResp resp =
+        new TGetOperationStatusResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    resp.setOperationState(state);
+    return resp;
+  }
 }
@@ -74,6 +74,9 @@ public class LlapRowRecordReader implements RecordReader<NullWritable, Row> {
   protected final Schema schema;
   protected final AbstractSerDe serde;
   protected final BytesWritable data;
+  // Resolved once, rather than for every row
+  private final StructObjectInspector rowOI;
+  private final List<? extends StructField> rowFields;
 
   public LlapRowRecordReader(Configuration conf, Schema schema,
       RecordReader<NullWritable, BytesWritable> reader) throws IOException {
@@ -84,9 +87,11 @@ public LlapRowRecordReader(Configuration conf, Schema schema,
 
     try {
       serde = initSerDe(conf);
+      rowOI = (StructObjectInspector) serde.getObjectInspector();
     } catch (SerDeException err) {
       throw new IOException(err);
     }
+    rowFields = rowOI.getAllStructFieldRefs();
   }
 
   @Override
@@ -123,9 +128,8 @@ public boolean next(NullWritable key, Row value) throws IOException {
       // Deserialize data to column values, and populate the row record
       Object rowObj;
       try {
-        StructObjectInspector rowOI = (StructObjectInspector) serde.getObjectInspector();
         rowObj = serde.deserialize(data);
-        setRowFromStruct(value, rowObj, rowOI);
+        setRowFromStruct(value, rowObj, rowOI, rowFields);
       } catch (SerDeException err) {
         if (LOG.isDebugEnabled()) {
           LOG.debug("Error deserializing row from data: " + data);
@@ -191,17 +195,18 @@ static Object convertValue(Object val, ObjectInspector oi) {
       ObjectInspector mapKeyOI = moi.getMapKeyObjectInspector();
       ObjectInspector mapValOI = moi.getMapValueObjectInspector();
       Map<?, ?> mapCol = moi.getMap(val);
-      for (Object mapKey : mapCol.keySet()) {
-        Object convertedMapKey = convertValue(mapKey, mapKeyOI);
-        Object convertedMapVal = convertValue(mapCol.get(mapKey), mapValOI);
+      for (Map.Entry<?, ?> mapEntry : mapCol.entrySet()) {
+        Object convertedMapKey = convertValue(mapEntry.getKey(), mapKeyOI);
+        Object convertedMapVal = convertValue(mapEntry.getValue(), mapValOI);
         convertedMap.put(convertedMapKey,  convertedMapVal);
       }
       convertedVal = convertedMap;
       break;
     case STRUCT:
       StructObjectInspector soi = (StructObjectInspector) oi;
-      List<Object> convertedRow = new ArrayList<Object>();
-      for (StructField structField : soi.getAllStructFieldRefs()) {
+      List<? extends StructField> fields = soi.getAllStructFieldRefs();
+      List<Object> convertedRow = new ArrayList<Object>(fields.size());
+      for (StructField structField : fields) {
         Object convertedFieldValue = convertValue(
             soi.getStructFieldData(val, structField),
             structField.getFieldObjectInspector());
@@ -217,9 +222,12 @@ static Object convertValue(Object val, ObjectInspector oi) {
   }
 
   static void setRowFromStruct(Row row, Object structVal, StructObjectInspector soi) {
-    Schema structSchema = row.getSchema();
+    setRowFromStruct(row, structVal, soi, soi.getAllStructFieldRefs());
+  }
+
+  private static void setRowFromStruct(Row row, Object structVal, StructObjectInspector soi,
+      List<? extends StructField> structFields) {
     // Add struct field data to the Row
-    List<? extends StructField> structFields = soi.getAllStructFieldRefs();
     for (int idx = 0; idx < structFields.size(); ++idx) {
       StructField structField = structFields.get(idx);
 
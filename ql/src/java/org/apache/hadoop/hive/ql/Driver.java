@@ -36,6 +36,7 @@
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
@@ -1643,6 +1644,28 @@ public void lockAndRespond() throws CommandProcessorResponse {
   }
 
   private static final ReentrantLock globalCompileLock = new ReentrantLock();
+  // Bounds the number of concurrent compilations when parallel compilation is enabled.
+  // The limit is read once, from the configuration of the first query compiled in parallel,
+  // so changing it requires a restart.
+  private static Semaphore parallelCompileSemaphore;
+  private static boolean parallelCompileSemaphoreInitialized = false;
+  // Number of compilations of the current thread holding the parallel compilation permit. A
+  // query compiled while compiling another one on the same thread, as EXPLAIN ANALYZE does,
+  // shares the permit of the outer query instead of waiting for a second one.
+  private static final ThreadLocal<Integer> compilePermitHoldCount =
+      ThreadLocal.withInitial(() -> 0);
+
+  private static synchronized Semaphore getParallelCompileSemaphore(HiveConf conf) {
+    if (!parallelCompileSemaphoreInitialized) {
+      int limit = HiveConf.getIntVar(conf, ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION_LIMIT);
+      if (limit > 0) {
+        LOG.info("Limiting parallel compilation to " + limit + " queries");
+        parallelCompileSemaphore = new Semaphore(limit, true);
+      }
+      parallelCompileSemaphoreInitialized = true;
+    }
+    return parallelCompileSemaphore;
+  }
 
   private void compileInternal(String command, boolean deferClose) throws CommandProcessorResponse {
     Metrics metrics = MetricsFactory.getInstance();
@@ -1652,8 +1675,15 @@ private void compileInternal(String command, boolean deferClose) throws CommandP
 
     PerfLogger perfLogger = SessionState.getPerfLogger();
     perfLogger.PerfLogBegin(CLASS_NAME, PerfLogger.WAIT_COMPILE);
-    final ReentrantLock compileLock = tryAcquireCompileLock(isParallelEnabled,
+    ReentrantLock compileLock = tryAcquireCompileLock(isParallelEnabled,
       command);
+    final Semaphore compileSemaphore =
+        isParallelEnabled ? getParallelCompileSemaphore(conf) : null;
+    if (compileLock != null && compileSemaphore != null
+        && !tryAcquireCompilePermit(compileSemaphore, command)) {
+      compileLock.unlock();
+      compileLock = null;
+    }
     perfLogger.PerfLogEnd(CLASS_NAME, PerfLogger.WAIT_COMPILE);
     if (metrics != null) {
       metrics.decrementCounter(MetricsConstant.WAITING_COMPILE_OPS, 1);
@@ -1674,6 +1704,9 @@ private void compileInternal(String command, boolean deferClose) throws CommandP
       }
       throw cpr;
     } finally {
+      if (compileSemaphore != null) {
+        releaseCompilePermit(compileSemaphore);
+      }
       compileLock.unlock();
     }
 
@@ -1743,6 +1776,59 @@ private ReentrantLock tryAcquireCompileLock(boolean isParallelEnabled,
     return compileLock;
   }
 
+  /**
+   * Acquires a slot from the global parallel compilation limit, honoring the compile lock
+   * wait timeout the same way {@link #tryAcquireCompileLock(boolean, String)} does. A thread
+   * which already holds a slot gets it again without waiting.
+   * @return true if a slot was acquired
+   */
+  private boolean tryAcquireCompilePermit(Semaphore compileSemaphore, String command) {
+    int holdCount = compilePermitHoldCount.get();
+    if (holdCount > 0) {
+      compilePermitHoldCount.set(holdCount + 1);
+      return true;
+    }
+    long maxCompileLockWaitTime = HiveConf.getTimeVar(
+      this.conf, ConfVars.HIVE_SERVER2_COMPILE_LOCK_TIMEOUT,
+      TimeUnit.SECONDS);
+    try {
+      // Unlike tryAcquire(), a zero timeout respects the fairness of the semaphore.
+      if (compileSemaphore.tryAcquire(0, TimeUnit.SECONDS)) {
+        return true;
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Waiting for a parallel compilation slot: " + command);
+      }
+      if (maxCompileLockWaitTime > 0) {
+        if (!compileSemaphore.tryAcquire(maxCompileLockWaitTime, TimeUnit.SECONDS)) {
+          errorMessage = ErrorMsg.COMPILE_LOCK_TIMED_OUT.getErrorCodedMsg();
+          LOG.error(errorMessage + ": " + command);
+          return false;
+        }
+      } else {
+        compileSemaphore.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Interrupted Exception ignored", e);
+      }
+      return false;
+    }
+    compilePermitHoldCount.set(1);
+    return true;
+  }
+
+  private static void releaseCompilePermit(Semaphore compileSemaphore) {
+    int holdCount = compilePermitHoldCount.get() - 1;
+    if (holdCount == 0) {
+      compilePermitHoldCount.remove();
+      compileSemaphore.release();
+    } else {
+      compilePermitHoldCount.set(holdCount);
+    }
+  }
+
   private void runInternal(String command, boolean alreadyCompiled) throws CommandProcessorResponse {
     errorMessage = null;
     SQLState = null;
@@ -20,9 +20,13 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,6 +36,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -50,6 +55,7 @@
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
@@ -64,6 +70,7 @@
 import org.apache.hadoop.hive.metastore.api.NotificationEvent;
 import org.apache.hadoop.hive.metastore.messaging.EventUtils;
 import org.apache.hadoop.hive.metastore.messaging.MessageFactory;
+import org.apache.hadoop.hive.ql.exec.SerializationUtilities;
 import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.hooks.Entity.Type;
 import org.apache.hadoop.hive.ql.hooks.ReadEntity;
@@ -76,6 +83,7 @@
 import org.apache.hadoop.hive.ql.parse.TableAccessInfo;
 import org.apache.hadoop.hive.ql.plan.FetchWork;
 import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hive.common.util.TxnIdUtils;
 
 import org.slf4j.Logger;
@@ -91,11 +99,19 @@ public final class QueryResultsCache {
   public static class LookupInfo {
     private String queryText;
     private Supplier<ValidTxnWriteIdList> txnWriteIdListProvider;
+    // Whether entries published by other instances can answer the query.
+    private boolean canUseSharedEntries;
 
     public LookupInfo(String queryText, Supplier<ValidTxnWriteIdList> txnWriteIdListProvider) {
+      this(queryText, txnWriteIdListProvider, true);
+    }
+
+    public LookupInfo(String queryText, Supplier<ValidTxnWriteIdList> txnWriteIdListProvider,
+        boolean canUseSharedEntries) {
       super();
       this.queryText = queryText;
       this.txnWriteIdListProvider = txnWriteIdListProvider;
+      this.canUseSharedEntries = canUseSharedEntries;
     }
 
     public String getQueryText() {
@@ -201,6 +217,11 @@ public static class CacheEntry {
     private ScheduledFuture<?> invalidationFuture = null;
     private volatile CacheEntryStatus status = CacheEntryStatus.PENDING;
     private ValidTxnWriteIdList txnWriteIdList;
+    // Results in the shared directory are not removed when this entry is cleaned up, but by the
+    // shared directory cleanup once no instance holds a lease on them.
+    private boolean shared = false;
+    // Lease which keeps shared results from being removed while this entry may be read.
+    private Path sharedLeaseFile;
 
     public void releaseReader() {
       int readerCount = 0;
@@ -359,7 +380,18 @@ public Stream<String> getTableNames() {
   private ReadWriteLock rwLock = new ReentrantReadWriteLock();
   private ScheduledFuture<?> invalidationPollFuture;
 
-  private QueryResultsCache(HiveConf configuration) throws IOException {
+  // Set when results can be shared with other instances using the same cache directory.
+  private Path sharedIndexPath;
+  private Path sharedDataPath;
+  private Path sharedLeasePath;
+  private ScheduledFuture<?> sharedCleanupFuture;
+  // Shared entries this instance holds a lease for.
+  private final Set<CacheEntry> sharedEntries = ConcurrentHashMap.newKeySet();
+  // Queries recently not found in the shared index, so repeated misses stay off the filesystem.
+  private Cache<String, Boolean> sharedMisses;
+
+  @VisibleForTesting
+  QueryResultsCache(HiveConf configuration) throws IOException {
     this.conf = configuration;
 
     // Set up cache directory
@@ -385,10 +417,45 @@ private QueryResultsCache(HiveConf configuration) throws IOException {
         HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_MAX_ENTRY_LIFETIME,
         TimeUnit.MILLISECONDS);
 
-    LOG.info("Query results cache: cacheDirectory {}, maxCacheSize {}, maxEntrySize {}, maxEntryLifetime {}",
-        cacheDirPath, maxCacheSize, maxEntrySize, maxEntryLifetime);
+    if (conf.getBoolVar(HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_SHARED_ENABLED)) {
+      if (maxEntryLifetime > 0) {
+        Path sharedDir = new Path(rootCacheDir, "shared");
+        sharedIndexPath = new Path(sharedDir, "index");
+        sharedDataPath = new Path(sharedDir, "data");
+        sharedLeasePath = new Path(sharedDir, "leases");
+        fs.mkdirs(sharedIndexPath, fsPermission);
+        fs.mkdirs(sharedDataPath, fsPermission);
+        fs.mkdirs(sharedLeasePath, fsPermission);
+        long negativeLookupTtl = conf.getTimeVar(
+            HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_SHARED_NEGATIVE_LOOKUP_TTL,
+            TimeUnit.MILLISECONDS);
+        if (negativeLookupTtl > 0) {
+          sharedMisses = CacheBuilder.newBuilder()
+              .maximumSize(SHARED_MISSES_MAX_SIZE)
+              .expireAfterWrite(negativeLookupTtl, TimeUnit.MILLISECONDS)
+              .build();
+        }
+        // Leases expire after maxEntryLifetime, so renew them twice as often.
+        long sharedMaintenanceInterval = Math.max(1, maxEntryLifetime / 2);
+        sharedCleanupFuture = invalidationExecutor.scheduleAtFixedRate(new Runnable() {
+          @Override
+          public void run() {
+            renewSharedLeases();
+            cleanupSharedDirectory(System.currentTimeMillis());
+          }
+        }, sharedMaintenanceInterval, sharedMaintenanceInterval, TimeUnit.MILLISECONDS);
+      } else {
+        LOG.warn("Not sharing query results cache entries, {} needs to be positive",
+            HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_MAX_ENTRY_LIFETIME.varname);
+      }
+    }
+
+    LOG.info("Query results cache: cacheDirectory {}, maxCacheSize {}, maxEntrySize {}, maxEntryLifetime {}, sharedDirectory {}",
+        cacheDirPath, maxCacheSize, maxEntrySize, maxEntryLifetime, sharedIndexPath);
   }
 
+  private static final int SHARED_MISSES_MAX_SIZE = 1000;
+
   private static final AtomicBoolean inited = new AtomicBoolean(false);
   private static QueryResultsCache instance;
 
@@ -469,6 +536,10 @@ public CacheEntry lookup(LookupInfo request) {
       removeEntry(invalidEntry);
     }
 
+    if (result == null && sharedIndexPath != null && request.canUseSharedEntries) {
+      result = lookupShared(request);
+    }
+
     LOG.debug("QueryResultsCache lookup result: {}", result);
     incrementMetric(MetricsConstant.QC_LOOKUPS);
     if (result != null) {
@@ -555,11 +626,16 @@ public boolean setEntryValid(CacheEntry cacheEntry, FetchWork fetchWork, ValidTx
           return false;
         }
 
+        // Zero-row results point at this instance's private dummy path, nothing to share.
+        boolean share = requiresMove && sharedDataPath != null
+            && canShareEntry(cacheEntry, txnWriteIdList);
         if (requiresMove) {
           // Move the query results to the query cache directory.
-          cachedResultsPath = moveResultsToCacheDirectory(queryResultsPath);
+          cachedResultsPath = moveResultsToCacheDirectory(queryResultsPath,
+              share ? sharedDataPath : cacheDirPath);
           dataDirMoved = true;
         }
+        cacheEntry.shared = share;
         LOG.info("Moved query results from {} to {} (size {}) for query '{}'",
             queryResultsPath, cachedResultsPath, resultSize, queryText);
 
@@ -583,6 +659,15 @@ public boolean setEntryValid(CacheEntry cacheEntry, FetchWork fetchWork, ValidTx
         cacheEntry.notifyAll();
       }
 
+      if (cacheEntry.shared) {
+        try {
+          acquireSharedLease(cacheEntry);
+          publishSharedEntry(cacheEntry);
+        } catch (IOException err) {
+          LOG.warn("Not publishing shared cache entry for query: " + queryText, err);
+        }
+      }
+
       incrementMetric(MetricsConstant.QC_VALID_ENTRIES);
       incrementMetric(MetricsConstant.QC_TOTAL_ENTRIES_ADDED);
     } catch (Exception err) {
@@ -776,14 +861,298 @@ private boolean shouldEntryBeAdded(CacheEntry entry, long size) {
     return true;
   }
 
-  private Path moveResultsToCacheDirectory(Path queryResultsPath) throws IOException {
+  private Path moveResultsToCacheDirectory(Path queryResultsPath, Path targetDirPath)
+      throws IOException {
     String dirName = UUID.randomUUID().toString();
-    Path cachedResultsPath = new Path(cacheDirPath, dirName);
+    Path cachedResultsPath = new Path(targetDirPath, dirName);
     FileSystem fs = cachedResultsPath.getFileSystem(conf);
     fs.rename(queryResultsPath, cachedResultsPath);
     return cachedResultsPath;
   }
 
+  /**
+   * Results can only be shared with other instances if their validity can be checked through
+   * write IDs, as invalidation by notification events only covers entries an instance knows about.
+   */
+  private static boolean canShareEntry(CacheEntry entry, ValidTxnWriteIdList txnWriteIdList) {
+    if (txnWriteIdList == null) {
+      return false;
+    }
+    for (ReadEntity readEntity : entry.getQueryInfo().getInputs()) {
+      if (readEntity.getType() == Type.TABLE && !AcidUtils.isTransactionalTable(readEntity.getTable())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Path getSharedIndexDir(String queryText) {
+    return new Path(sharedIndexPath, Integer.toHexString(queryText.hashCode()));
+  }
+
+  /**
+   * Write a description of a valid shared entry to the shared index, so that other instances
+   * can find it.
+   */
+  private void publishSharedEntry(CacheEntry entry) {
+    Path indexDir = getSharedIndexDir(entry.getQueryText());
+    String fileName = UUID.randomUUID().toString();
+    Path tmpPath = new Path(indexDir, "." + fileName);
+    try {
+      FileSystem fs = indexDir.getFileSystem(conf);
+      try (OutputStream out = fs.create(tmpPath)) {
+        SerializationUtilities.serializePlan(new SharedEntryInfo(entry), out);
+      }
+      // Rename into place so that readers never see a partially written file.
+      fs.rename(tmpPath, new Path(indexDir, fileName));
+      LOG.debug("Published shared cache entry {} to {}", entry, indexDir);
+    } catch (Exception err) {
+      LOG.warn("Failed to publish shared cache entry for query: " + entry.getQueryText(), err);
+    }
+  }
+
+  /**
+   * Check the shared index for a valid entry for the query published by another instance.
+   * A matching entry is added to this cache. Misses are remembered for
+   * {@link HiveConf.ConfVars#HIVE_QUERY_RESULTS_CACHE_SHARED_NEGATIVE_LOOKUP_TTL}.
+   * @return the added entry, or null if there was no usable shared entry.
+   */
+  private CacheEntry lookupShared(LookupInfo request) {
+    if (sharedMisses != null && sharedMisses.getIfPresent(request.queryText) != null) {
+      return null;
+    }
+    CacheEntry entry = lookupSharedIndex(request);
+    if (entry == null && sharedMisses != null) {
+      sharedMisses.put(request.queryText, Boolean.TRUE);
+    }
+    return entry;
+  }
+
+  private CacheEntry lookupSharedIndex(LookupInfo request) {
+    Path indexDir = getSharedIndexDir(request.queryText);
+    try {
+      FileSystem fs = indexDir.getFileSystem(conf);
+      if (!fs.exists(indexDir)) {
+        return null;
+      }
+      long now = System.currentTimeMillis();
+      for (FileStatus file : fs.listStatus(indexDir)) {
+        long age = now - file.getModificationTime();
+        if (file.getPath().getName().startsWith(".") || age >= maxEntryLifetime) {
+          continue;
+        }
+        SharedEntryInfo info;
+        try (InputStream in = fs.open(file.getPath())) {
+          info = SerializationUtilities.deserializePlan(in, SharedEntryInfo.class);
+        }
+        if (!request.queryText.equals(info.queryText)) {
+          // Different query with the same hash code.
+          continue;
+        }
+        CacheEntry entry = info.toCacheEntry(request);
+        if (!entryMatches(request, entry, new HashSet<CacheEntry>())) {
+          continue;
+        }
+        // Take the lease before checking the results are there, so they cannot be removed
+        // between the check and their use.
+        acquireSharedLease(entry);
+        if (!fs.exists(entry.cachedResultsPath)) {
+          releaseSharedLease(entry);
+          continue;
+        }
+        if (addSharedEntry(entry, maxEntryLifetime - age)) {
+          LOG.info("Using cache entry published by another instance: {}", entry);
+          return entry;
+        }
+        releaseSharedLease(entry);
+      }
+    } catch (Exception err) {
+      LOG.warn("Error while looking up shared cache entries in " + indexDir, err);
+    }
+    return null;
+  }
+
+  private boolean addSharedEntry(CacheEntry entry, long lifetimeMs) {
+    Lock writeLock = rwLock.writeLock();
+    try {
+      writeLock.lock();
+      if (!shouldEntryBeAdded(entry, entry.size)) {
+        return false;
+      }
+      addToEntryMap(queryMap, entry.getQueryText(), entry);
+      lru.put(entry, entry);
+      entry.getTableNames()
+          .forEach(tableName -> addToEntryMap(tableToEntryMap, tableName, entry));
+      cacheSize += entry.size;
+      entry.setStatus(CacheEntryStatus.VALID);
+      scheduleEntryInvalidation(entry, lifetimeMs);
+    } finally {
+      writeLock.unlock();
+    }
+
+    incrementMetric(MetricsConstant.QC_VALID_ENTRIES);
+    incrementMetric(MetricsConstant.QC_TOTAL_ENTRIES_ADDED);
+    return true;
+  }
+
+  /**
+   * Record that this instance may read the results of a shared entry. Every instance using an
+   * entry, including the one which published it, holds its own lease file under
+   * shared/leases/<results dir name>, which is renewed until the entry is cleaned up.
+   */
+  private void acquireSharedLease(CacheEntry entry) throws IOException {
+    Path leaseDir = new Path(sharedLeasePath, entry.cachedResultsPath.getName());
+    entry.sharedLeaseFile = new Path(leaseDir, UUID.randomUUID().toString());
+    touch(entry.sharedLeaseFile);
+    sharedEntries.add(entry);
+  }
+
+  private void releaseSharedLease(CacheEntry entry) throws IOException {
+    sharedEntries.remove(entry);
+    entry.sharedLeaseFile.getFileSystem(conf).delete(entry.sharedLeaseFile, false);
+  }
+
+  private void touch(Path path) throws IOException {
+    path.getFileSystem(conf).create(path, true).close();
+  }
+
+  /**
+   * Renew the leases of the shared entries still in use, and drop the leases of entries which
+   * have been invalidated and have no readers left.
+   */
+  @VisibleForTesting
+  void renewSharedLeases() {
+    for (CacheEntry entry : sharedEntries) {
+      try {
+        if (entry.getStatus() == CacheEntryStatus.INVALID && entry.readers.get() == 0) {
+          releaseSharedLease(entry);
+        } else {
+          touch(entry.sharedLeaseFile);
+        }
+      } catch (Exception err) {
+        LOG.warn("Error while renewing lease " + entry.sharedLeaseFile, err);
+      }
+    }
+  }
+
+  /**
+   * Remove shared index files which are too old to be imported, and results which are no longer
+   * used by any instance. Results are only removed once they are older than twice the entry
+   * lifetime and none of their leases has been renewed within the entry lifetime. Index
+   * directories left empty are removed as well.
+   */
+  @VisibleForTesting
+  void cleanupSharedDirectory(long now) {
+    long leaseCutoff = now - maxEntryLifetime;
+    long dataCutoff = now - 2 * maxEntryLifetime;
+    try {
+      FileSystem fs = sharedIndexPath.getFileSystem(conf);
+      for (FileStatus indexDir : fs.listStatus(sharedIndexPath)) {
+        int remaining = 0;
+        for (FileStatus file : fs.listStatus(indexDir.getPath())) {
+          if (file.getModificationTime() < leaseCutoff) {
+            fs.delete(file.getPath(), false);
+          } else {
+            remaining++;
+          }
+        }
+        if (remaining == 0) {
+          deleteEmptyDirectory(fs, indexDir.getPath());
+        }
+      }
+      for (FileStatus dataDir : fs.listStatus(sharedDataPath)) {
+        if (dataDir.getModificationTime() >= dataCutoff) {
+          continue;
+        }
+        Path leaseDir = new Path(sharedLeasePath, dataDir.getPath().getName());
+        boolean leased = false;
+        if (fs.exists(leaseDir)) {
+          for (FileStatus lease : fs.listStatus(leaseDir)) {
+            if (lease.getModificationTime() >= leaseCutoff) {
+              leased = true;
+            } else {
+              // Left behind by an instance which went away without releasing it.
+              fs.delete(lease.getPath(), false);
+            }
+          }
+        }
+        if (!leased) {
+          LOG.info("Shared cache directory cleanup: deleting {}", dataDir.getPath());
+          fs.delete(dataDir.getPath(), true);
+          fs.delete(leaseDir, true);
+        }
+      }
+    } catch (Exception err) {
+      LOG.warn("Error while cleaning up shared cache directory " + sharedIndexPath, err);
+    }
+  }
+
+  /**
+   * Delete a directory unless another instance has just published into it; the non recursive
+   * delete fails on a directory which is no longer empty.
+   */
+  private static void deleteEmptyDirectory(FileSystem fs, Path dir) {
+    try {
+      fs.delete(dir, false);
+    } catch (IOException err) {
+      LOG.debug("Not deleting shared index directory {} which is in use", dir, err);
+    }
+  }
+
+  /**
+   * The part of a cache entry written to the shared index.
+   */
+  private static class SharedEntryInfo {
+    private String queryText;
+    private long queryTime;
+    private HiveOperation hiveOperation;
+    private List<FieldSchema> resultSchema;
+    private TableAccessInfo tableAccessInfo;
+    private ColumnAccessInfo columnAccessInfo;
+    private Set<ReadEntity> inputs;
+    private TableDesc tblDesc;
+    private int limit;
+    private String cachedResultsPath;
+    private long size;
+    private String txnWriteIdList;
+
+    // For Kryo
+    private SharedEntryInfo() {
+    }
+
+    SharedEntryInfo(CacheEntry entry) {
+      QueryInfo queryInfo = entry.getQueryInfo();
+      this.queryText = entry.getQueryText();
+      this.queryTime = queryInfo.getQueryTime();
+      this.hiveOperation = queryInfo.getHiveOperation();
+      this.resultSchema = queryInfo.getResultSchema();
+      this.tableAccessInfo = queryInfo.getTableAccessInfo();
+      this.columnAccessInfo = queryInfo.getColumnAccessInfo();
+      this.inputs = queryInfo.getInputs();
+      this.tblDesc = entry.fetchWork.getTblDesc();
+      this.limit = entry.fetchWork.getLimit();
+      this.cachedResultsPath = entry.cachedResultsPath.toString();
+      this.size = entry.size;
+      this.txnWriteIdList = entry.txnWriteIdList.toString();
+    }
+
+    CacheEntry toCacheEntry(LookupInfo request) {
+      CacheEntry entry = new CacheEntry();
+      entry.queryInfo = new QueryInfo(queryTime,
+          new LookupInfo(queryText, request.txnWriteIdListProvider), hiveOperation,
+          resultSchema, tableAccessInfo, columnAccessInfo, inputs);
+      entry.cachedResultsPath = new Path(cachedResultsPath);
+      entry.fetchWork = new FetchWork(entry.cachedResultsPath, tblDesc, limit);
+      entry.fetchWork.setCachedResult(true);
+      entry.size = size;
+      entry.txnWriteIdList = new ValidTxnWriteIdList(txnWriteIdList);
+      entry.shared = true;
+      // Not usable until it has been validated and added to the cache.
+      entry.status = CacheEntryStatus.INVALID;
+      return entry;
+    }
+  }
+
   private boolean hasSpaceForCacheEntry(CacheEntry entry, long size) {
     if (maxCacheSize >= 0) {
       return (cacheSize + size) <= maxCacheSize;
@@ -865,6 +1234,10 @@ public static void cleanupInstance() {
         instance.invalidationPollFuture.cancel(true);
         instance.invalidationPollFuture = null;
       }
+      if (instance.sharedCleanupFuture != null) {
+        instance.sharedCleanupFuture.cancel(true);
+        instance.sharedCleanupFuture = null;
+      }
       instance.clear();
       instance = null;
       inited.set(false);
@@ -882,6 +1255,10 @@ public static void cleanupInstance() {
   }
 
   private void scheduleEntryInvalidation(final CacheEntry entry) {
+    scheduleEntryInvalidation(entry, maxEntryLifetime);
+  }
+
+  private void scheduleEntryInvalidation(final CacheEntry entry, long delayMs) {
     if (maxEntryLifetime >= 0) {
       // Schedule task to invalidate cache entry and remove from lookup.
       ScheduledFuture<?> future = invalidationExecutor.schedule(new Runnable() {
@@ -889,13 +1266,17 @@ private void scheduleEntryInvalidation(final CacheEntry entry) {
         public void run() {
           removeEntry(entry);
         }
-      }, maxEntryLifetime, TimeUnit.MILLISECONDS);
+      }, delayMs, TimeUnit.MILLISECONDS);
       entry.invalidationFuture = future;
     }
   }
 
   private static void cleanupEntry(final CacheEntry entry) {
     Preconditions.checkState(entry.getStatus() == CacheEntryStatus.INVALID);
+    if (entry.shared) {
+      // Its lease is dropped by the instance holding it, see renewSharedLeases().
+      return;
+    }
     final HiveConf conf = getInstance().conf;
 
     if (entry.cachedResultsPath != null &&
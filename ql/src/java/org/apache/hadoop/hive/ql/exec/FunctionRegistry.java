@@ -426,6 +426,7 @@ public final class FunctionRegistry {
     system.registerGenericUDAF("sum", new GenericUDAFSum());
     system.registerGenericUDAF("$SUM0", new GenericUDAFSumEmptyIsZero());
     system.registerGenericUDAF("count", new GenericUDAFCount());
+    system.registerGenericUDAF("approx_count_distinct", new GenericUDAFApproxCountDistinct());
     system.registerGenericUDAF("avg", new GenericUDAFAverage());
     system.registerGenericUDAF("std", new GenericUDAFStd());
     system.registerGenericUDAF("stddev", new GenericUDAFStd());
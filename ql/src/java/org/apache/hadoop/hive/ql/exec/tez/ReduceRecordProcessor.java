@@ -298,7 +298,8 @@ private void initializeSourceForTag(ReduceWork redWork, int tag, ObjectInspector
     sources[tag].init(jconf, redWork.getReducer(), vectorizedRecordSource, keyTableDesc,
         valueTableDesc, reader, tag == bigTablePosition, (byte) tag,
         redWork.getVectorizedRowBatchCtx(), redWork.getVectorizedVertexNum(),
-        redWork.getVectorizedTestingReducerBatchSize());
+        redWork.getVectorizedTestingReducerBatchSize(),
+        vectorizedRecordSource && redWork.getIsVectorColumnarValues());
     ois[tag] = sources[tag].getObjectInspector();
   }
 
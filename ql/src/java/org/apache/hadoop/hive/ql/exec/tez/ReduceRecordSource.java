@@ -25,12 +25,15 @@
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.exec.CommonMergeJoinOperator;
 import org.apache.hadoop.hive.ql.exec.Operator;
 import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorColumnBlockSerDe;
 import org.apache.hadoop.hive.ql.exec.vector.VectorDeserializeRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorGroupByOperator;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedBatchUtil;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
@@ -98,6 +101,17 @@ public class ReduceRecordSource implements RecordSource {
 
   private VectorDeserializeRow<LazyBinaryDeserializeRead> valueLazyBinaryDeserializeToRow;
 
+  // Set when each value is a column block of a batch of rows.
+  private VectorColumnBlockSerDe valueColumnBlockSerDe;
+
+  // When not null, the rows of several key groups are packed into each batch for this group by,
+  // with the end of each group run in the batch kept in groupRunEnds.
+  private VectorGroupByOperator groupRunsReducer;
+  private int[] groupRunEnds;
+  private int groupRunCount;
+  private int groupRunRowIdx;
+  private int groupRunBatchBytes;
+
   private VectorizedRowBatch batch;
 
   // number of columns pertaining to keys in a vectorized row batch
@@ -126,7 +140,7 @@ public class ReduceRecordSource implements RecordSource {
   void init(JobConf jconf, Operator<?> reducer, boolean vectorized, TableDesc keyTableDesc,
       TableDesc valueTableDesc, Reader reader, boolean handleGroupKey, byte tag,
       VectorizedRowBatchCtx batchContext, long vectorizedVertexNum,
-      int vectorizedTestingReducerBatchSize)
+      int vectorizedTestingReducerBatchSize, boolean isColumnarValues)
       throws Exception {
 
     this.vectorizedVertexNum = vectorizedVertexNum;
@@ -196,8 +210,27 @@ void init(JobConf jconf, Operator<?> reducer, boolean vectorized, TableDesc keyT
                                   binarySortableSerDe.getNotNullMarkers()));
         keyBinarySortableDeserializeToRow.init(0);
 
+        // Create data buffers for key bytes column vectors, since the keys of several groups
+        // are copied into a batch when group runs are packed.
+        if (handleGroupKey && !isColumnarValues &&
+            reducer instanceof VectorGroupByOperator &&
+            ((VectorGroupByOperator) reducer).canProcessGroupRuns() &&
+            HiveConf.getBoolVar(jconf, HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCE_GROUPBY_RUNS_ENABLED)) {
+          groupRunsReducer = (VectorGroupByOperator) reducer;
+          groupRunEnds = new int[batch.getMaxSize()];
+          for (int i = 0; i < firstValueColumnOffset; i++) {
+            ColumnVector colVector = batch.cols[i];
+            if (colVector instanceof BytesColumnVector) {
+              ((BytesColumnVector) colVector).initBuffer();
+            }
+          }
+        }
+
         final int valuesSize = valueStructInspectors.getAllStructFieldRefs().size();
-        if (valuesSize > 0) {
+        if (valuesSize > 0 && isColumnarValues) {
+          valueColumnBlockSerDe = new VectorColumnBlockSerDe(
+              VectorizedBatchUtil.typeInfosFromStructObjectInspector(valueStructInspectors));
+        } else if (valuesSize > 0) {
           valueLazyBinaryDeserializeToRow =
                   new VectorDeserializeRow<LazyBinaryDeserializeRead>(
                         new LazyBinaryDeserializeRead(
@@ -205,14 +238,14 @@ void init(JobConf jconf, Operator<?> reducer, boolean vectorized, TableDesc keyT
                                        valueStructInspectors),
                             /* useExternalBuffer */ true));
           valueLazyBinaryDeserializeToRow.init(firstValueColumnOffset);
+        }
 
-          // Create data buffers for value bytes column vectors.
-          for (int i = firstValueColumnOffset; i < batch.numCols; i++) {
-            ColumnVector colVector = batch.cols[i];
-            if (colVector instanceof BytesColumnVector) {
-              BytesColumnVector bytesColumnVector = (BytesColumnVector) colVector;
-              bytesColumnVector.initBuffer();
-            }
+        // Create data buffers for value bytes column vectors, both deserializers copy into them.
+        for (int i = firstValueColumnOffset; i < batch.numCols; i++) {
+          ColumnVector colVector = batch.cols[i];
+          if (colVector instanceof BytesColumnVector) {
+            BytesColumnVector bytesColumnVector = (BytesColumnVector) colVector;
+            bytesColumnVector.initBuffer();
           }
         }
       } else {
@@ -372,13 +405,20 @@ public void next() throws HiveException {
   private boolean pushRecordVector() {
     try {
       if (!reader.next()) {
+        if (groupRunsReducer != null && groupRunRowIdx > 0) {
+          flushGroupRuns(/* isLastGroupRunComplete */ true);
+        }
         return false;
       }
 
       BytesWritable keyWritable = (BytesWritable) reader.getCurrentKey();
       valueWritables = reader.getCurrentValues();
 
-      processVectorGroup(keyWritable, valueWritables, tag);
+      if (groupRunsReducer != null) {
+        processVectorGroupRun(keyWritable, valueWritables, tag);
+      } else {
+        processVectorGroup(keyWritable, valueWritables, tag);
+      }
       return true;
     } catch (Throwable e) {
       abort = true;
@@ -434,6 +474,10 @@ private void processVectorGroup(BytesWritable keyWritable,
     int rowIdx = 0;
     int batchBytes = keyBytes.length;
     try {
+      if (valueColumnBlockSerDe != null) {
+        processVectorColumnBlocks(values, tag);
+        return;
+      }
       for (Object value : values) {
         if (rowIdx >= maxSize ||
             (rowIdx > 0 && batchBytes >= BATCH_BYTES)) {
@@ -489,6 +533,118 @@ private void processVectorGroup(BytesWritable keyWritable,
     }
   }
 
+  /*
+   * Append the rows of one key group to the batch being packed, after the rows of the previous
+   * groups.  The key is deserialized into every row so the key columns are valid for all rows.
+   * When the batch fills up in the middle of the group, it is forwarded with the group as an
+   * incomplete last run.
+   */
+  private void processVectorGroupRun(BytesWritable keyWritable,
+      Iterable<Object> values, byte tag) throws HiveException {
+
+    byte[] keyBytes = keyWritable.getBytes();
+    int keyLength = keyWritable.getLength();
+
+    final int maxSize =
+        (vectorizedTestingReducerBatchSize > 0 ?
+            Math.min(vectorizedTestingReducerBatchSize, batch.getMaxSize()) :
+            batch.getMaxSize());
+    try {
+      int runStart = groupRunRowIdx;
+      for (Object value : values) {
+        if (groupRunRowIdx >= maxSize ||
+            (groupRunRowIdx > 0 && groupRunBatchBytes >= BATCH_BYTES)) {
+
+          // Batch is full AND we have at least 1 more row...
+          final boolean isLastGroupRunComplete = (runStart == groupRunRowIdx);
+          if (!isLastGroupRunComplete) {
+            groupRunEnds[groupRunCount++] = groupRunRowIdx;
+          }
+          flushGroupRuns(isLastGroupRunComplete);
+          runStart = 0;
+        }
+
+        keyBinarySortableDeserializeToRow.setBytes(keyBytes, 0, keyLength);
+        try {
+          keyBinarySortableDeserializeToRow.deserialize(batch, groupRunRowIdx);
+        } catch (Exception e) {
+          throw new HiveException(
+              "\nDeserializeRead details: " +
+                  keyBinarySortableDeserializeToRow.getDetailedReadPositionString(),
+              e);
+        }
+        groupRunBatchBytes += keyLength;
+
+        if (valueLazyBinaryDeserializeToRow != null) {
+          // Deserialize value into vector row columns.
+          BytesWritable valueWritable = (BytesWritable) value;
+          byte[] valueBytes = valueWritable.getBytes();
+          int valueLength = valueWritable.getLength();
+          groupRunBatchBytes += valueLength;
+
+          valueLazyBinaryDeserializeToRow.setBytes(valueBytes, 0, valueLength);
+          valueLazyBinaryDeserializeToRow.deserialize(batch, groupRunRowIdx);
+        }
+        groupRunRowIdx++;
+      }
+      if (groupRunRowIdx > runStart) {
+        groupRunEnds[groupRunCount++] = groupRunRowIdx;
+      }
+    } catch (Exception e) {
+      String rowString = null;
+      try {
+        rowString = batch.toString();
+      } catch (Exception e2) {
+        rowString = "[Error getting row data with exception "
+            + StringUtils.stringifyException(e2) + " ]";
+      }
+      l4j.error("Hive Runtime Error while processing vector batch (tag=" + tag
+              + ") (vectorizedVertexNum " + vectorizedVertexNum + ") " + rowString, e);
+      throw new HiveException("Hive Runtime Error while processing vector batch (tag="
+          + tag + ") (vectorizedVertexNum " + vectorizedVertexNum + ")", e);
+    }
+  }
+
+  private void flushGroupRuns(boolean isLastGroupRunComplete) throws HiveException {
+    batch.size = groupRunRowIdx;
+    groupRunsReducer.setNextVectorBatchGroupRuns(
+        groupRunEnds, groupRunCount, isLastGroupRunComplete);
+    reducer.process(batch, tag);
+
+    // Reset all the columns, since the key columns are not repeating.
+    batch.reset();
+    groupRunRowIdx = 0;
+    groupRunCount = 0;
+    groupRunBatchBytes = 0;
+  }
+
+  /*
+   * Each value is a column block of up to a full batch of rows, so it is deserialized directly
+   * into the value columns and forwarded as one batch.
+   */
+  private void processVectorColumnBlocks(Iterable<Object> values, byte tag)
+      throws HiveException {
+    Iterator<Object> iterator = values.iterator();
+    while (iterator.hasNext()) {
+      BytesWritable valueWritable = (BytesWritable) iterator.next();
+      batch.size = valueColumnBlockSerDe.deserialize(
+          valueWritable.getBytes(), 0, batch, firstValueColumnOffset);
+      if (batch.size == 0) {
+        continue;
+      }
+      if (handleGroupKey) {
+        reducer.setNextVectorBatchGroupStatus(/* isLastGroupBatch */ !iterator.hasNext());
+      }
+      reducer.process(batch, tag);
+
+      // Reset just the value columns and value buffer.
+      for (int i = firstValueColumnOffset; i < batch.numCols; i++) {
+        batch.cols[i].reset();
+      }
+    }
+    batch.reset();
+  }
+
   boolean close() throws Exception {
     try {
       if (handleGroupKey && groupKey != null) {
@@ -36,6 +36,7 @@
 import org.apache.hadoop.metrics2.impl.MsInfo;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterInt;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableMetric;
 
@@ -65,6 +66,10 @@ public class WmPoolMetrics implements MetricsSource {
   MutableCounterInt numRunningQueries;
   @Metric("Number of queries queued")
   MutableCounterInt numQueuedQueries;
+  @Metric("Number of queries started after waiting in the queue")
+  MutableCounterInt numDequeuedQueries;
+  @Metric("Total time started queries spent in the queue, in milliseconds")
+  MutableCounterLong queueWaitTimeMs;
 
   // TODO: these would need to be propagated from AM via progress.
   // @Metric("Number of allocated guaranteed executors in use"),
@@ -106,6 +111,8 @@ public void initAfterRegister() {
       MetricsVariable<?> var = null;
       if (metric instanceof MutableCounterInt) {
         var = new CodahaleCounterWrapper((MutableCounterInt) metric);
+      } else if (metric instanceof MutableCounterLong) {
+        var = new CodahaleLongCounterWrapper((MutableCounterLong) metric);
       } else if (metric instanceof MutableGaugeInt) {
         var = new CodahaleGaugeWrapper((MutableGaugeInt) metric);
       }
@@ -146,9 +153,11 @@ public void removeRunningQueries(int num) {
     numRunningQueries.incr(-num);
   }
 
-  public void moveQueuedToRunning() {
+  public void moveQueuedToRunning(long queueWaitMs) {
     numQueuedQueries.incr(-1);
     numRunningQueries.incr();
+    numDequeuedQueries.incr();
+    queueWaitTimeMs.incr(queueWaitMs);
   }
 
   @Override
@@ -211,4 +220,17 @@ public Integer getValue() {
     }
   }
 
+  private static class CodahaleLongCounterWrapper implements MetricsVariable<Long> {
+    private final MutableCounterLong mm;
+
+    public CodahaleLongCounterWrapper(MutableCounterLong mm) {
+      this.mm = mm;
+    }
+
+    @Override
+    public Long getValue() {
+      return mm.value();
+    }
+  }
+
 }
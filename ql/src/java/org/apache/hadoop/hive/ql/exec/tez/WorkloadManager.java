@@ -1154,6 +1154,7 @@ private void queueGetRequestOnMasterThread(
     }
 
     // Otherwise, queue the session and make sure we update this pool.
+    req.queueTime = System.currentTimeMillis();
     pool.queue.addLast(req);
     if (pool.metrics != null) {
       pool.metrics.addQueuedQuery();
@@ -1181,7 +1182,7 @@ private void processPoolChangesOnMasterThread(
     for (int i = 0; i < queriesToStart; ++i) {
       GetRequest queueReq = pool.queue.pollFirst();
       if (pool.metrics != null) {
-        pool.metrics.moveQueuedToRunning();
+        pool.metrics.moveQueuedToRunning(System.currentTimeMillis() - queueReq.queueTime);
       }
       assert queueReq.sessionToReuse == null;
       // Note that in theory, we are guaranteed to have a session waiting for us here, but
@@ -1382,6 +1383,8 @@ private final static class GetRequest {
     private WmTezSession sessionToReuse;
     private final String queryId;
     private final WmContext wmContext;
+    // When the request was added to the pool queue; only used for metrics.
+    private long queueTime;
 
     private GetRequest(MappingInput mappingInput, String queryId,
       SettableFuture<WmTezSession> future, WmTezSession sessionToReuse, long order,
@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector;
+
+import org.apache.hadoop.hive.ql.exec.vector.expressions.StringExpr;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+
+/**
+ * This class serializes a range of rows of a VectorizedRowBatch column by column into one
+ * block, and deserializes such a block back into the columns of a VectorizedRowBatch.
+ *
+ * It is used for reduce sink values that are shuffled as whole batches instead of row by row.
+ * Each column is written with a lightweight encoding: repeating and all NULL columns take a
+ * single value, long family values are delta encoded and string values are run length encoded.
+ *
+ * Only the primitive types whose column vectors are LongColumnVector, DoubleColumnVector or
+ * (for STRING and BINARY) BytesColumnVector are supported, see {@link #isSupported(TypeInfo)}.
+ */
+public final class VectorColumnBlockSerDe {
+
+  // Column encodings.
+  private static final byte ALL_NULL = 0;
+  private static final byte REPEATING = 1;
+  private static final byte PLAIN = 2;
+  private static final byte RUN_LENGTH = 3;
+
+  private final ColumnVector.Type[] columnVectorTypes;
+
+  private final LazyBinaryUtils.VInt readVInt = new LazyBinaryUtils.VInt();
+  private final LazyBinaryUtils.VLong readVLong = new LazyBinaryUtils.VLong();
+  private int readOffset;
+
+  public VectorColumnBlockSerDe(TypeInfo[] typeInfos) throws HiveException {
+    columnVectorTypes = new ColumnVector.Type[typeInfos.length];
+    for (int i = 0; i < typeInfos.length; i++) {
+      if (!isSupported(typeInfos[i])) {
+        throw new HiveException("Column block serialization not supported for type " +
+            typeInfos[i].getTypeName());
+      }
+      columnVectorTypes[i] = VectorizationContext.getColumnVectorTypeFromTypeInfo(typeInfos[i]);
+    }
+  }
+
+  public static boolean isSupported(TypeInfo typeInfo) {
+    if (typeInfo.getCategory() != Category.PRIMITIVE) {
+      return false;
+    }
+    switch (((PrimitiveTypeInfo) typeInfo).getPrimitiveCategory()) {
+    case BOOLEAN:
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case DATE:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case BINARY:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Serialize the logical rows [logicalStart, logicalStart + count) of the batch.
+   * @param columnMap the batch columns to serialize, in the order of the type infos
+   */
+  public void serialize(VectorizedRowBatch batch, int[] columnMap, int logicalStart, int count,
+      Output output) {
+    LazyBinaryUtils.writeVInt(output, count);
+    for (int c = 0; c < columnMap.length; c++) {
+      ColumnVector colVector = batch.cols[columnMap[c]];
+      if (colVector.isRepeating) {
+        if (colVector.noNulls || !colVector.isNull[0]) {
+          output.write(REPEATING);
+          writeValue(c, colVector, 0, output);
+        } else {
+          output.write(ALL_NULL);
+        }
+        continue;
+      }
+
+      boolean hasNulls = false;
+      boolean allNull = true;
+      for (int logical = logicalStart; logical < logicalStart + count; logical++) {
+        if (!colVector.noNulls && colVector.isNull[batchIndex(batch, logical)]) {
+          hasNulls = true;
+        } else {
+          allNull = false;
+        }
+      }
+      if (allNull) {
+        output.write(ALL_NULL);
+        continue;
+      }
+
+      boolean isBytes = columnVectorTypes[c] == ColumnVector.Type.BYTES;
+      output.write(isBytes ? RUN_LENGTH : PLAIN);
+      output.write(hasNulls ? 1 : 0);
+      if (hasNulls) {
+        writeNullBitmap(batch, colVector, logicalStart, count, output);
+      }
+      if (isBytes) {
+        writeBytesRuns(batch, (BytesColumnVector) colVector, logicalStart, count, output);
+      } else if (columnVectorTypes[c] == ColumnVector.Type.LONG) {
+        long[] vector = ((LongColumnVector) colVector).vector;
+        long previous = 0;
+        for (int logical = logicalStart; logical < logicalStart + count; logical++) {
+          final int batchIndex = batchIndex(batch, logical);
+          if (colVector.noNulls || !colVector.isNull[batchIndex]) {
+            LazyBinaryUtils.writeVLong(output, vector[batchIndex] - previous);
+            previous = vector[batchIndex];
+          }
+        }
+      } else {
+        double[] vector = ((DoubleColumnVector) colVector).vector;
+        for (int logical = logicalStart; logical < logicalStart + count; logical++) {
+          final int batchIndex = batchIndex(batch, logical);
+          if (colVector.noNulls || !colVector.isNull[batchIndex]) {
+            writeDouble(vector[batchIndex], output);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Deserialize a block into the batch columns starting at firstColumn.  The columns are
+   * expected to be reset.
+   * @return the number of rows in the block
+   */
+  public int deserialize(byte[] bytes, int offset, VectorizedRowBatch batch, int firstColumn) {
+    readOffset = offset;
+    final int count = readVInt(bytes);
+    for (int c = 0; c < columnVectorTypes.length; c++) {
+      ColumnVector colVector = batch.cols[firstColumn + c];
+      final byte encoding = bytes[readOffset++];
+      if (encoding == ALL_NULL) {
+        colVector.isRepeating = true;
+        colVector.noNulls = false;
+        colVector.isNull[0] = true;
+        continue;
+      }
+      if (encoding == REPEATING) {
+        colVector.isRepeating = true;
+        readValue(c, colVector, 0, bytes);
+        continue;
+      }
+
+      final boolean hasNulls = bytes[readOffset++] != 0;
+      if (hasNulls) {
+        colVector.noNulls = false;
+        for (int i = 0; i < count; i++) {
+          colVector.isNull[i] = (bytes[readOffset + (i >> 3)] & (1 << (i & 7))) != 0;
+        }
+        readOffset += (count + 7) >> 3;
+      }
+      if (encoding == RUN_LENGTH) {
+        readBytesRuns((BytesColumnVector) colVector, count, hasNulls, bytes);
+      } else if (columnVectorTypes[c] == ColumnVector.Type.LONG) {
+        long[] vector = ((LongColumnVector) colVector).vector;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+          if (!hasNulls || !colVector.isNull[i]) {
+            previous += readVLong(bytes);
+            vector[i] = previous;
+          }
+        }
+      } else {
+        double[] vector = ((DoubleColumnVector) colVector).vector;
+        for (int i = 0; i < count; i++) {
+          if (!hasNulls || !colVector.isNull[i]) {
+            vector[i] = readDouble(bytes);
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int batchIndex(VectorizedRowBatch batch, int logical) {
+    return batch.selectedInUse ? batch.selected[logical] : logical;
+  }
+
+  private void writeValue(int c, ColumnVector colVector, int batchIndex, Output output) {
+    switch (columnVectorTypes[c]) {
+    case LONG:
+      LazyBinaryUtils.writeVLong(output, ((LongColumnVector) colVector).vector[batchIndex]);
+      break;
+    case DOUBLE:
+      writeDouble(((DoubleColumnVector) colVector).vector[batchIndex], output);
+      break;
+    default:
+      BytesColumnVector bytesColVector = (BytesColumnVector) colVector;
+      LazyBinaryUtils.writeVInt(output, bytesColVector.length[batchIndex]);
+      output.write(bytesColVector.vector[batchIndex], bytesColVector.start[batchIndex],
+          bytesColVector.length[batchIndex]);
+    }
+  }
+
+  private void readValue(int c, ColumnVector colVector, int batchIndex, byte[] bytes) {
+    switch (columnVectorTypes[c]) {
+    case LONG:
+      ((LongColumnVector) colVector).vector[batchIndex] = readVLong(bytes);
+      break;
+    case DOUBLE:
+      ((DoubleColumnVector) colVector).vector[batchIndex] = readDouble(bytes);
+      break;
+    default:
+      final int length = readVInt(bytes);
+      ((BytesColumnVector) colVector).setVal(batchIndex, bytes, readOffset, length);
+      readOffset += length;
+    }
+  }
+
+  private static void writeNullBitmap(VectorizedRowBatch batch, ColumnVector colVector,
+      int logicalStart, int count, Output output) {
+    int bits = 0;
+    for (int i = 0; i < count; i++) {
+      if (colVector.isNull[batchIndex(batch, logicalStart + i)]) {
+        bits |= 1 << (i & 7);
+      }
+      if ((i & 7) == 7 || i == count - 1) {
+        output.write(bits);
+        bits = 0;
+      }
+    }
+  }
+
+  /*
+   * Non-NULL string values are written as runs: the run length, followed by the value.
+   */
+  private static void writeBytesRuns(VectorizedRowBatch batch, BytesColumnVector colVector,
+      int logicalStart, int count, Output output) {
+    int runIndex = -1;
+    int runLength = 0;
+    for (int logical = logicalStart; logical < logicalStart + count; logical++) {
+      final int batchIndex = batchIndex(batch, logical);
+      if (!colVector.noNulls && colVector.isNull[batchIndex]) {
+        continue;
+      }
+      if (runLength > 0 && StringExpr.equal(
+          colVector.vector[runIndex], colVector.start[runIndex], colVector.length[runIndex],
+          colVector.vector[batchIndex], colVector.start[batchIndex], colVector.length[batchIndex])) {
+        runLength++;
+        continue;
+      }
+      if (runLength > 0) {
+        writeRun(colVector, runIndex, runLength, output);
+      }
+      runIndex = batchIndex;
+      runLength = 1;
+    }
+    if (runLength > 0) {
+      writeRun(colVector, runIndex, runLength, output);
+    }
+  }
+
+  private static void writeRun(BytesColumnVector colVector, int batchIndex, int runLength,
+      Output output) {
+    LazyBinaryUtils.writeVInt(output, runLength);
+    LazyBinaryUtils.writeVInt(output, colVector.length[batchIndex]);
+    output.write(colVector.vector[batchIndex], colVector.start[batchIndex],
+        colVector.length[batchIndex]);
+  }
+
+  private void readBytesRuns(BytesColumnVector colVector, int count, boolean hasNulls,
+      byte[] bytes) {
+    int runLength = 0;
+    int runIndex = -1;
+    for (int i = 0; i < count; i++) {
+      if (hasNulls && colVector.isNull[i]) {
+        continue;
+      }
+      if (runLength == 0) {
+        runLength = readVInt(bytes);
+        final int length = readVInt(bytes);
+        colVector.setVal(i, bytes, readOffset, length);
+        readOffset += length;
+        runIndex = i;
+      } else {
+        // Share the bytes of the first value of the run.
+        colVector.setRef(i, colVector.vector[runIndex], colVector.start[runIndex],
+            colVector.length[runIndex]);
+      }
+      runLength--;
+    }
+  }
+
+  private static void writeDouble(double value, Output output) {
+    final long bits = Double.doubleToLongBits(value);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      output.write((int) (bits >> shift));
+    }
+  }
+
+  private double readDouble(byte[] bytes) {
+    long bits = 0;
+    for (int i = 0; i < 8; i++) {
+      bits = (bits << 8) | (bytes[readOffset++] & 0xFF);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  private int readVInt(byte[] bytes) {
+    LazyBinaryUtils.readVInt(bytes, readOffset, readVInt);
+    readOffset += readVInt.length;
+    return readVInt.value;
+  }
+
+  private long readVLong(byte[] bytes) {
+    LazyBinaryUtils.readVLong(bytes, readOffset, readVLong);
+    readOffset += readVLong.length;
+    return readVLong.value;
+  }
+}
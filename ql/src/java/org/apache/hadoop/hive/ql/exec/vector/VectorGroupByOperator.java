@@ -40,6 +40,7 @@
 import org.apache.hadoop.hive.ql.exec.Operator;
 import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.exec.vector.expressions.ConstantVectorExpression;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.IdentityExpression;
 import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
 import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpressionWriter;
 import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpressionWriterFactory;
@@ -138,6 +139,11 @@ public class VectorGroupByOperator extends Operator<GroupByDesc>
   // We translate the grouping set bit field into a boolean arrays.
   private transient boolean[][] allGroupingSetsOverrideIsNulls;
 
+  // The grouping set with the keys of all the grouping sets, and its null variation.  The hash
+  // mode may aggregate just this one and roll the others up from it.
+  private transient long finestGroupingSet;
+  private transient boolean[] finestGroupingSetOverrideIsNulls;
+
   private transient int numEntriesHashTable;
 
   private transient long maxHashTblMemory;
@@ -221,6 +227,18 @@ protected void processAggregators(VectorizedRowBatch batch) throws HiveException
       }
     }
 
+    /**
+     * Whether all the aggregators can merge their aggregation buffers.
+     */
+    protected boolean canMergeAggregationBuffers() {
+      for (VectorAggregateExpression aggregator : aggregators) {
+        if (!aggregator.canMergeAggregationBuffers()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     /**
      * allocates a new aggregation buffer set.
      */
@@ -349,8 +367,15 @@ private class ProcessingModeHashAggregate extends ProcessingModeBase {
      */
     private long numRowsCompareHashAggr;
 
+    /**
+     * Whether only the finest grouping set is aggregated, with the other grouping sets rolled up
+     * from its entries when flushing.
+     */
+    private boolean rollupGroupingSets;
+
     @Override
     public void initialize(Configuration hconf) throws HiveException {
+      boolean isRollupEnabled;
       // hconf is null in unit testing
       if (null != hconf) {
         this.percentEntriesToFlush = HiveConf.getFloatVar(hconf,
@@ -363,6 +388,8 @@ public void initialize(Configuration hconf) throws HiveException {
             HiveConf.ConfVars.HIVEMAPAGGRHASHMINREDUCTION);
           this.numRowsCompareHashAggr = HiveConf.getIntVar(hconf,
             HiveConf.ConfVars.HIVEGROUPBYMAPINTERVAL);
+        isRollupEnabled = HiveConf.getBoolVar(hconf,
+            HiveConf.ConfVars.HIVE_VECTORIZATION_GROUPBY_GROUPING_SETS_ROLLUP);
       }
       else {
         this.percentEntriesToFlush =
@@ -375,15 +402,40 @@ public void initialize(Configuration hconf) throws HiveException {
             HiveConf.ConfVars.HIVEMAPAGGRHASHMINREDUCTION.defaultFloatVal;
           this.numRowsCompareHashAggr =
             HiveConf.ConfVars.HIVEGROUPBYMAPINTERVAL.defaultIntVal;
+        isRollupEnabled =
+            HiveConf.ConfVars.HIVE_VECTORIZATION_GROUPBY_GROUPING_SETS_ROLLUP.defaultBoolVal;
       }
 
       sumBatchSize = 0;
 
+      rollupGroupingSets =
+          isRollupEnabled && groupingSetsPresent && groupingSets.length > 1 &&
+          canMergeAggregationBuffers();
+      if (rollupGroupingSets) {
+        LOG.info("rolling up " + groupingSets.length + " grouping sets from grouping set " +
+            finestGroupingSet);
+      }
+
       mapKeysAggregationBuffers = new HashMap<KeyWrapper, VectorAggregationBufferRow>();
       computeMemoryLimits();
       LOG.debug("using hash aggregation processing mode");
     }
 
+    @Override
+    public void processBatch(VectorizedRowBatch batch) throws HiveException {
+      if (!rollupGroupingSets) {
+        super.processBatch(batch);
+        return;
+      }
+
+      // Aggregate the batch once, for the finest grouping set.  The other grouping sets are
+      // derived from its entries by flush.
+      groupingSetsDummyVectorExpression.setLongValue(finestGroupingSet);
+      groupingSetsDummyVectorExpression.evaluate(batch);
+
+      doProcessBatch(batch, true, finestGroupingSetOverrideIsNulls);
+    }
+
     @Override
     public void doProcessBatch(VectorizedRowBatch batch, boolean isFirstGroupingSet,
         boolean[] currentGroupingSetsOverrideIsNulls) throws HiveException {
@@ -414,7 +466,19 @@ public void doProcessBatch(VectorizedRowBatch batch, boolean isFirstGroupingSet,
       // We keep flushing until the memory is under threshold
       int preFlushEntriesCount = numEntriesHashTable;
       while (shouldFlush(batch)) {
-        flush(false);
+        if (rollupGroupingSets) {
+
+          // The finest grouping set does not fit.  Emit everything we have without merging it
+          // in memory, and go back to processing the batches once per grouping set, so the
+          // (fewer) coarser groups stay in the hash table while the finer ones get flushed.
+          flushRollup(false);
+          mapKeysAggregationBuffers.clear();
+          numEntriesHashTable = 0;
+          rollupGroupingSets = false;
+          LOG.info("finest grouping set does not fit in the hash table, no longer rolling up");
+        } else {
+          flush(false);
+        }
 
         if(gcCanary.get() == null) {
           gcCanaryFlushes++;
@@ -557,20 +621,28 @@ private void flush(boolean all) throws HiveException {
             gcCanary.get() == null ? "dead" : "alive"));
       }
 
-      /* Iterate the global (keywrapper,aggregationbuffers) map and emit
-       a row for each key */
-      Iterator<Map.Entry<KeyWrapper, VectorAggregationBufferRow>> iter =
-          mapKeysAggregationBuffers.entrySet().iterator();
-      while(iter.hasNext()) {
-        Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair = iter.next();
+      if (rollupGroupingSets) {
+
+        // A partial flush stops the roll up first.
+        Preconditions.checkState(all);
+        flushRollup(true);
+      } else {
+
+        /* Iterate the global (keywrapper,aggregationbuffers) map and emit
+         a row for each key */
+        Iterator<Map.Entry<KeyWrapper, VectorAggregationBufferRow>> iter =
+            mapKeysAggregationBuffers.entrySet().iterator();
+        while(iter.hasNext()) {
+          Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair = iter.next();
 
-        writeSingleRow((VectorHashKeyWrapper) pair.getKey(), pair.getValue());
+          writeSingleRow((VectorHashKeyWrapper) pair.getKey(), pair.getValue());
 
-        if (!all) {
-          iter.remove();
-          --numEntriesHashTable;
-          if (++entriesFlushed >= entriesToFlush) {
-            break;
+          if (!all) {
+            iter.remove();
+            --numEntriesHashTable;
+            if (++entriesFlushed >= entriesToFlush) {
+              break;
+            }
           }
         }
       }
@@ -585,6 +657,67 @@ private void flush(boolean all) throws HiveException {
       }
     }
 
+    /**
+     * Emits the rows of every grouping set from the entries of the finest grouping set.
+     * When merging, each coarser grouping set is built in a transient hash table by NULLing the
+     * keys it does not have and merging the aggregation buffers of the finer keys that collapse
+     * together.  Otherwise, as when the memory ran out, each entry is emitted once per coarser
+     * grouping set and the reducer merges the rows of the finer keys.
+     */
+    private void flushRollup(boolean merge) throws HiveException {
+      for (int i = 0; i < groupingSets.length; i++) {
+        final long groupingSet = groupingSets[i];
+        if (groupingSet == finestGroupingSet) {
+          for (Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair :
+              mapKeysAggregationBuffers.entrySet()) {
+            writeSingleRow((VectorHashKeyWrapper) pair.getKey(), pair.getValue());
+          }
+          continue;
+        }
+
+        final boolean[] groupingSetOverrideIsNulls = allGroupingSetsOverrideIsNulls[i];
+        if (!merge || gcCanary.get() == null) {
+          for (Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair :
+              mapKeysAggregationBuffers.entrySet()) {
+            writeGroupingSetRow((VectorHashKeyWrapper) pair.getKey(), pair.getValue(),
+                groupingSet, groupingSetOverrideIsNulls);
+          }
+          continue;
+        }
+
+        Map<KeyWrapper, VectorAggregationBufferRow> rollupKeysAggregationBuffers =
+            new HashMap<KeyWrapper, VectorAggregationBufferRow>();
+        for (Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair :
+            mapKeysAggregationBuffers.entrySet()) {
+          VectorHashKeyWrapper rollupKey = (VectorHashKeyWrapper) pair.getKey().copyKey();
+          for (int keyIndex = 0; keyIndex < keyExpressions.length; keyIndex++) {
+            if (groupingSetOverrideIsNulls[keyIndex] && !rollupKey.isNull(keyIndex)) {
+              keyWrappersBatch.setNullValue(rollupKey, keyIndex);
+            }
+          }
+          keyWrappersBatch.setLongValue(rollupKey, groupingSetsPosition, groupingSet);
+          rollupKey.setHashKey();
+
+          VectorAggregationBufferRow rollupAggregationBuffer =
+              rollupKeysAggregationBuffers.get(rollupKey);
+          if (rollupAggregationBuffer == null) {
+            rollupAggregationBuffer = allocateAggregationBuffer();
+            rollupKeysAggregationBuffers.put(rollupKey, rollupAggregationBuffer);
+          }
+          for (int a = 0; a < aggregators.length; ++a) {
+            aggregators[a].mergeAggregationBuffer(
+                rollupAggregationBuffer.getAggregationBuffer(a),
+                pair.getValue().getAggregationBuffer(a));
+          }
+        }
+
+        for (Map.Entry<KeyWrapper, VectorAggregationBufferRow> pair :
+            rollupKeysAggregationBuffers.entrySet()) {
+          writeSingleRow((VectorHashKeyWrapper) pair.getKey(), pair.getValue());
+        }
+      }
+    }
+
     /**
      * Returns true if the memory threshold for the hash table was reached.
      */
@@ -789,12 +922,31 @@ public void close(boolean aborted) throws HiveException {
    *      we fill in the aggregation columns in outputBatch at outputBatch.size.  Our method
    *      writeGroupRow does this and finally increments outputBatch.size.
    *
+   * Alternatively, the reduce-shuffle can pack the rows of several groups into one batch and
+   * tell us where each group run ends with setNextVectorBatchGroupRuns.  Then the aggregators are
+   * evaluated once over the whole batch with one aggregation buffer set per run, and the group
+   * rows are written per run.  Only the last run may continue into the next batch.
+   *
    */
   private class ProcessingModeReduceMergePartial extends ProcessingModeBase {
 
     private boolean first;
     private boolean isLastGroupBatch;
 
+    /**
+     * The group runs of the next batch, when it holds several groups.
+     */
+    private boolean hasGroupRuns;
+    private int[] groupRunEnds;
+    private int groupRunCount;
+    private boolean isLastGroupRunComplete;
+
+    /**
+     * The aggregation buffer sets of the group runs, and of each row of a batch.
+     */
+    private VectorAggregationBufferRow[] groupRunAggregators;
+    private VectorAggregationBufferRow[] rowAggregators;
+
     /**
      * The group vector key helper.
      */
@@ -833,9 +985,22 @@ public void setNextVectorBatchGroupStatus(boolean isLastGroupBatch) throws HiveE
       this.isLastGroupBatch = isLastGroupBatch;
     }
 
+    public void setNextVectorBatchGroupRuns(int[] groupRunEnds, int groupRunCount,
+        boolean isLastGroupRunComplete) {
+      hasGroupRuns = true;
+      this.groupRunEnds = groupRunEnds;
+      this.groupRunCount = groupRunCount;
+      this.isLastGroupRunComplete = isLastGroupRunComplete;
+    }
+
     @Override
     public void doProcessBatch(VectorizedRowBatch batch, boolean isFirstGroupingSet,
         boolean[] currentGroupingSetsOverrideIsNulls) throws HiveException {
+      if (hasGroupRuns) {
+        hasGroupRuns = false;
+        processGroupRuns(batch);
+        return;
+      }
       if (first) {
         // Copy the group key to output batch now.  We'll copy in the aggregates at the end of the group.
         first = false;
@@ -859,6 +1024,73 @@ public void doProcessBatch(VectorizedRowBatch batch, boolean isFirstGroupingSet,
       }
     }
 
+    private void processGroupRuns(VectorizedRowBatch batch) throws HiveException {
+      Preconditions.checkState(!batch.selectedInUse);
+      Preconditions.checkState(groupRunCount > 0 && groupRunEnds[groupRunCount - 1] == batch.size);
+
+      // The first run continues the open group of the previous batch, if any.
+      final boolean isFirstRunContinued = !isLastGroupBatch;
+
+      if (groupRunAggregators == null) {
+        groupRunAggregators = new VectorAggregationBufferRow[batch.getMaxSize()];
+        rowAggregators = new VectorAggregationBufferRow[batch.getMaxSize()];
+      }
+      for (int r = 0; r < groupRunCount; r++) {
+        if (groupRunAggregators[r] == null) {
+          groupRunAggregators[r] = allocateAggregationBuffer();
+        }
+      }
+      if (isFirstRunContinued) {
+
+        // Swap in the open group aggregation buffer set as the first run's.
+        VectorAggregationBufferRow swap = groupRunAggregators[0];
+        groupRunAggregators[0] = groupAggregators;
+        groupAggregators = swap;
+      }
+
+      // Aggregate all the runs of this batch at once.
+      if (groupRunCount == 1) {
+        for (int i = 0; i < aggregators.length; ++i) {
+          aggregators[i].aggregateInput(groupRunAggregators[0].getAggregationBuffer(i), batch);
+        }
+      } else {
+        int start = 0;
+        for (int r = 0; r < groupRunCount; r++) {
+          final int end = groupRunEnds[r];
+          Arrays.fill(rowAggregators, start, end, groupRunAggregators[r]);
+          start = end;
+        }
+        for (int i = 0; i < aggregators.length; ++i) {
+          aggregators[i].aggregateInputSelection(rowAggregators, i, batch);
+        }
+      }
+
+      for (int i = 0; i < outputKeyLength; i++) {
+        keyExpressions[i].evaluate(batch);
+      }
+
+      int start = 0;
+      for (int r = 0; r < groupRunCount; r++) {
+        if (r > 0 || !isFirstRunContinued) {
+          groupKeyHelper.copyGroupKey(batch, start, outputBatch, buffer);
+        }
+        if (r < groupRunCount - 1 || isLastGroupRunComplete) {
+          writeGroupRow(groupRunAggregators[r], buffer);
+          groupRunAggregators[r].reset();
+        } else {
+
+          // The last run stays open; its key is already at the next output position.
+          VectorAggregationBufferRow swap = groupAggregators;
+          groupAggregators = groupRunAggregators[r];
+          groupRunAggregators[r] = swap;
+        }
+        start = groupRunEnds[r];
+      }
+
+      first = false;
+      isLastGroupBatch = isLastGroupRunComplete;
+    }
+
     @Override
     public void close(boolean aborted) throws HiveException {
       if (!aborted && !first && !isLastGroupBatch) {
@@ -943,27 +1175,20 @@ private void setupGroupingSets() {
 
     allGroupingSetsOverrideIsNulls = new boolean[groupingSets.length][];
 
+    // A set bit in the grouping set id means the key is not part of the grouping set.
+    finestGroupingSet = -1L;
+
     int pos = 0;
     for (long groupingSet: groupingSets) {
 
       // Create the mapping corresponding to the grouping set
-
-      // Assume all columns are null, except the dummy column is always non-null.
-      boolean[] groupingSetsOverrideIsNull = new boolean[keyExpressions.length];
-      Arrays.fill(groupingSetsOverrideIsNull, true);
-      groupingSetsOverrideIsNull[groupingSetsPosition] = false;
-
-      // Add keys of this grouping set.
-      FastBitSet bitset = GroupByOperator.groupingSet2BitSet(groupingSet, groupingSetsPosition);
-      for (int keyPos = bitset.nextClearBit(0); keyPos < groupingSetsPosition;
-        keyPos = bitset.nextClearBit(keyPos+1)) {
-        groupingSetsOverrideIsNull[keyPos] = false;
-      }
-
-      allGroupingSetsOverrideIsNulls[pos] =  groupingSetsOverrideIsNull;
+      allGroupingSetsOverrideIsNulls[pos] = createGroupingSetOverrideIsNulls(groupingSet);
+      finestGroupingSet &= groupingSet;
       pos++;
     }
 
+    finestGroupingSetOverrideIsNulls = createGroupingSetOverrideIsNulls(finestGroupingSet);
+
     // The last key column is the dummy grouping set id.
     //
     // Figure out which (scratch) column was used so we can overwrite the dummy id.
@@ -971,6 +1196,22 @@ private void setupGroupingSets() {
     groupingSetsDummyVectorExpression = (ConstantVectorExpression) keyExpressions[groupingSetsPosition];
   }
 
+  private boolean[] createGroupingSetOverrideIsNulls(long groupingSet) {
+
+    // Assume all columns are null, except the dummy column is always non-null.
+    boolean[] groupingSetsOverrideIsNull = new boolean[keyExpressions.length];
+    Arrays.fill(groupingSetsOverrideIsNull, true);
+    groupingSetsOverrideIsNull[groupingSetsPosition] = false;
+
+    // Add keys of this grouping set.
+    FastBitSet bitset = GroupByOperator.groupingSet2BitSet(groupingSet, groupingSetsPosition);
+    for (int keyPos = bitset.nextClearBit(0); keyPos < groupingSetsPosition;
+      keyPos = bitset.nextClearBit(keyPos+1)) {
+      groupingSetsOverrideIsNull[keyPos] = false;
+    }
+    return groupingSetsOverrideIsNull;
+  }
+
   @Override
   protected void initializeOp(Configuration hconf) throws HiveException {
     super.initializeOp(hconf);
@@ -1093,6 +1334,34 @@ public void setNextVectorBatchGroupStatus(boolean isLastGroupBatch) throws HiveE
     processingMode.setNextVectorBatchGroupStatus(isLastGroupBatch);
   }
 
+  /**
+   * Whether the next batches may hold the rows of several reduce key groups, with the group runs
+   * given by setNextVectorBatchGroupRuns.  This is the case for the sorted reduce group batch
+   * processing mode when the group keys are plain input columns.
+   */
+  public boolean canProcessGroupRuns() {
+    if (vectorDesc.getProcessingMode() != VectorGroupByDesc.ProcessingMode.MERGE_PARTIAL) {
+      return false;
+    }
+    for (int i = 0; i < outputKeyLength; i++) {
+      if (!(keyExpressions[i] instanceof IdentityExpression)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Give the group runs of the next batch: run r ends (exclusively) at groupRunEnds[r].  When
+   * isLastGroupRunComplete is false, the rows of the last group continue in the next batch.
+   */
+  public void setNextVectorBatchGroupRuns(int[] groupRunEnds, int groupRunCount,
+      boolean isLastGroupRunComplete) throws HiveException {
+    Preconditions.checkState(processingMode instanceof ProcessingModeReduceMergePartial);
+    ((ProcessingModeReduceMergePartial) processingMode).setNextVectorBatchGroupRuns(
+        groupRunEnds, groupRunCount, isLastGroupRunComplete);
+  }
+
   @Override
   public void startGroup() throws HiveException {
 
@@ -1146,6 +1415,39 @@ private void writeSingleRow(VectorHashKeyWrapper kw, VectorAggregationBufferRow
     }
   }
 
+  /**
+   * Emits a row for a grouping set from a key of a finer grouping set.  The keys the grouping
+   * set does not have are output as NULL, and the grouping set id as the given grouping set.
+   */
+  private void writeGroupingSetRow(VectorHashKeyWrapper kw, VectorAggregationBufferRow agg,
+      long groupingSet, boolean[] groupingSetOverrideIsNulls) throws HiveException {
+
+    int colNum = 0;
+    final int batchIndex = outputBatch.size;
+
+    for (int i = 0; i < outputKeyLength; ++i) {
+      ColumnVector colVector = outputBatch.cols[colNum];
+      if (i == groupingSetsPosition) {
+        colVector.isNull[batchIndex] = false;
+        ((LongColumnVector) colVector).vector[batchIndex] = groupingSet;
+      } else if (groupingSetOverrideIsNulls[i]) {
+        colVector.noNulls = false;
+        colVector.isNull[batchIndex] = true;
+      } else {
+        keyWrappersBatch.assignRowColumn(outputBatch, batchIndex, colNum, kw);
+      }
+      colNum++;
+    }
+    for (int i = 0; i < aggregators.length; ++i) {
+      aggregators[i].assignRowColumn(outputBatch, batchIndex, colNum++,
+          agg.getAggregationBuffer(i));
+    }
+    ++outputBatch.size;
+    if (outputBatch.size == VectorizedRowBatch.DEFAULT_SIZE) {
+      flushOutput();
+    }
+  }
+
   /**
    * Emits a (reduce) group row, made from the key (copied in at the beginning of the group) and
    * the row aggregation buffers values
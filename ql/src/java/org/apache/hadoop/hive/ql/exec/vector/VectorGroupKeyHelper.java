@@ -68,6 +68,15 @@ void init(VectorExpression[] keyExpressions) throws HiveException {
    */
   public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outputBatch,
           DataOutputBuffer buffer) throws HiveException {
+    copyGroupKey(inputBatch, 0, outputBatch, buffer);
+  }
+
+  /*
+   * Same as above, but copies the group key of the input row at inputBatchIndex.  Used when
+   * an input batch holds the rows of several groups.
+   */
+  public void copyGroupKey(VectorizedRowBatch inputBatch, int inputBatchIndex,
+          VectorizedRowBatch outputBatch, DataOutputBuffer buffer) throws HiveException {
 
     for(int i = 0; i< longIndices.length; ++i) {
       final int outputColumnNum = longIndices[i];
@@ -86,11 +95,12 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       //    When a vectorized row batch is reset, noNulls is set to true and the isNull array
       //    is zeroed.
       //
-      // We grab the key at index 0.  We don't care about selected or repeating since all keys
-      // in the input batch are suppose to be the same.
+      // We grab the key at inputBatchIndex, or at index 0 for a repeating key.  We don't care
+      // about selected since all keys of the group are suppose to be the same.
       //
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
-        outputColumnVector.vector[outputBatch.size] = inputColumnVector.vector[0];
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
+        outputColumnVector.vector[outputBatch.size] = inputColumnVector.vector[inputIndex];
       } else {
         outputColumnVector.noNulls = false;
         outputColumnVector.isNull[outputBatch.size] = true;
@@ -101,8 +111,9 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       final int inputColumnNum = inputColumnNums[outputColumnNum];
       DoubleColumnVector inputColumnVector = (DoubleColumnVector) inputBatch.cols[inputColumnNum];
       DoubleColumnVector outputColumnVector = (DoubleColumnVector) outputBatch.cols[outputColumnNum];
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
-        outputColumnVector.vector[outputBatch.size] = inputColumnVector.vector[0];
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
+        outputColumnVector.vector[outputBatch.size] = inputColumnVector.vector[inputIndex];
       } else {
         outputColumnVector.noNulls = false;
         outputColumnVector.isNull[outputBatch.size] = true;
@@ -113,12 +124,13 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       final int inputColumnNum = inputColumnNums[outputColumnNum];
       BytesColumnVector inputColumnVector = (BytesColumnVector) inputBatch.cols[inputColumnNum];
       BytesColumnVector outputColumnVector = (BytesColumnVector) outputBatch.cols[outputColumnNum];
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
         // Copy bytes into scratch buffer.
         int start = buffer.getLength();
-        int length = inputColumnVector.length[0];
+        int length = inputColumnVector.length[inputIndex];
         try {
-          buffer.write(inputColumnVector.vector[0], inputColumnVector.start[0], length);
+          buffer.write(inputColumnVector.vector[inputIndex], inputColumnVector.start[inputIndex], length);
         } catch (IOException ioe) {
           throw new IllegalStateException("bad write", ioe);
         }
@@ -133,11 +145,12 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       final int inputColumnNum = inputColumnNums[outputColumnNum];
       DecimalColumnVector inputColumnVector = (DecimalColumnVector) inputBatch.cols[inputColumnNum];
       DecimalColumnVector outputColumnVector = (DecimalColumnVector) outputBatch.cols[outputColumnNum];
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
 
         // Since we store references to HiveDecimalWritable instances, we must use the update method instead
         // of plain assignment.
-        outputColumnVector.set(outputBatch.size, inputColumnVector.vector[0]);
+        outputColumnVector.set(outputBatch.size, inputColumnVector.vector[inputIndex]);
       } else {
         outputColumnVector.noNulls = false;
         outputColumnVector.isNull[outputBatch.size] = true;
@@ -148,9 +161,10 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       final int inputColumnNum = inputColumnNums[outputColumnNum];
       TimestampColumnVector inputColumnVector = (TimestampColumnVector) inputBatch.cols[inputColumnNum];
       TimestampColumnVector outputColumnVector = (TimestampColumnVector) outputBatch.cols[outputColumnNum];
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
         outputColumnVector.isNull[outputBatch.size] = false;
-        outputColumnVector.setElement(outputBatch.size, 0, inputColumnVector);
+        outputColumnVector.setElement(outputBatch.size, inputIndex, inputColumnVector);
       } else {
         outputColumnVector.noNulls = false;
         outputColumnVector.isNull[outputBatch.size] = true;
@@ -161,9 +175,10 @@ public void copyGroupKey(VectorizedRowBatch inputBatch, VectorizedRowBatch outpu
       final int inputColumnNum = inputColumnNums[outputColumnNum];
       IntervalDayTimeColumnVector inputColumnVector = (IntervalDayTimeColumnVector) inputBatch.cols[inputColumnNum];
       IntervalDayTimeColumnVector outputColumnVector = (IntervalDayTimeColumnVector) outputBatch.cols[outputColumnNum];
-      if (inputColumnVector.noNulls || !inputColumnVector.isNull[0]) {
+      final int inputIndex = (inputColumnVector.isRepeating ? 0 : inputBatchIndex);
+      if (inputColumnVector.noNulls || !inputColumnVector.isNull[inputIndex]) {
         outputColumnVector.isNull[outputBatch.size] = false;
-        outputColumnVector.setElement(outputBatch.size, 0, inputColumnVector);
+        outputColumnVector.setElement(outputBatch.size, inputIndex, inputColumnVector);
       } else {
         outputColumnVector.noNulls = false;
         outputColumnVector.isNull[outputBatch.size] = true;
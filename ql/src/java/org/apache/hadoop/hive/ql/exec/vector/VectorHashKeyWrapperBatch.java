@@ -1003,6 +1003,39 @@ public void setLongValue(VectorHashKeyWrapper kw, int keyIndex, Long value)
     kw.assignLong(keyIndex, columnTypeSpecificIndex, value);
   }
 
+  /**
+   * Sets a key of the wrapper to NULL.  The caller must recompute the hash code.
+   */
+  public void setNullValue(VectorHashKeyWrapper kw, int keyIndex) throws HiveException {
+
+    ColumnVector.Type columnVectorType = columnVectorTypes[keyIndex];
+    int columnTypeSpecificIndex = columnTypeSpecificIndices[keyIndex];
+
+    switch (columnVectorType) {
+    case LONG:
+    case DECIMAL_64:
+      kw.assignNullLong(keyIndex, columnTypeSpecificIndex);
+      break;
+    case DOUBLE:
+      kw.assignNullDouble(keyIndex, columnTypeSpecificIndex);
+      break;
+    case BYTES:
+      kw.assignNullString(keyIndex, columnTypeSpecificIndex);
+      break;
+    case DECIMAL:
+      kw.assignNullDecimal(keyIndex, columnTypeSpecificIndex);
+      break;
+    case TIMESTAMP:
+      kw.assignNullTimestamp(keyIndex, columnTypeSpecificIndex);
+      break;
+    case INTERVAL_DAY_TIME:
+      kw.assignNullIntervalDayTime(keyIndex, columnTypeSpecificIndex);
+      break;
+    default:
+      throw new HiveException("Unexpected column vector type " + columnVectorType);
+    }
+  }
+
   public void assignRowColumn(VectorizedRowBatch batch, int batchIndex, int keyIndex,
       VectorHashKeyWrapper kw)
     throws HiveException {
@@ -19,20 +19,20 @@
 package org.apache.hadoop.hive.ql.exec.vector;
 
 import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.serde2.ByteStream.Output;
-import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 import org.apache.hadoop.hive.serde2.fast.SerializeWrite;
-import org.apache.hadoop.hive.serde2.objectinspector.StructField;
-import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.UnionObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
@@ -50,6 +50,9 @@
  * This class uses an provided SerializeWrite object to directly serialize by writing
  * field-by-field into a serialization format from the primitive values of the VectorizedRowBatch.
  *
+ * Complex values are written without creating their objects.  The SerializeWrite begin calls
+ * only get a view of the element count and NULL flags, which is all the formats need.
+ *
  * Note that when serializing a row, the logical mapping using selected in use has already
  * been performed.
  */
@@ -69,9 +72,13 @@ private static class Field {
 
     int count;
 
-    ObjectInspector objectInspector;
     int outputColumnNum;
 
+    // The reusable element count and NULL flags views given to the complex begin calls.
+    ListNullsView listNullsView;
+    MapNullsView mapNullsView;
+    StructNullsView structNullsView;
+
     Field() {
       children = null;
       isPrimitive = false;
@@ -79,17 +86,13 @@ private static class Field {
       primitiveCategory = null;
       typeInfo = null;
       count = 0;
-      objectInspector = null;
       outputColumnNum = -1;
     }
   }
 
-  private VectorExtractRow vectorExtractRow;
-
   public VectorSerializeRow(T serializeWrite) {
     this();
     this.serializeWrite = serializeWrite;
-    vectorExtractRow = new VectorExtractRow();
   }
 
   // Not public since we must have the serialize write object.
@@ -114,22 +117,23 @@ private Field createField(TypeInfo typeInfo) {
       field.primitiveCategory = ((PrimitiveTypeInfo) typeInfo).getPrimitiveCategory();
     } else {
       field.isPrimitive = false;
-      field.objectInspector =
-          TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(typeInfo);
       switch (category) {
       case LIST:
         field.children = new Field[1];
         field.children[0] = createField(((ListTypeInfo) typeInfo).getListElementTypeInfo());
+        field.listNullsView = new ListNullsView();
         break;
       case MAP:
         field.children = new Field[2];
         field.children[0] = createField(((MapTypeInfo) typeInfo).getMapKeyTypeInfo());
         field.children[1] = createField(((MapTypeInfo) typeInfo).getMapValueTypeInfo());
+        field.mapNullsView = new MapNullsView();
         break;
       case STRUCT:
         StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
         List<TypeInfo> fieldTypeInfos = structTypeInfo.getAllStructFieldTypeInfos();
         field.children = createFields(fieldTypeInfos.toArray(new TypeInfo[fieldTypeInfos.size()]));
+        field.structNullsView = new StructNullsView();
         break;
       case UNION:
         UnionTypeInfo unionTypeInfo = (UnionTypeInfo) typeInfo;
@@ -156,15 +160,9 @@ public void init(List<String> typeNames, int[] columnMap) throws HiveException {
     root.category = Category.STRUCT;
     root.children = createFields(typeInfos);
     root.count = count;
-    root.objectInspector = null;
-    int[] outputColumnNums = new int[count];
     for (int i = 0; i < count; i++) {
-      final int outputColumnNum = columnMap[i];
-      outputColumnNums[i] = outputColumnNum;
-      root.children[i].outputColumnNum = outputColumnNum;
+      root.children[i].outputColumnNum = columnMap[i];
     }
-
-    vectorExtractRow.init(typeInfos, outputColumnNums);
   }
 
   public void init(List<String> typeNames) throws HiveException {
@@ -179,12 +177,9 @@ public void init(List<String> typeNames) throws HiveException {
     root.category = Category.STRUCT;
     root.children = createFields(typeInfos);
     root.count = count;
-    root.objectInspector = null;
     for (int i = 0; i < count; i++) {
       root.children[i].outputColumnNum = i;
     }
-
-    vectorExtractRow.init(typeInfos);
   }
 
   public void init(TypeInfo[] typeInfos)
@@ -197,12 +192,9 @@ public void init(TypeInfo[] typeInfos)
     root.category = Category.STRUCT;
     root.children = createFields(typeInfos);
     root.count = count;
-    root.objectInspector = null;
     for (int i = 0; i < count; i++) {
       root.children[i].outputColumnNum = i;
     }
-
-    vectorExtractRow.init(typeInfos);
   }
 
   public void init(TypeInfo[] typeInfos, int[] columnMap)
@@ -215,15 +207,9 @@ public void init(TypeInfo[] typeInfos, int[] columnMap)
     root.category = Category.STRUCT;
     root.children = createFields(typeInfos);
     root.count = count;
-    root.objectInspector = null;
-    int[] outputColumnNums = new int[count];
     for (int i = 0; i < count; i++) {
-      final int outputColumnNum = columnMap[i];
-      outputColumnNums[i] = outputColumnNum;
-      root.children[i].outputColumnNum = outputColumnNum;
+      root.children[i].outputColumnNum = columnMap[i];
     }
-
-    vectorExtractRow.init(typeInfos, outputColumnNums);
   }
 
   public int getCount() {
@@ -312,9 +298,6 @@ private void serializeWrite(
   private void serializeUnionWrite(
       UnionColumnVector colVector, Field field, int adjustedBatchIndex) throws IOException {
 
-    UnionTypeInfo typeInfo = (UnionTypeInfo) field.typeInfo;
-    UnionObjectInspector objectInspector = (UnionObjectInspector) field.objectInspector;
-
     final byte tag = (byte) colVector.tags[adjustedBatchIndex];
     final ColumnVector fieldColumnVector = colVector.fields[tag];
     final Field childField = field.children[tag];
@@ -330,18 +313,14 @@ private void serializeUnionWrite(
   private void serializeStructWrite(
       StructColumnVector colVector, Field field, int adjustedBatchIndex) throws IOException {
 
-    StructTypeInfo typeInfo = (StructTypeInfo) field.typeInfo;
-    StructObjectInspector objectInspector = (StructObjectInspector) field.objectInspector;
-
     final ColumnVector[] fieldColumnVectors = colVector.fields;
     final Field[] children = field.children;
-    final List<? extends StructField> structFields = objectInspector.getAllStructFieldRefs();
     final int size = field.count;
 
-    final List list = (List) vectorExtractRow.extractRowColumn(
-        colVector, typeInfo, objectInspector, adjustedBatchIndex);
+    final StructNullsView structNullsView = field.structNullsView;
+    structNullsView.set(fieldColumnVectors, adjustedBatchIndex);
 
-    serializeWrite.beginStruct(list);
+    serializeWrite.beginStruct(structNullsView);
     for (int i = 0; i < size; i++) {
       if (i > 0) {
         serializeWrite.separateStruct();
@@ -357,9 +336,6 @@ private void serializeStructWrite(
   private void serializeMapWrite(
       MapColumnVector colVector, Field field, int adjustedBatchIndex) throws IOException {
 
-    MapTypeInfo typeInfo = (MapTypeInfo) field.typeInfo;
-    MapObjectInspector objectInspector = (MapObjectInspector) field.objectInspector;
-
     final ColumnVector keyColumnVector = colVector.keys;
     final ColumnVector valueColumnVector = colVector.values;
     final Field keyField = field.children[0];
@@ -367,10 +343,10 @@ private void serializeMapWrite(
     final int offset = (int) colVector.offsets[adjustedBatchIndex];
     final int size = (int) colVector.lengths[adjustedBatchIndex];
 
-    final Map map = (Map) vectorExtractRow.extractRowColumn(
-        colVector, typeInfo, objectInspector, adjustedBatchIndex);
+    final MapNullsView mapNullsView = field.mapNullsView;
+    mapNullsView.set(keyColumnVector, valueColumnVector, offset, size);
 
-    serializeWrite.beginMap(map);
+    serializeWrite.beginMap(mapNullsView);
     for (int i = 0; i < size; i++) {
       if (i > 0) {
         serializeWrite.separateKeyValuePair();
@@ -385,19 +361,15 @@ private void serializeMapWrite(
   private void serializeListWrite(
       ListColumnVector colVector, Field field, int adjustedBatchIndex) throws IOException {
 
-    final ListTypeInfo typeInfo = (ListTypeInfo) field.typeInfo;
-    final ListObjectInspector objectInspector = (ListObjectInspector) field.objectInspector;
-
     final ColumnVector childColumnVector = colVector.child;
     final Field elementField = field.children[0];
     final int offset = (int) colVector.offsets[adjustedBatchIndex];
     final int size = (int) colVector.lengths[adjustedBatchIndex];
 
-    final ObjectInspector elementObjectInspector = objectInspector.getListElementObjectInspector();
-    final List list = (List) vectorExtractRow.extractRowColumn(
-        colVector, typeInfo, objectInspector, adjustedBatchIndex);
+    final ListNullsView listNullsView = field.listNullsView;
+    listNullsView.set(childColumnVector, offset, size);
 
-    serializeWrite.beginList(list);
+    serializeWrite.beginList(listNullsView);
     for (int i = 0; i < size; i++) {
       if (i > 0) {
         serializeWrite.separateList();
@@ -490,4 +462,150 @@ public boolean getHasAnyNulls() {
   public boolean getIsAllNulls() {
     return isAllNulls;
   }
+
+  // Stands in for every non-NULL element value in the views.
+  private static final Object NOT_NULL = Boolean.TRUE;
+
+  private static boolean isNull(ColumnVector colVector, int index) {
+    return !colVector.noNulls && colVector.isNull[colVector.isRepeating ? 0 : index];
+  }
+
+  /*
+   * A view of the element count and NULL flags of a LIST value.  The element values are
+   * placeholders.
+   */
+  private static final class ListNullsView extends AbstractList<Object> {
+
+    private ColumnVector childColVector;
+    private int offset;
+    private int size;
+
+    void set(ColumnVector childColVector, int offset, int size) {
+      this.childColVector = childColVector;
+      this.offset = offset;
+      this.size = size;
+    }
+
+    @Override
+    public Object get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index " + index + " size " + size);
+      }
+      return (isNull(childColVector, offset + index) ? null : NOT_NULL);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /*
+   * A view of the field count and NULL flags of a STRUCT value.  The field values are
+   * placeholders.
+   */
+  private static final class StructNullsView extends AbstractList<Object> {
+
+    private ColumnVector[] fieldColVectors;
+    private int batchIndex;
+
+    void set(ColumnVector[] fieldColVectors, int batchIndex) {
+      this.fieldColVectors = fieldColVectors;
+      this.batchIndex = batchIndex;
+    }
+
+    @Override
+    public Object get(int index) {
+      return (isNull(fieldColVectors[index], batchIndex) ? null : NOT_NULL);
+    }
+
+    @Override
+    public int size() {
+      return fieldColVectors.length;
+    }
+  }
+
+  /*
+   * A view of the entry count and key/value NULL flags of a MAP value.  The key and value
+   * objects are placeholders, so the entries are only good for a single pass in order.
+   */
+  private static final class MapNullsView extends AbstractMap<Object, Object> {
+
+    private ColumnVector keyColVector;
+    private ColumnVector valueColVector;
+    private int offset;
+    private int size;
+
+    private final EntrySet entrySet = new EntrySet();
+
+    void set(ColumnVector keyColVector, ColumnVector valueColVector, int offset, int size) {
+      this.keyColVector = keyColVector;
+      this.valueColVector = valueColVector;
+      this.offset = offset;
+      this.size = size;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+      return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Iterator<Map.Entry<Object, Object>> iterator() {
+        entryIterator.next = 0;
+        return entryIterator;
+      }
+    }
+
+    private final EntryIterator entryIterator = new EntryIterator();
+
+    // The iterator is also the entry it returns, so nothing is allocated per entry.
+    private final class EntryIterator
+        implements Iterator<Map.Entry<Object, Object>>, Map.Entry<Object, Object> {
+
+      private int next;
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public Map.Entry<Object, Object> next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        index = offset + next++;
+        return this;
+      }
+
+      @Override
+      public Object getKey() {
+        return (isNull(keyColVector, index) ? null : NOT_NULL);
+      }
+
+      @Override
+      public Object getValue() {
+        return (isNull(valueColVector, index) ? null : NOT_NULL);
+      }
+
+      @Override
+      public Object setValue(Object value) {
+        throw new UnsupportedOperationException();
+      }
+    }
+  }
 }
\ No newline at end of file
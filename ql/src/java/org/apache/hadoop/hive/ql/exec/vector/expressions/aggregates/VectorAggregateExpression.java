@@ -135,6 +135,23 @@ public boolean hasVariableSize() {
     return false;
   }
 
+  /**
+   * Whether two aggregation buffers of this aggregation that saw disjoint input can be combined
+   * with {@link #mergeAggregationBuffer}.  This lets the hash GROUP BY roll finer groups up into
+   * coarser ones without going back to the input.
+   */
+  public boolean canMergeAggregationBuffers() {
+    return false;
+  }
+
+  /**
+   * Merge the state of the source aggregation buffer into the target aggregation buffer.
+   */
+  public void mergeAggregationBuffer(AggregationBuffer target, AggregationBuffer source)
+      throws HiveException {
+    throw new UnsupportedOperationException();
+  }
+
   public abstract boolean matches(String name, ColumnVector.Type inputColVectorType,
       ColumnVector.Type outputColVectorType, Mode mode);
 
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates;
+
+import org.apache.hadoop.hive.common.ndv.hll.HyperLogLog;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationBufferRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationDesc;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFApproxCountDistinct;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+/**
+ * Vectorized approx_count_distinct over the original values (PARTIAL1 and COMPLETE modes).
+ *
+ * The values are added to a HyperLogLog sketch per aggregation buffer.  PARTIAL1 outputs the
+ * serialized sketch and COMPLETE the estimate.
+ */
+public class VectorUDAFApproxCountDistinct extends VectorAggregateExpression {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * class for storing the current aggregate value.
+   */
+  static final class Aggregation implements AggregationBuffer {
+
+    private static final long serialVersionUID = 1L;
+
+    transient HyperLogLog hll;
+
+    Aggregation() {
+      reset();
+    }
+
+    @Override
+    public int getVariableSize() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void reset() {
+      // HyperLogLog.reset() does not clear the registers.
+      hll = GenericUDAFApproxCountDistinct.createHyperLogLog();
+    }
+  }
+
+  private transient byte[] scratchBytes;
+
+  // This constructor is used to momentarily create the object so match can be called.
+  public VectorUDAFApproxCountDistinct() {
+    super();
+  }
+
+  public VectorUDAFApproxCountDistinct(VectorAggregationDesc vecAggrDesc) {
+    super(vecAggrDesc);
+    init();
+  }
+
+  private void init() {
+    scratchBytes = new byte[Long.BYTES];
+  }
+
+  @Override
+  public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+    return new Aggregation();
+  }
+
+  @Override
+  public void aggregateInput(AggregationBuffer agg, VectorizedRowBatch batch)
+      throws HiveException {
+
+    inputExpression.evaluate(batch);
+
+    ColumnVector inputColumn = batch.cols[inputExpression.getOutputColumnNum()];
+
+    final int batchSize = batch.size;
+    if (batchSize == 0) {
+      return;
+    }
+
+    Aggregation myagg = (Aggregation) agg;
+
+    if (inputColumn.isRepeating) {
+      if (inputColumn.noNulls || !inputColumn.isNull[0]) {
+        addValue(myagg, inputColumn, 0);
+      }
+      return;
+    }
+
+    final boolean selectedInUse = batch.selectedInUse;
+    final int[] selected = batch.selected;
+    final boolean noNulls = inputColumn.noNulls;
+    final boolean[] isNull = inputColumn.isNull;
+    for (int logical = 0; logical < batchSize; logical++) {
+      final int batchIndex = (selectedInUse ? selected[logical] : logical);
+      if (noNulls || !isNull[batchIndex]) {
+        addValue(myagg, inputColumn, batchIndex);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateInputSelection(
+      VectorAggregationBufferRow[] aggregationBufferSets, int aggregateIndex,
+      VectorizedRowBatch batch) throws HiveException {
+
+    final int batchSize = batch.size;
+    if (batchSize == 0) {
+      return;
+    }
+
+    inputExpression.evaluate(batch);
+
+    ColumnVector inputColumn = batch.cols[inputExpression.getOutputColumnNum()];
+
+    final boolean isRepeating = inputColumn.isRepeating;
+    if (isRepeating && !inputColumn.noNulls && inputColumn.isNull[0]) {
+      return;
+    }
+
+    final boolean selectedInUse = batch.selectedInUse;
+    final int[] selected = batch.selected;
+    final boolean noNulls = inputColumn.noNulls || isRepeating;
+    final boolean[] isNull = inputColumn.isNull;
+    for (int logical = 0; logical < batchSize; logical++) {
+      final int batchIndex =
+          (isRepeating ? 0 : (selectedInUse ? selected[logical] : logical));
+      if (noNulls || !isNull[batchIndex]) {
+
+        // The aggregation buffers are indexed by the logical row.
+        Aggregation myagg =
+            (Aggregation) aggregationBufferSets[logical].getAggregationBuffer(aggregateIndex);
+        addValue(myagg, inputColumn, batchIndex);
+      }
+    }
+  }
+
+  private void addValue(Aggregation myagg, ColumnVector inputColumn, int batchIndex) {
+    final long hash;
+    if (inputColumn instanceof LongColumnVector) {
+      hash = GenericUDAFApproxCountDistinct.hashLong(
+          ((LongColumnVector) inputColumn).vector[batchIndex], scratchBytes);
+    } else if (inputColumn instanceof DoubleColumnVector) {
+      hash = GenericUDAFApproxCountDistinct.hashDouble(
+          ((DoubleColumnVector) inputColumn).vector[batchIndex], scratchBytes);
+    } else {
+      BytesColumnVector bytesColVector = (BytesColumnVector) inputColumn;
+      hash = GenericUDAFApproxCountDistinct.hashBytes(
+          bytesColVector.vector[batchIndex], bytesColVector.start[batchIndex],
+          bytesColVector.length[batchIndex]);
+    }
+    myagg.hll.add(hash);
+  }
+
+  @Override
+  public void reset(AggregationBuffer agg) throws HiveException {
+    agg.reset();
+  }
+
+  @Override
+  public boolean canMergeAggregationBuffers() {
+    return true;
+  }
+
+  @Override
+  public void mergeAggregationBuffer(AggregationBuffer target, AggregationBuffer source)
+      throws HiveException {
+    ((Aggregation) target).hll.merge(((Aggregation) source).hll);
+  }
+
+  @Override
+  public long getAggregationBufferFixedSize() {
+    // Sized for the dense registers a sketch switches to as it fills up.
+    JavaDataModel model = JavaDataModel.get();
+    return JavaDataModel.alignUp(
+        model.object() + model.ref() + model.object() +
+        model.lengthForByteArrayOfSize(
+            GenericUDAFApproxCountDistinct.createHyperLogLog().lengthFor(model)),
+        model.memoryAlign());
+  }
+
+  @Override
+  public boolean matches(String name, ColumnVector.Type inputColVectorType,
+      ColumnVector.Type outputColVectorType, Mode mode) {
+
+    /*
+     * LONG, DOUBLE or BYTES input.
+     *
+     * PARTIAL1 outputs the BYTES sketch; COMPLETE outputs the LONG estimate.
+     */
+    return
+        name.equals("approx_count_distinct") &&
+        (inputColVectorType == ColumnVector.Type.LONG ||
+         inputColVectorType == ColumnVector.Type.DOUBLE ||
+         inputColVectorType == ColumnVector.Type.BYTES) &&
+        ((mode == Mode.PARTIAL1 && outputColVectorType == ColumnVector.Type.BYTES) ||
+         (mode == Mode.COMPLETE && outputColVectorType == ColumnVector.Type.LONG));
+  }
+
+  @Override
+  public void assignRowColumn(VectorizedRowBatch batch, int batchIndex, int columnNum,
+      AggregationBuffer agg) throws HiveException {
+    assignSketch(batch, batchIndex, columnNum, ((Aggregation) agg).hll, mode);
+  }
+
+  static void assignSketch(VectorizedRowBatch batch, int batchIndex, int columnNum,
+      HyperLogLog hll, Mode mode) {
+    if (mode == Mode.PARTIAL1 || mode == Mode.PARTIAL2) {
+      BytesColumnVector outputColVector = (BytesColumnVector) batch.cols[columnNum];
+      outputColVector.isNull[batchIndex] = false;
+      outputColVector.setVal(batchIndex, hll.serialize());
+    } else {
+      LongColumnVector outputColVector = (LongColumnVector) batch.cols[columnNum];
+      outputColVector.isNull[batchIndex] = false;
+      outputColVector.vector[batchIndex] = hll.count();
+    }
+  }
+}
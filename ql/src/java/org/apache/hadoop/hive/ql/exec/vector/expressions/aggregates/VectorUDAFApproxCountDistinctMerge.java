@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationBufferRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationDesc;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates.VectorUDAFApproxCountDistinct.Aggregation;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFApproxCountDistinct;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+/**
+ * Vectorized approx_count_distinct merge of serialized HyperLogLog sketches (PARTIAL2 and FINAL
+ * modes).
+ *
+ * PARTIAL2 outputs the merged serialized sketch and FINAL the estimate.
+ */
+public class VectorUDAFApproxCountDistinctMerge extends VectorAggregateExpression {
+
+  private static final long serialVersionUID = 1L;
+
+  // This constructor is used to momentarily create the object so match can be called.
+  public VectorUDAFApproxCountDistinctMerge() {
+    super();
+  }
+
+  public VectorUDAFApproxCountDistinctMerge(VectorAggregationDesc vecAggrDesc) {
+    super(vecAggrDesc);
+  }
+
+  @Override
+  public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+    return new Aggregation();
+  }
+
+  @Override
+  public void aggregateInput(AggregationBuffer agg, VectorizedRowBatch batch)
+      throws HiveException {
+
+    inputExpression.evaluate(batch);
+
+    BytesColumnVector inputColumn =
+        (BytesColumnVector) batch.cols[inputExpression.getOutputColumnNum()];
+
+    final int batchSize = batch.size;
+    if (batchSize == 0) {
+      return;
+    }
+
+    Aggregation myagg = (Aggregation) agg;
+
+    if (inputColumn.isRepeating) {
+      if (inputColumn.noNulls || !inputColumn.isNull[0]) {
+
+        // Merging the same sketch again does not change the result.
+        mergeValue(myagg, inputColumn, 0);
+      }
+      return;
+    }
+
+    final boolean selectedInUse = batch.selectedInUse;
+    final int[] selected = batch.selected;
+    final boolean noNulls = inputColumn.noNulls;
+    final boolean[] isNull = inputColumn.isNull;
+    for (int logical = 0; logical < batchSize; logical++) {
+      final int batchIndex = (selectedInUse ? selected[logical] : logical);
+      if (noNulls || !isNull[batchIndex]) {
+        mergeValue(myagg, inputColumn, batchIndex);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateInputSelection(
+      VectorAggregationBufferRow[] aggregationBufferSets, int aggregateIndex,
+      VectorizedRowBatch batch) throws HiveException {
+
+    final int batchSize = batch.size;
+    if (batchSize == 0) {
+      return;
+    }
+
+    inputExpression.evaluate(batch);
+
+    BytesColumnVector inputColumn =
+        (BytesColumnVector) batch.cols[inputExpression.getOutputColumnNum()];
+
+    final boolean isRepeating = inputColumn.isRepeating;
+    if (isRepeating && !inputColumn.noNulls && inputColumn.isNull[0]) {
+      return;
+    }
+
+    final boolean selectedInUse = batch.selectedInUse;
+    final int[] selected = batch.selected;
+    final boolean noNulls = inputColumn.noNulls || isRepeating;
+    final boolean[] isNull = inputColumn.isNull;
+    for (int logical = 0; logical < batchSize; logical++) {
+      final int batchIndex =
+          (isRepeating ? 0 : (selectedInUse ? selected[logical] : logical));
+      if (noNulls || !isNull[batchIndex]) {
+
+        // The aggregation buffers are indexed by the logical row.
+        Aggregation myagg =
+            (Aggregation) aggregationBufferSets[logical].getAggregationBuffer(aggregateIndex);
+        mergeValue(myagg, inputColumn, batchIndex);
+      }
+    }
+  }
+
+  private void mergeValue(Aggregation myagg, BytesColumnVector inputColumn, int batchIndex)
+      throws HiveException {
+    GenericUDAFApproxCountDistinct.mergeSerialized(
+        myagg.hll, inputColumn.vector[batchIndex], inputColumn.start[batchIndex],
+        inputColumn.length[batchIndex]);
+  }
+
+  @Override
+  public void reset(AggregationBuffer agg) throws HiveException {
+    agg.reset();
+  }
+
+  @Override
+  public boolean canMergeAggregationBuffers() {
+    return true;
+  }
+
+  @Override
+  public void mergeAggregationBuffer(AggregationBuffer target, AggregationBuffer source)
+      throws HiveException {
+    ((Aggregation) target).hll.merge(((Aggregation) source).hll);
+  }
+
+  @Override
+  public long getAggregationBufferFixedSize() {
+    // Sized for the dense registers a sketch switches to as it fills up.
+    JavaDataModel model = JavaDataModel.get();
+    return JavaDataModel.alignUp(
+        model.object() + model.ref() + model.object() +
+        model.lengthForByteArrayOfSize(
+            GenericUDAFApproxCountDistinct.createHyperLogLog().lengthFor(model)),
+        model.memoryAlign());
+  }
+
+  @Override
+  public boolean matches(String name, ColumnVector.Type inputColVectorType,
+      ColumnVector.Type outputColVectorType, Mode mode) {
+
+    /*
+     * BYTES sketch input.
+     *
+     * PARTIAL2 outputs the BYTES sketch; FINAL outputs the LONG estimate.
+     */
+    return
+        name.equals("approx_count_distinct") &&
+        inputColVectorType == ColumnVector.Type.BYTES &&
+        ((mode == Mode.PARTIAL2 && outputColVectorType == ColumnVector.Type.BYTES) ||
+         (mode == Mode.FINAL && outputColVectorType == ColumnVector.Type.LONG));
+  }
+
+  @Override
+  public void assignRowColumn(VectorizedRowBatch batch, int batchIndex, int columnNum,
+      AggregationBuffer agg) throws HiveException {
+    VectorUDAFApproxCountDistinct.assignSketch(
+        batch, batchIndex, columnNum, ((Aggregation) agg).hll, mode);
+  }
+}
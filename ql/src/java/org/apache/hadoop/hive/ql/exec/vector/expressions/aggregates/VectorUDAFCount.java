@@ -238,6 +238,17 @@ public void reset(AggregationBuffer agg) throws HiveException {
       myAgg.reset();
     }
 
+    @Override
+    public boolean canMergeAggregationBuffers() {
+      return true;
+    }
+
+    @Override
+    public void mergeAggregationBuffer(AggregationBuffer target, AggregationBuffer source)
+        throws HiveException {
+      ((Aggregation) target).count += ((Aggregation) source).count;
+    }
+
     @Override
     public long getAggregationBufferFixedSize() {
       JavaDataModel model = JavaDataModel.get();
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.ptf;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector.Type;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
+import org.apache.hadoop.hive.ql.plan.VectorPTFDesc;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * This class evaluates count(column) or count(*) for a sliding
+ * ROWS BETWEEN n PRECEDING AND CURRENT ROW frame of a PTF partition.
+ *
+ * The NULL flags of the frame rows are kept in a ring so the count can be maintained
+ * incrementally.  The count is streamed to the output column for each row.
+ */
+public class VectorPTFEvaluatorCountSliding extends VectorPTFEvaluatorBase {
+
+  private static final long serialVersionUID = 1L;
+  private static final String CLASS_NAME = VectorPTFEvaluatorCountSliding.class.getName();
+  private static final Log LOG = LogFactory.getLog(CLASS_NAME);
+
+  private final int windowSize;
+
+  // The ring of frame NULL flags, indexed by partition row number modulo the window size.
+  private final boolean[] isNull;
+
+  // Partition row number of the next row.
+  private long rowNum;
+
+  private long count;
+
+  public VectorPTFEvaluatorCountSliding(WindowFrameDef windowFrameDef,
+      VectorExpression inputVecExpr, int outputColumnNum) {
+    super(windowFrameDef, inputVecExpr, outputColumnNum);
+    windowSize = VectorPTFDesc.getSlidingWindowSize(windowFrameDef);
+    isNull = new boolean[windowSize];
+    resetEvaluator();
+  }
+
+  public void evaluateGroupBatch(VectorizedRowBatch batch, boolean isLastGroupBatch) {
+    evaluateInputExpr(batch);
+
+    // We do not filter when PTF is in reducer.
+    Preconditions.checkState(!batch.selectedInUse);
+
+    final int size = batch.size;
+
+    // For count(*) every row counts.
+    ColumnVector colVector = (inputColumnNum == -1 ? null : batch.cols[inputColumnNum]);
+    LongColumnVector outputColVector = (LongColumnVector) batch.cols[outputColumnNum];
+    outputColVector.isRepeating = false;
+    outputColVector.noNulls = true;
+    long[] outputVector = outputColVector.vector;
+    for (int i = 0; i < size; i++) {
+      if (rowNum >= windowSize && !isNull[(int) ((rowNum - windowSize) % windowSize)]) {
+        count--;
+      }
+      final boolean valueIsNull = colVector != null && !colVector.noNulls &&
+          colVector.isNull[colVector.isRepeating ? 0 : i];
+      isNull[(int) (rowNum % windowSize)] = valueIsNull;
+      if (!valueIsNull) {
+        count++;
+      }
+      rowNum++;
+      outputColVector.isNull[i] = false;
+      outputVector[i] = count;
+    }
+  }
+
+  @Override
+  public boolean streamsResult() {
+    return true;
+  }
+
+  @Override
+  public Type getResultColumnVectorType() {
+    return Type.LONG;
+  }
+
+  @Override
+  public void resetEvaluator() {
+    rowNum = 0;
+    count = 0;
+  }
+}
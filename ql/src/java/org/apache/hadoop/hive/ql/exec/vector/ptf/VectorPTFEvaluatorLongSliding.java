@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.ptf;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector.Type;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
+import org.apache.hadoop.hive.ql.plan.VectorPTFDesc;
+import org.apache.hadoop.hive.ql.plan.VectorPTFDesc.SupportedFunctionType;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * This class evaluates long sum(), avg(), min() or max() for a sliding
+ * ROWS BETWEEN n PRECEDING AND CURRENT ROW frame of a PTF partition.
+ *
+ * The values of the frame are kept in a ring.  Sum and avg are maintained incrementally by adding
+ * the value entering the frame and subtracting the one leaving it; min and max keep a monotonic
+ * deque of the rows that can still become the frame result.  The result is streamed to the output
+ * column for each row.
+ */
+public class VectorPTFEvaluatorLongSliding extends VectorPTFEvaluatorBase {
+
+  private static final long serialVersionUID = 1L;
+  private static final String CLASS_NAME = VectorPTFEvaluatorLongSliding.class.getName();
+  private static final Log LOG = LogFactory.getLog(CLASS_NAME);
+
+  private final SupportedFunctionType functionType;
+  private final int windowSize;
+
+  // The ring of frame values, indexed by partition row number modulo the window size.
+  private final long[] values;
+  private final boolean[] isNull;
+
+  // Partition row number of the next row.
+  private long rowNum;
+
+  private long sum;
+  private int nonNullCount;
+
+  // Monotonic deque of partition row numbers, used by min and max.
+  private final long[] deque;
+  private int dequeHead;
+  private int dequeSize;
+
+  public VectorPTFEvaluatorLongSliding(WindowFrameDef windowFrameDef,
+      SupportedFunctionType functionType, VectorExpression inputVecExpr, int outputColumnNum) {
+    super(windowFrameDef, inputVecExpr, outputColumnNum);
+    this.functionType = functionType;
+    windowSize = VectorPTFDesc.getSlidingWindowSize(windowFrameDef);
+    values = new long[windowSize];
+    isNull = new boolean[windowSize];
+    deque = new long[windowSize];
+    resetEvaluator();
+  }
+
+  public void evaluateGroupBatch(VectorizedRowBatch batch, boolean isLastGroupBatch) {
+    evaluateInputExpr(batch);
+
+    // We do not filter when PTF is in reducer.
+    Preconditions.checkState(!batch.selectedInUse);
+
+    final int size = batch.size;
+    LongColumnVector longColVector = (LongColumnVector) batch.cols[inputColumnNum];
+    ColumnVector outputColVector = batch.cols[outputColumnNum];
+    outputColVector.isRepeating = false;
+    outputColVector.noNulls = true;
+    for (int i = 0; i < size; i++) {
+      final int index = longColVector.isRepeating ? 0 : i;
+      final boolean valueIsNull = !longColVector.noNulls && longColVector.isNull[index];
+      addRow(longColVector.vector[index], valueIsNull);
+      setResult(outputColVector, i);
+    }
+  }
+
+  private void addRow(long value, boolean valueIsNull) {
+    if (rowNum >= windowSize) {
+
+      // Remove the row leaving the frame.
+      final long oldRowNum = rowNum - windowSize;
+      final int oldPos = (int) (oldRowNum % windowSize);
+      if (!isNull[oldPos]) {
+        sum -= values[oldPos];
+        nonNullCount--;
+      }
+      if (dequeSize > 0 && deque[dequeHead] == oldRowNum) {
+        dequeHead = (dequeHead + 1) % windowSize;
+        dequeSize--;
+      }
+    }
+
+    final int pos = (int) (rowNum % windowSize);
+    values[pos] = value;
+    isNull[pos] = valueIsNull;
+    if (!valueIsNull) {
+      sum += value;
+      nonNullCount++;
+      if (functionType == SupportedFunctionType.MIN || functionType == SupportedFunctionType.MAX) {
+
+        // Rows with a value that can no longer be the frame result are dropped from the tail.
+        while (dequeSize > 0) {
+          final long tailValue =
+              values[(int) (deque[(dequeHead + dequeSize - 1) % windowSize] % windowSize)];
+          if (functionType == SupportedFunctionType.MIN ? tailValue < value : tailValue > value) {
+            break;
+          }
+          dequeSize--;
+        }
+        deque[(dequeHead + dequeSize) % windowSize] = rowNum;
+        dequeSize++;
+      }
+    }
+    rowNum++;
+  }
+
+  private void setResult(ColumnVector outputColVector, int i) {
+    if (nonNullCount == 0) {
+      outputColVector.noNulls = false;
+      outputColVector.isNull[i] = true;
+      return;
+    }
+    outputColVector.isNull[i] = false;
+    switch (functionType) {
+    case SUM:
+      ((LongColumnVector) outputColVector).vector[i] = sum;
+      break;
+    case AVG:
+      ((DoubleColumnVector) outputColVector).vector[i] = ((double) sum) / nonNullCount;
+      break;
+    case MIN:
+    case MAX:
+      ((LongColumnVector) outputColVector).vector[i] =
+          values[(int) (deque[dequeHead] % windowSize)];
+      break;
+    default:
+      throw new RuntimeException("Unexpected function type " + functionType);
+    }
+  }
+
+  @Override
+  public boolean streamsResult() {
+    return true;
+  }
+
+  @Override
+  public Type getResultColumnVectorType() {
+    return functionType == SupportedFunctionType.AVG ? Type.DOUBLE : Type.LONG;
+  }
+
+  @Override
+  public void resetEvaluator() {
+    rowNum = 0;
+    sum = 0;
+    nonNullCount = 0;
+    dequeHead = 0;
+    dequeSize = 0;
+  }
+}
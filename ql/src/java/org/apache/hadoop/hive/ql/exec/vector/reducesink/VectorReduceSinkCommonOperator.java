@@ -26,11 +26,13 @@
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.CompilationOpContext;
 import org.apache.hadoop.hive.ql.exec.Operator;
 import org.apache.hadoop.hive.ql.exec.TerminalOperator;
 import org.apache.hadoop.hive.ql.exec.TopNHash;
 import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.VectorColumnBlockSerDe;
 import org.apache.hadoop.hive.ql.exec.vector.VectorSerializeRow;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizationContext;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizationContextRegion;
@@ -120,6 +122,9 @@ public abstract class VectorReduceSinkCommonOperator extends TerminalOperator<Re
   // The output buffer used to serialize a value into.
   protected transient Output valueOutput;
 
+  // When not null, the values of a batch are serialized into column blocks instead of rows.
+  protected transient VectorColumnBlockSerDe valueColumnBlockSerDe;
+
   // The hive key and bytes writable value needed to pass the key and value to the collector.
   protected transient HiveKey keyWritable;
   protected transient BytesWritable valueBytesWritable;
@@ -127,6 +132,13 @@ public abstract class VectorReduceSinkCommonOperator extends TerminalOperator<Re
   // Picks topN K:V pairs from input.
   protected transient TopNHash reducerHash;
 
+  // When not null, drops the rows of a batch that cannot make the topN before serialization.
+  protected transient VectorReduceSinkTopNKeyFilter topNKeyFilter;
+
+  // When not null, tracks the heaviest shuffle hash codes to detect hot keys.
+  protected transient VectorReduceSinkHotKeySketch hotKeySketch;
+  private transient float hotKeyFraction;
+
   // Where to write our key and value pairs.
   private transient OutputCollector out;
 
@@ -272,9 +284,10 @@ protected void initializeOp(Configuration hconf) throws HiveException {
       LOG.info("Using tag = " + (int) reduceTagByte);
     }
 
+    boolean[] columnSortOrder = null;
     if (!isEmptyKey) {
       TableDesc keyTableDesc = conf.getKeySerializeInfo();
-      boolean[] columnSortOrder =
+      columnSortOrder =
           getColumnSortOrder(keyTableDesc.getProperties(), reduceSinkKeyColumnMap.length);
       byte[] columnNullMarker =
           getColumnNullMarker(keyTableDesc.getProperties(), reduceSinkKeyColumnMap.length, columnSortOrder);
@@ -298,6 +311,10 @@ protected void initializeOp(Configuration hconf) throws HiveException {
 
       valueOutput = new Output();
       valueVectorSerializeRow.setOutput(valueOutput);
+
+      if (vectorDesc.getIsColumnarValue()) {
+        valueColumnBlockSerDe = new VectorColumnBlockSerDe(reduceSinkValueTypeInfos);
+      }
     }
 
     keyWritable = new HiveKey();
@@ -310,6 +327,24 @@ protected void initializeOp(Configuration hconf) throws HiveException {
     if (limit >= 0 && memUsage > 0) {
       reducerHash = new TopNHash();
       reducerHash.initialize(limit, memUsage, conf.isMapGroupBy(), this, conf, hconf);
+
+      // The filter keeps N rows, not N distinct keys, so it cannot be used for a group by.
+      if (limit > 0 && !isEmptyKey && !conf.isMapGroupBy() &&
+          HiveConf.getBoolVar(hconf,
+              HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCESINK_TOPN_FILTER_ENABLED) &&
+          VectorReduceSinkTopNKeyFilter.isSupported(reduceSinkKeyTypeInfos[0])) {
+        topNKeyFilter =
+            new VectorReduceSinkTopNKeyFilter(
+                limit, reduceSinkKeyColumnMap[0], reduceSinkKeyTypeInfos[0], columnSortOrder[0]);
+      }
+    }
+
+    int hotKeySketchSize =
+        HiveConf.getIntVar(hconf, HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCESINK_HOTKEY_SKETCH_SIZE);
+    if (hotKeySketchSize > 0 && !isEmptyKey) {
+      hotKeySketch = new VectorReduceSinkHotKeySketch(hotKeySketchSize);
+      hotKeyFraction =
+          HiveConf.getFloatVar(hconf, HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCESINK_HOTKEY_FRACTION);
     }
 
     batchCounter = 0;
@@ -334,7 +369,7 @@ protected void initializeEmptyKey(int tag) {
   public void collect(byte[] key, byte[] value, int hash) throws IOException {
     HiveKey keyWritable = new HiveKey(key, hash);
     BytesWritable valueWritable = new BytesWritable(value);
-    doCollect(keyWritable, valueWritable);
+    doCollect(keyWritable, valueWritable, 1);
   }
 
   protected void collect(HiveKey keyWritable, BytesWritable valueWritable)
@@ -349,23 +384,34 @@ protected void collect(HiveKey keyWritable, BytesWritable valueWritable)
       }
 
       if (firstIndex == TopNHash.FORWARD) {
-        doCollect(keyWritable, valueWritable);
+        doCollect(keyWritable, valueWritable, 1);
       } else {
         Preconditions.checkState(firstIndex >= 0);
         reducerHash.storeValue(firstIndex, keyWritable.hashCode(), valueWritable, false);
       }
     } else {
-      doCollect(keyWritable, valueWritable);
+      doCollect(keyWritable, valueWritable, 1);
     }
   }
 
-  private void doCollect(HiveKey keyWritable, BytesWritable valueWritable) throws IOException {
+  /*
+   * Collect a value holding a column block of rowCount rows.  There is no TopN hash for
+   * column blocks.
+   */
+  protected void collectColumnBlock(HiveKey keyWritable, BytesWritable valueWritable,
+      int rowCount) throws IOException {
+    Preconditions.checkState(reducerHash == null);
+    doCollect(keyWritable, valueWritable, rowCount);
+  }
+
+  private void doCollect(HiveKey keyWritable, BytesWritable valueWritable, int rowCount)
+      throws IOException {
     // Since this is a terminal operator, update counters explicitly -
     // forward is not called
     if (null != out) {
-      numRows++;
+      numRows += rowCount;
       if (LOG.isInfoEnabled()) {
-        if (numRows == cntr) {
+        if (numRows >= cntr) {
           cntr = logEveryNRows == 0 ? cntr * 10 : numRows + logEveryNRows;
           if (cntr < 0 || numRows < 0) {
             cntr = 0;
@@ -381,19 +427,51 @@ private void doCollect(HiveKey keyWritable, BytesWritable valueWritable) throws
       //     " valueWritable " + valueBytesWritable.getLength() +
       //     VectorizedBatchUtil.displayBytes(valueBytesWritable.getBytes(), 0, valueBytesWritable.getLength()));
 
+      if (hotKeySketch != null) {
+        hotKeySketch.add(keyWritable.hashCode(), rowCount);
+      }
+
       out.collect(keyWritable, valueWritable);
     }
   }
 
+  private void reportHotKeys() {
+    final long totalCount = hotKeySketch.getTotalCount();
+    final int heaviest = hotKeySketch.getHeaviestEntry();
+    final long heaviestCount = (heaviest == -1 ? 0 : hotKeySketch.getCount(heaviest));
+
+    // The heaviest hash code differs between tasks, so it is logged per task rather than
+    // published as a counter, which would be summed over the tasks.
+    if (LOG.isInfoEnabled()) {
+      LOG.info(toString() + ": heaviest key hash code has at least " + heaviestCount + " of " +
+          totalCount + " rows");
+    }
+
+    if (LOG.isWarnEnabled() && totalCount > 0) {
+      final long hotCount = (long) (totalCount * hotKeyFraction);
+      for (int i = 0; i < hotKeySketch.getSize(); i++) {
+        if (hotKeySketch.getCount(i) > hotCount) {
+          LOG.warn(toString() + ": hot key hash code " + hotKeySketch.getHashCode(i) +
+              " has at least " + hotKeySketch.getCount(i) + " of " + totalCount + " rows");
+        }
+      }
+    }
+  }
+
   @Override
   protected void closeOp(boolean abort) throws HiveException {
     if (!abort && reducerHash != null) {
       reducerHash.flush();
     }
+    if (!abort && hotKeySketch != null) {
+      reportHotKeys();
+    }
     runTimeNumRows = numRows;
     super.closeOp(abort);
     out = null;
     reducerHash = null;
+    topNKeyFilter = null;
+    hotKeySketch = null;
     if (LOG.isInfoEnabled()) {
       LOG.info(toString() + ": records written - " + numRows);
     }
@@ -103,7 +103,18 @@ public void process(Object row, int tag) throws HiveException {
       }
 
       final int size = batch.size;
-      if (!isEmptyValue) {
+      if (valueColumnBlockSerDe != null) {
+        for (int logical = 0; logical < size; logical += VectorizedRowBatch.DEFAULT_SIZE) {
+          final int count = Math.min(size - logical, VectorizedRowBatch.DEFAULT_SIZE);
+          valueOutput.reset();
+          valueColumnBlockSerDe.serialize(batch, reduceSinkValueColumnMap, logical, count,
+              valueOutput);
+
+          valueBytesWritable.set(valueOutput.getData(), 0, valueOutput.getLength());
+
+          collectColumnBlock(keyWritable, valueBytesWritable, count);
+        }
+      } else if (!isEmptyValue) {
         if (batch.selectedInUse) {
           int[] selected = batch.selected;
           for (int logical = 0; logical < size; logical++) {
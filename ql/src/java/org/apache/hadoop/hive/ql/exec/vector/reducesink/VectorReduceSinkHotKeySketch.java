@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.reducesink;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A heavy hitter (Misra-Gries) sketch over the shuffle hash codes of a reduce sink, used to detect
+ * hot keys at runtime.
+ *
+ * At most capacity hash codes are tracked.  The count of a tracked hash code under estimates its
+ * real count by at most total / (capacity + 1), so every hash code with more than that many rows
+ * is tracked.  The hash code is what picks the reducer, so a hot hash code is a hot reducer
+ * whether it comes from one key or from colliding keys.
+ */
+public class VectorReduceSinkHotKeySketch {
+
+  private final int capacity;
+
+  // The tracked entries, densely packed.
+  private final int[] hashCodes;
+  private final long[] counts;
+  private int size;
+
+  // Open addressing index from hash code to entry number + 1; 0 is an empty slot.
+  private final int[] slots;
+  private final int slotMask;
+
+  private long totalCount;
+
+  public VectorReduceSinkHotKeySketch(int capacity) {
+    Preconditions.checkState(capacity > 0);
+    this.capacity = capacity;
+    hashCodes = new int[capacity];
+    counts = new long[capacity];
+    int slotCount = Integer.highestOneBit(capacity) * 4;
+    slots = new int[slotCount];
+    slotMask = slotCount - 1;
+  }
+
+  public void add(int hashCode, long count) {
+    totalCount += count;
+
+    int slot = findSlot(hashCode);
+    if (slots[slot] != 0) {
+      counts[slots[slot] - 1] += count;
+      return;
+    }
+    if (size < capacity) {
+      insert(slot, hashCode, count);
+      return;
+    }
+
+    // Full: decrement every entry (and the new count) by the smallest count, and drop the entries
+    // that reach zero.
+    long decrement = count;
+    for (int i = 0; i < size; i++) {
+      decrement = Math.min(decrement, counts[i]);
+    }
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      final long newCount = counts[i] - decrement;
+      if (newCount > 0) {
+        hashCodes[newSize] = hashCodes[i];
+        counts[newSize] = newCount;
+        newSize++;
+      }
+    }
+    size = newSize;
+    Arrays.fill(slots, 0);
+    for (int i = 0; i < size; i++) {
+      slots[findSlot(hashCodes[i])] = i + 1;
+    }
+    if (count > decrement) {
+      insert(findSlot(hashCode), hashCode, count - decrement);
+    }
+  }
+
+  private int findSlot(int hashCode) {
+    int slot = ((hashCode * 0x9E3779B9) >>> 1) & slotMask;
+    while (slots[slot] != 0 && hashCodes[slots[slot] - 1] != hashCode) {
+      slot = (slot + 1) & slotMask;
+    }
+    return slot;
+  }
+
+  private void insert(int slot, int hashCode, long count) {
+    hashCodes[size] = hashCode;
+    counts[size] = count;
+    size++;
+    slots[slot] = size;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * @return the largest under estimation of a count.
+   */
+  public long getMaxError() {
+    return totalCount / (capacity + 1);
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getHashCode(int entry) {
+    return hashCodes[entry];
+  }
+
+  public long getCount(int entry) {
+    return counts[entry];
+  }
+
+  /**
+   * @return the entry with the largest count, or -1 when empty.
+   */
+  public int getHeaviestEntry() {
+    int heaviest = -1;
+    for (int i = 0; i < size; i++) {
+      if (heaviest == -1 || counts[i] > counts[heaviest]) {
+        heaviest = i;
+      }
+    }
+    return heaviest;
+  }
+}
@@ -163,6 +163,9 @@ protected void initializeOp(Configuration hconf) throws HiveException {
 
     if (isEmptyPartitions) {
       nonPartitionRandom = new Random(12345);
+
+      // A random hash code spreads the rows evenly; there are no hot keys to find.
+      hotKeySketch = null;
     } else {
       partitionObjectInspectors = getObjectInspectorArray(reduceSinkPartitionTypeInfos);
       partitionVectorExtractRow = new VectorExtractRow();
@@ -200,7 +203,12 @@ public void process(Object row, int tag) throws HiveException {
           ve.evaluate(batch);
         }
       }
-  
+
+      // Drop the rows that cannot make the topN before any further work is done on them.
+      if (topNKeyFilter != null && !topNKeyFilter.filter(batch)) {
+        return;
+      }
+
       // Perform any value expressions.  Results will go into scratch columns.
       if (reduceSinkValueExpressions != null) {
         for (VectorExpression ve : reduceSinkValueExpressions) {
@@ -283,6 +291,10 @@ public void process(Object row, int tag) throws HiveException {
       }
     } catch (Exception e) {
       throw new HiveException(e);
+    } finally {
+      if (topNKeyFilter != null) {
+        topNKeyFilter.restore((VectorizedRowBatch) row);
+      }
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.reducesink;
+
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Drops the rows of a batch that cannot be among the top N rows of a reduce sink with a limit,
+ * before their keys and values are serialized.
+ *
+ * The first key column is compared directly in the batch.  A max heap keeps the N best first key
+ * values seen so far; a row whose first key value sorts strictly after the heap top has at least
+ * N rows sorting before it on the full key and is dropped.  Rows with a NULL first key are never
+ * dropped.  The surviving rows still go through the TopNHash which does the exact selection.
+ *
+ * The filter narrows the batch selected array in place, so {@link #restore(VectorizedRowBatch)}
+ * must be called once the batch has been processed.
+ */
+public class VectorReduceSinkTopNKeyFilter {
+
+  private final int topN;
+  private final int keyColumnNum;
+  private final boolean isDouble;
+  private final boolean isDescending;
+
+  // Max heap of the normalized best key values.
+  private final long[] heap;
+  private int heapSize;
+
+  // The selected state of the batch before it was filtered.
+  private boolean isFiltered;
+  private boolean saveSelectedInUse;
+  private int saveSize;
+  private int[] saveSelected;
+
+  public VectorReduceSinkTopNKeyFilter(int topN, int keyColumnNum, TypeInfo keyTypeInfo,
+      boolean isDescending) {
+    Preconditions.checkState(topN > 0);
+    Preconditions.checkState(isSupported(keyTypeInfo));
+    this.topN = topN;
+    this.keyColumnNum = keyColumnNum;
+    this.isDescending = isDescending;
+    switch (((PrimitiveTypeInfo) keyTypeInfo).getPrimitiveCategory()) {
+    case FLOAT:
+    case DOUBLE:
+      isDouble = true;
+      break;
+    default:
+      isDouble = false;
+    }
+    heap = new long[topN];
+    heapSize = 0;
+    saveSelected = new int[VectorizedRowBatch.DEFAULT_SIZE];
+  }
+
+  public static boolean isSupported(TypeInfo typeInfo) {
+    if (typeInfo.getCategory() != TypeInfo.Category.PRIMITIVE) {
+      return false;
+    }
+    switch (((PrimitiveTypeInfo) typeInfo).getPrimitiveCategory()) {
+    case BOOLEAN:
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case DATE:
+    case FLOAT:
+    case DOUBLE:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Narrow the batch to the rows that can still make the top N.
+   * @return false if no row survived.
+   */
+  public boolean filter(VectorizedRowBatch batch) {
+    final int size = batch.size;
+    final boolean selectedInUse = batch.selectedInUse;
+    final int[] selected = batch.selected;
+
+    isFiltered = true;
+    saveSelectedInUse = selectedInUse;
+    saveSize = size;
+    if (selectedInUse) {
+      if (saveSelected.length < size) {
+        saveSelected = new int[size];
+      }
+      System.arraycopy(selected, 0, saveSelected, 0, size);
+    }
+
+    ColumnVector colVector = batch.cols[keyColumnNum];
+    final boolean isRepeating = colVector.isRepeating;
+    final boolean noNulls = colVector.noNulls;
+    final boolean[] isNull = colVector.isNull;
+    final long[] longVector = (isDouble ? null : ((LongColumnVector) colVector).vector);
+    final double[] doubleVector = (isDouble ? ((DoubleColumnVector) colVector).vector : null);
+
+    int newSize = 0;
+    for (int logical = 0; logical < size; logical++) {
+      final int batchIndex = (selectedInUse ? selected[logical] : logical);
+      final int index = (isRepeating ? 0 : batchIndex);
+      if (noNulls || !isNull[index]) {
+        final long key =
+            (isDouble ? normalize(doubleVector[index]) : normalize(longVector[index]));
+        if (!offer(key)) {
+          continue;
+        }
+      }
+      selected[newSize++] = batchIndex;
+    }
+
+    if (newSize < size) {
+      batch.size = newSize;
+      batch.selectedInUse = true;
+    }
+    return newSize > 0;
+  }
+
+  /**
+   * Put back the selected state the batch had before {@link #filter(VectorizedRowBatch)}.
+   */
+  public void restore(VectorizedRowBatch batch) {
+    if (!isFiltered) {
+      return;
+    }
+    isFiltered = false;
+
+    // When selected was not in use, its old contents do not matter.
+    if (saveSelectedInUse) {
+      System.arraycopy(saveSelected, 0, batch.selected, 0, saveSize);
+    }
+    batch.selectedInUse = saveSelectedInUse;
+    batch.size = saveSize;
+  }
+
+  // Map a key value to a long that sorts in the key order, best first.
+  private long normalize(long value) {
+    return (isDescending ? ~value : value);
+  }
+
+  private long normalize(double value) {
+    final long bits = Double.doubleToLongBits(value);
+    return normalize(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+  }
+
+  /**
+   * @return false if the key sorts strictly after the N best keys.
+   */
+  private boolean offer(long key) {
+    if (heapSize < topN) {
+      int i = heapSize++;
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (heap[parent] >= key) {
+          break;
+        }
+        heap[i] = heap[parent];
+        i = parent;
+      }
+      heap[i] = key;
+      return true;
+    }
+    if (key > heap[0]) {
+      return false;
+    }
+    if (key < heap[0]) {
+
+      // Replace the current N-th best key and sift down.
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize) {
+          break;
+        }
+        if (child + 1 < heapSize && heap[child + 1] > heap[child]) {
+          child++;
+        }
+        if (heap[child] <= key) {
+          break;
+        }
+        heap[i] = heap[child];
+        i = child;
+      }
+      heap[i] = key;
+    }
+    return true;
+  }
+}
@@ -114,6 +114,11 @@ public void process(Object row, int tag) throws HiveException {
         }
       }
 
+      // Drop the rows that cannot make the topN before any further work is done on them.
+      if (topNKeyFilter != null && !topNKeyFilter.filter(batch)) {
+        return;
+      }
+
       // Perform any value expressions.  Results will go into scratch columns.
       if (reduceSinkValueExpressions != null) {
         for (VectorExpression ve : reduceSinkValueExpressions) {
@@ -201,6 +206,10 @@ public void process(Object row, int tag) throws HiveException {
 
     } catch (Exception e) {
       throw new HiveException(e);
+    } finally {
+      if (topNKeyFilter != null) {
+        topNKeyFilter.restore((VectorizedRowBatch) row);
+      }
     }
   }
 }
\ No newline at end of file
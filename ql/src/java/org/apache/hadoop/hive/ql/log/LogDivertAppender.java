@@ -170,6 +170,18 @@ public static NameFilter createFilter(
    * @param conf  the configuration for HiveServer2 instance
    */
   public static void registerRoutingAppender(org.apache.hadoop.conf.Configuration conf) {
+    registerRoutingAppender(conf, false);
+  }
+
+  /**
+   * Programmatically register a routing appender to Log4J configuration.
+   * @param conf  the configuration for HiveServer2 instance
+   * @param allowInMemory true if the logs may be kept in {@link OperationLogBuffer}s instead of
+   *                      files, see hive.server2.logging.operation.memory.lines. Only the process
+   *                      serving the operation logs can use the buffers.
+   */
+  public static void registerRoutingAppender(org.apache.hadoop.conf.Configuration conf,
+      boolean allowInMemory) {
     String loggingLevel = HiveConf.getVar(conf, HiveConf.ConfVars.HIVE_SERVER2_LOGGING_OPERATION_LEVEL);
     OperationLog.LoggingLevel loggingMode = OperationLog.getLoggingLevel(loggingLevel);
     String layout = loggingMode == OperationLog.LoggingLevel.VERBOSE ? verboseLayout : nonVerboseLayout;
@@ -201,14 +213,29 @@ public static void registerRoutingAppender(org.apache.hadoop.conf.Configuration
     PluginType<Route> type = new PluginType<Route>(entry, Route.class, "Route");
     Node node = new Node(null, "Route", type);
 
-    PluginEntry childEntry = new PluginEntry();
-    childEntry.setClassName(HushableRandomAccessFileAppender.class.getName());
-    childEntry.setKey("HushableMutableRandomAccess");
-    childEntry.setName("appender");
-    PluginType<HushableRandomAccessFileAppender> childType = new PluginType<>(childEntry, HushableRandomAccessFileAppender.class, "appender");
-    Node childNode = new Node(node, "HushableMutableRandomAccess", childType);
-    childNode.getAttributes().put("name", "query-file-appender");
-    childNode.getAttributes().put("fileName", logLocation + "/${ctx:sessionId}/${ctx:queryId}");
+    int memoryLines = allowInMemory ?
+        HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_SERVER2_LOGGING_OPERATION_MEMORY_LINES) : 0;
+    Node childNode;
+    if (memoryLines > 0) {
+      OperationLogBuffer.setMaxLinesPerQuery(memoryLines);
+      PluginEntry childEntry = new PluginEntry();
+      childEntry.setClassName(OperationLogBufferAppender.class.getName());
+      childEntry.setKey("operationlogbuffer");
+      childEntry.setName("appender");
+      PluginType<OperationLogBufferAppender> childType = new PluginType<>(childEntry, OperationLogBufferAppender.class, "appender");
+      childNode = new Node(node, "OperationLogBuffer", childType);
+      childNode.getAttributes().put("name", "query-buffer-appender");
+      childNode.getAttributes().put("queryId", "${ctx:queryId}");
+    } else {
+      PluginEntry childEntry = new PluginEntry();
+      childEntry.setClassName(HushableRandomAccessFileAppender.class.getName());
+      childEntry.setKey("HushableMutableRandomAccess");
+      childEntry.setName("appender");
+      PluginType<HushableRandomAccessFileAppender> childType = new PluginType<>(childEntry, HushableRandomAccessFileAppender.class, "appender");
+      childNode = new Node(node, "HushableMutableRandomAccess", childType);
+      childNode.getAttributes().put("name", "query-file-appender");
+      childNode.getAttributes().put("fileName", logLocation + "/${ctx:sessionId}/${ctx:queryId}");
+    }
     node.getChildren().add(childNode);
 
     PluginEntry filterEntry = new PluginEntry();
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory ring buffer holding the most recent operation log lines of one query.
+ * Used instead of a per-query log file when
+ * {@link org.apache.hadoop.hive.conf.HiveConf.ConfVars#HIVE_SERVER2_LOGGING_OPERATION_MEMORY_LINES}
+ * is set.  Every line gets a sequence number, so readers can keep a cursor and only fetch
+ * new lines; lines which were dropped from the buffer before being read are skipped.
+ */
+public class OperationLogBuffer {
+
+  private static final ConcurrentMap<String, OperationLogBuffer> buffers =
+      new ConcurrentHashMap<>();
+  // Lines per buffer, 0 if the operation logs are written to files
+  private static volatile int maxLinesPerQuery = 0;
+
+  private final String[] lines;
+  // Sequence number of the next line to be added
+  private long nextSeq = 0;
+
+  OperationLogBuffer(int maxLines) {
+    lines = new String[maxLines];
+  }
+
+  /**
+   * Called when the routing appender is set up to write operation logs to the buffers.
+   */
+  static void setMaxLinesPerQuery(int maxLines) {
+    maxLinesPerQuery = maxLines;
+  }
+
+  /**
+   * @return true if the operation logs go to in-memory buffers instead of files
+   */
+  public static boolean isEnabled() {
+    return maxLinesPerQuery > 0;
+  }
+
+  /**
+   * Creates the buffer for a query.  The appender only writes to existing buffers, so this has
+   * to be called before the query starts logging.
+   */
+  public static OperationLogBuffer create(String queryId) {
+    OperationLogBuffer buffer = new OperationLogBuffer(maxLinesPerQuery);
+    buffers.put(queryId, buffer);
+    return buffer;
+  }
+
+  public static OperationLogBuffer get(String queryId) {
+    return buffers.get(queryId);
+  }
+
+  public static void remove(String queryId) {
+    buffers.remove(queryId);
+  }
+
+  public synchronized void append(String line) {
+    lines[(int) (nextSeq % lines.length)] = line;
+    nextSeq++;
+  }
+
+  /**
+   * @return the sequence number of the oldest line still in the buffer
+   */
+  public synchronized long getFirstSeq() {
+    return Math.max(0, nextSeq - lines.length);
+  }
+
+  /**
+   * Reads lines starting at the given sequence number.
+   * @param fromSeq sequence number of the first line to read
+   * @param maxLines maximum number of lines to return, all available lines if nonpositive
+   * @param result the lines are added to this list
+   * @return the sequence number to continue reading from
+   */
+  public synchronized long read(long fromSeq, long maxLines, List<String> result) {
+    long seq = Math.max(fromSeq, getFirstSeq());
+    long end = maxLines <= 0 ? nextSeq : Math.min(nextSeq, seq + maxLines);
+    for (; seq < end; seq++) {
+      result.add(lines[(int) (seq % lines.length)]);
+    }
+    return seq;
+  }
+
+  public List<String> read(long fromSeq, long maxLines) {
+    List<String> result = new ArrayList<>();
+    read(fromSeq, maxLines, result);
+    return result;
+  }
+}
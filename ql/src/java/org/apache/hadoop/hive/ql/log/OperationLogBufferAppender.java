@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.log;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+/**
+ * Appender writing the log lines of one query to its {@link OperationLogBuffer}.
+ * Events for queries without a buffer are dropped.
+ */
+@Plugin(name = "OperationLogBuffer", category = "Core", elementType = "appender", printObject = true)
+public class OperationLogBufferAppender extends AbstractAppender {
+
+  private final String queryId;
+
+  protected OperationLogBufferAppender(String name, String queryId, Filter filter,
+      Layout<? extends Serializable> layout) {
+    super(name, filter, layout, true);
+    this.queryId = queryId;
+  }
+
+  @Override
+  public void append(LogEvent event) {
+    OperationLogBuffer buffer = OperationLogBuffer.get(queryId);
+    if (buffer == null) {
+      return;
+    }
+    String text = new String(getLayout().toByteArray(event), StandardCharsets.UTF_8);
+    // Keep the line structure the file based log has, e.g. for stack traces.
+    for (String line : text.split("\r?\n")) {
+      buffer.append(line);
+    }
+  }
+
+  @PluginFactory
+  public static OperationLogBufferAppender createAppender(
+      @PluginAttribute("name") final String name,
+      @PluginAttribute("queryId") final String queryId,
+      @PluginElement("Layout") Layout<? extends Serializable> layout,
+      @PluginElement("Filter") final Filter filter) {
+    if (name == null || queryId == null) {
+      LOGGER.error("No name or queryId provided for OperationLogBufferAppender");
+      return null;
+    }
+    if (layout == null) {
+      layout = PatternLayout.createDefaultLayout();
+    }
+    return new OperationLogBufferAppender(name, queryId, filter, layout);
+  }
+}
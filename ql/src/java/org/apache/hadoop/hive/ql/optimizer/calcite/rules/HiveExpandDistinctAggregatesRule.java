@@ -31,6 +31,7 @@
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Aggregate.Group;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.rel.metadata.RelColumnOrigin;
@@ -78,6 +79,10 @@
  * (e.g. {@code COUNT(DISTINCT x), COUNT(DISTINCT y)})
  * the rule creates separate {@code Aggregate}s and combines using a
  * {@link org.apache.calcite.rel.core.Join}.
+ *
+ * <p>If all the functions are {@code COUNT(DISTINCT)}s, they are computed with grouping sets
+ * instead, which the vectorized GROUP BY runs natively.  Without group keys this is always done;
+ * with group keys only by the {@link #INSTANCE_WITH_GROUP_KEYS} instance.
  */
 
 // Stripped down version of org.apache.calcite.rel.rules.AggregateExpandDistinctAggregatesRule
@@ -91,16 +96,31 @@ public final class HiveExpandDistinctAggregatesRule extends RelOptRule {
       new HiveExpandDistinctAggregatesRule(HiveAggregate.class,
           HiveRelFactories.HIVE_PROJECT_FACTORY);
 
+  /** The instance that also uses grouping sets for several count distincts with group keys. */
+  public static final HiveExpandDistinctAggregatesRule INSTANCE_WITH_GROUP_KEYS =
+      new HiveExpandDistinctAggregatesRule(HiveAggregate.class,
+          HiveRelFactories.HIVE_PROJECT_FACTORY, true);
+
   private static RelFactories.ProjectFactory projFactory;
   
   protected static final Logger LOG = LoggerFactory.getLogger(HiveExpandDistinctAggregatesRule.class);
 
   //~ Constructors -----------------------------------------------------------
 
+  private final boolean expandWithGroupKeys;
+
   public HiveExpandDistinctAggregatesRule(
       Class<? extends Aggregate> clazz,RelFactories.ProjectFactory projectFactory) {
-    super(operand(clazz, any()));
+    this(clazz, projectFactory, false);
+  }
+
+  public HiveExpandDistinctAggregatesRule(
+      Class<? extends Aggregate> clazz, RelFactories.ProjectFactory projectFactory,
+      boolean expandWithGroupKeys) {
+    super(operand(clazz, any()),
+        "HiveExpandDistinctAggregatesRule" + (expandWithGroupKeys ? "(WithGroupKeys)" : ""));
     projFactory = projectFactory;
+    this.expandWithGroupKeys = expandWithGroupKeys;
   }
 
   RelOptCluster cluster = null;
@@ -139,7 +159,7 @@ public void onMatch(RelOptRuleCall call) {
     Util.permAssert(argListSets.size() > 0, "containsDistinctCall lied");
 
     if (numCountDistinct > 1 && numCountDistinct == aggregate.getAggCallList().size()
-        && aggregate.getGroupSet().isEmpty()) {
+        && (aggregate.getGroupSet().isEmpty() || canExpandWithGroupKeys(aggregate, positions))) {
       LOG.debug("Trigger countDistinct rewrite. numCountDistinct is " + numCountDistinct);
       // now positions contains all the distinct positions, i.e., $5, $4, $6
       // we need to first sort them as group by set
@@ -149,6 +169,7 @@ public void onMatch(RelOptRuleCall call) {
       RelNode converted = null;
       List<Integer> sourceOfForCountDistinct = new ArrayList<>();
       sourceOfForCountDistinct.addAll(positions);
+      sourceOfForCountDistinct.addAll(aggregate.getGroupSet().asList());
       Collections.sort(sourceOfForCountDistinct);
       try {
         converted = convert(aggregate, argListList, sourceOfForCountDistinct);
@@ -185,6 +206,24 @@ public void onMatch(RelOptRuleCall call) {
     }
   }
 
+  /**
+   * Whether the grouping sets rewrite can be used for count distincts with group keys.  Each
+   * grouping set is then the group keys plus the arguments of one count distinct.
+   */
+  private boolean canExpandWithGroupKeys(Aggregate aggregate, Set<Integer> positions) {
+    if (!expandWithGroupKeys || aggregate.getGroupType() != Group.SIMPLE) {
+      return false;
+    }
+    // A count distinct of a group key would not get a grouping set of its own.
+    for (int key : aggregate.getGroupSet()) {
+      if (positions.contains(key)) {
+        return false;
+      }
+    }
+    // The grouping id value has a bit per grouping column.
+    return aggregate.getGroupCount() + positions.size() < Integer.SIZE;
+  }
+
   /**
    * Converts an aggregate relational expression that contains only
    * count(distinct) to grouping sets with count. For example select
@@ -198,6 +237,8 @@ public void onMatch(RelOptRuleCall call) {
    * grouping__id as i, department_id, gender, education_level from employee
    * group by department_id, gender, education_level grouping sets
    * (department_id, gender, education_level))subq;
+   * With group keys, the keys are added to every grouping set and the outer aggregate groups
+   * by them.
    * @throws CalciteSemanticException 
    */
   private RelNode convert(Aggregate aggregate, List<List<Integer>> argList, List<Integer> sourceOfForCountDistinct) throws CalciteSemanticException {
@@ -205,7 +246,8 @@ private RelNode convert(Aggregate aggregate, List<List<Integer>> argList, List<I
     Map<Integer, Integer> map = new HashMap<>();
     List<List<Integer>> cleanArgList = new ArrayList<>();
     final Aggregate groupingSets = createGroupingSets(aggregate, argList, cleanArgList, map, sourceOfForCountDistinct);
-    return createCount(groupingSets, argList, cleanArgList, map, sourceOfForCountDistinct);
+    return createCount(groupingSets, aggregate.getGroupSet(), argList, cleanArgList, map,
+        sourceOfForCountDistinct);
   }
 
   private int getGroupingIdValue(List<Integer> list, List<Integer> sourceOfForCountDistinct,
@@ -218,7 +260,8 @@ private int getGroupingIdValue(List<Integer> list, List<Integer> sourceOfForCoun
   }
 
   /**
-   * @param aggr: the original aggregate
+   * @param aggr: the grouping sets aggregate
+   * @param groupKeys: the group keys of the original aggregate
    * @param argList: the original argList in aggregate
    * @param cleanArgList: the new argList without duplicates
    * @param map: the mapping from the original argList to the new argList
@@ -226,7 +269,7 @@ private int getGroupingIdValue(List<Integer> list, List<Integer> sourceOfForCoun
    * @return
    * @throws CalciteSemanticException
    */
-  private RelNode createCount(Aggregate aggr, List<List<Integer>> argList,
+  private RelNode createCount(Aggregate aggr, ImmutableBitSet groupKeys, List<List<Integer>> argList,
       List<List<Integer>> cleanArgList, Map<Integer, Integer> map,
       List<Integer> sourceOfForCountDistinct) throws CalciteSemanticException {
     List<RexNode> originalInputRefs = Lists.transform(aggr.getRowType().getFieldList(),
@@ -237,17 +280,23 @@ public RexNode apply(RelDataTypeField input) {
           }
         });
     final List<RexNode> gbChildProjLst = Lists.newArrayList();
+    final List<Integer> groupKeyList = groupKeys.asList();
+    for (int key : groupKeyList) {
+      gbChildProjLst.add(originalInputRefs.get(sourceOfForCountDistinct.indexOf(key)));
+    }
     // for singular arg, count should not include null
     // e.g., count(case when i=1 and department_id is not null then 1 else null end) as c0, 
     // for non-singular args, count can include null, i.e. (,) is counted as 1
     for (List<Integer> list : cleanArgList) {
+      List<Integer> groupingSetList = new ArrayList<>(list);
+      groupingSetList.addAll(groupKeyList);
       RexNode condition = rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, originalInputRefs
           .get(originalInputRefs.size() - 1), rexBuilder.makeExactLiteral(new BigDecimal(
-          getGroupingIdValue(list, sourceOfForCountDistinct, aggr.getGroupCount()))));
+          getGroupingIdValue(groupingSetList, sourceOfForCountDistinct, aggr.getGroupCount()))));
       if (list.size() == 1) {
         int pos = list.get(0);
         RexNode notNull = rexBuilder.makeCall(SqlStdOperatorTable.IS_NOT_NULL,
-            originalInputRefs.get(pos));
+            originalInputRefs.get(sourceOfForCountDistinct.indexOf(pos)));
         condition = rexBuilder.makeCall(SqlStdOperatorTable.AND, condition, notNull);
       }
       RexNode when = rexBuilder.makeCall(SqlStdOperatorTable.CASE, condition,
@@ -262,13 +311,14 @@ public RexNode apply(RelDataTypeField input) {
     List<AggregateCall> aggregateCalls = Lists.newArrayList();
     RelDataType aggFnRetType = TypeConverter.convert(TypeInfoFactory.longTypeInfo,
         cluster.getTypeFactory());
+    final int keyCount = groupKeyList.size();
     for (int i = 0; i < cleanArgList.size(); i++) {
       AggregateCall aggregateCall = HiveCalciteUtil.createSingleArgAggCall("count", cluster,
-          TypeInfoFactory.longTypeInfo, i, aggFnRetType);
+          TypeInfoFactory.longTypeInfo, keyCount + i, aggFnRetType);
       aggregateCalls.add(aggregateCall);
     }
     Aggregate aggregate = new HiveAggregate(cluster, cluster.traitSetOf(HiveRelNode.CONVENTION), gbInputRel,
-        ImmutableBitSet.of(), null, aggregateCalls);
+        ImmutableBitSet.range(keyCount), null, aggregateCalls);
 
     // create the project after GB. For those repeated values, e.g., select
     // count(distinct x, y), count(distinct y, x), we find the correct mapping.
@@ -283,12 +333,15 @@ public RexNode apply(RelDataTypeField input) {
             }
           });
       final List<RexNode> projLst = Lists.newArrayList();
+      for (int i = 0; i < keyCount; i++) {
+        projLst.add(originalAggrRefs.get(i));
+      }
       int index = 0;
       for (int i = 0; i < argList.size(); i++) {
         if (map.containsKey(i)) {
-          projLst.add(originalAggrRefs.get(map.get(i)));
+          projLst.add(originalAggrRefs.get(keyCount + map.get(i)));
         } else {
-          projLst.add(originalAggrRefs.get(index++));
+          projLst.add(originalAggrRefs.get(keyCount + index++));
         }
       }
       return HiveProject.create(aggregate, projLst, null);
@@ -311,7 +364,7 @@ private Aggregate createGroupingSets(Aggregate aggregate, List<List<Integer>> ar
 
     for (int i = 0; i < argList.size(); i++) {
       List<Integer> list = argList.get(i);
-      ImmutableBitSet bitSet = ImmutableBitSet.of(list);
+      ImmutableBitSet bitSet = ImmutableBitSet.of(list).union(aggregate.getGroupSet());
       int prev = origGroupSets.indexOf(bitSet);
       if (prev == -1) {
         origGroupSets.add(bitSet);
@@ -77,6 +77,7 @@
 import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.ColumnVector.Type;
 import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationDesc;
+import org.apache.hadoop.hive.ql.exec.vector.VectorColumnBlockSerDe;
 import org.apache.hadoop.hive.ql.exec.vector.VectorColumnOutputMapping;
 import org.apache.hadoop.hive.ql.exec.vector.VectorColumnSourceMapping;
 import org.apache.hadoop.hive.ql.exec.vector.VectorMapJoinOperator;
@@ -148,6 +149,7 @@
 import org.apache.hadoop.hive.ql.plan.SparkWork;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.plan.TezEdgeProperty;
 import org.apache.hadoop.hive.ql.plan.TezWork;
 import org.apache.hadoop.hive.ql.plan.VectorGroupByDesc;
 import org.apache.hadoop.hive.ql.plan.VectorMapJoinDesc;
@@ -308,6 +310,7 @@ public static enum VectorizationEnabledOverride {
   private boolean useVectorDeserialize;
   private boolean useRowDeserialize;
   private boolean isReduceVectorizationEnabled;
+  private boolean isReduceSinkColumnarEnabled;
   private boolean isPtfVectorizationEnabled;
   private boolean isVectorizationComplexTypesEnabled;
 
@@ -510,6 +513,7 @@ public Vectorizer() {
     supportedAggregationUdfs.add("stddev_pop");
     supportedAggregationUdfs.add("stddev_samp");
     supportedAggregationUdfs.add("bloom_filter");
+    supportedAggregationUdfs.add("approx_count_distinct");
   }
 
   private class VectorTaskColumnInfo {
@@ -972,6 +976,9 @@ public Object dispatch(Node nd, Stack<Node> stack, Object... nodeOutputs)
             logReduceWorkExplainVectorization(reduceWork);
           }
         }
+        if (isReduceSinkColumnarEnabled) {
+          setColumnarReduceSinkValues(work);
+        }
       } else if (currTask instanceof SparkTask) {
         SparkWork sparkWork = (SparkWork) currTask.getWork();
         for (BaseWork baseWork : sparkWork.getAllWork()) {
@@ -2053,6 +2060,62 @@ private List<Operator<? extends OperatorDesc>> dosetVectorDesc(
       return newChildren;
     }
 
+    /*
+     * Switch the edges from a native empty key ReduceSink to a vectorized reducer over to
+     * shuffling column blocks of whole batches.  Both ends have to agree on the value format,
+     * so this is only done once all the works are vectorized.
+     */
+    private void setColumnarReduceSinkValues(TezWork work) {
+      for (BaseWork baseWork : work.getAllWork()) {
+        if (!(baseWork instanceof ReduceWork)) {
+          continue;
+        }
+        ReduceWork reduceWork = (ReduceWork) baseWork;
+        List<BaseWork> parents = work.getParents(reduceWork);
+        if (!reduceWork.getVectorMode() ||
+            reduceWork.getTagToValueDesc().size() != 1 ||
+            parents.size() != 1 ||
+            work.getEdgeProperty(parents.get(0), reduceWork).getEdgeType() !=
+                TezEdgeProperty.EdgeType.SIMPLE_EDGE) {
+          continue;
+        }
+        VectorReduceSinkDesc columnarDesc = null;
+        int reduceSinkCount = 0;
+        for (Operator<? extends OperatorDesc> leaf : parents.get(0).getAllLeafOperators()) {
+          if (leaf.getType() != OperatorType.REDUCESINK ||
+              !reduceWork.getName().equals(((ReduceSinkDesc) leaf.getConf()).getOutputName())) {
+            continue;
+          }
+          reduceSinkCount++;
+          if (leaf instanceof VectorReduceSinkEmptyKeyOperator &&
+              canUseColumnarValues((VectorReduceSinkEmptyKeyOperator) leaf)) {
+            columnarDesc =
+                (VectorReduceSinkDesc) ((VectorReduceSinkEmptyKeyOperator) leaf).getVectorDesc();
+          }
+        }
+        if (reduceSinkCount == 1 && columnarDesc != null) {
+          LOG.info("Using columnar values for the edge from " + parents.get(0).getName() +
+              " to " + reduceWork.getName());
+          columnarDesc.setIsColumnarValue(true);
+          reduceWork.setIsVectorColumnarValues(true);
+        }
+      }
+    }
+
+    private boolean canUseColumnarValues(VectorReduceSinkEmptyKeyOperator reduceSinkOp) {
+      VectorReduceSinkDesc vectorDesc = (VectorReduceSinkDesc) reduceSinkOp.getVectorDesc();
+      if (vectorDesc.getIsEmptyValue() || reduceSinkOp.getConf().getTopN() >= 0) {
+        return false;
+      }
+      for (TypeInfo typeInfo :
+          vectorDesc.getVectorReduceSinkInfo().getReduceSinkValueTypeInfos()) {
+        if (!VectorColumnBlockSerDe.isSupported(typeInfo)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     private void convertReduceWork(ReduceWork reduceWork) throws SemanticException {
 
       reduceWork.setVectorizationEnabled(true);
@@ -2311,6 +2374,9 @@ public PhysicalContext resolve(PhysicalContext physicalContext) throws SemanticE
     isReduceVectorizationEnabled =
         HiveConf.getBoolVar(hiveConf,
             HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCE_ENABLED);
+    isReduceSinkColumnarEnabled =
+        HiveConf.getBoolVar(hiveConf,
+            HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCESINK_COLUMNAR_ENABLED);
     isPtfVectorizationEnabled =
         HiveConf.getBoolVar(hiveConf,
             HiveConf.ConfVars.HIVE_VECTORIZATION_PTF_ENABLED);
@@ -2753,27 +2819,47 @@ private boolean validatePTFOperator(PTFOperator op, VectorizationContext vContex
         return false;
       }
       WindowFrameDef windowFrameDef = evaluatorWindowFrameDefs[i];
-      if (!windowFrameDef.isStartUnbounded()) {
+      final boolean isSlidingRowsFrame = VectorPTFDesc.isSlidingRowsFrame(windowFrameDef);
+      if (isSlidingRowsFrame) {
+        if (windowFrameDef.getWindowSize() > VectorPTFDesc.MAX_SLIDING_WINDOW_SIZE) {
+          setOperatorIssue(functionName + " sliding ROWS frame larger than " +
+              VectorPTFDesc.MAX_SLIDING_WINDOW_SIZE + " rows is not supported");
+          return false;
+        }
+      } else if (!windowFrameDef.isStartUnbounded()) {
         setOperatorIssue(functionName + " only UNBOUNDED start frame is supported");
         return false;
+      } else {
+        switch (windowFrameDef.getWindowType()) {
+        case RANGE:
+          if (!windowFrameDef.getEnd().isCurrentRow()) {
+            setOperatorIssue(functionName + " only CURRENT ROW end frame is supported for RANGE");
+            return false;
+          }
+          break;
+        case ROWS:
+          if (!windowFrameDef.isEndUnbounded()) {
+            setOperatorIssue(functionName + " UNBOUNDED end frame is not supported for ROWS window type");
+            return false;
+          }
+          break;
+        default:
+          throw new RuntimeException("Unexpected window type " + windowFrameDef.getWindowType());
+        }
       }
-      switch (windowFrameDef.getWindowType()) {
-      case RANGE:
-        if (!windowFrameDef.getEnd().isCurrentRow()) {
-          setOperatorIssue(functionName + " only CURRENT ROW end frame is supported for RANGE");
-          return false;
+      List<ExprNodeDesc> exprNodeDescList = evaluatorInputExprNodeDescLists[i];
+      if (isSlidingRowsFrame) {
+        ColumnVector.Type colVecType = ColumnVector.Type.NONE;
+        if (exprNodeDescList != null && exprNodeDescList.size() == 1 &&
+            exprNodeDescList.get(0).getTypeInfo().getCategory() == Category.PRIMITIVE) {
+          colVecType = VectorizationContext.getColumnVectorTypeFromTypeInfo(
+              exprNodeDescList.get(0).getTypeInfo());
         }
-        break;
-      case ROWS:
-        if (!windowFrameDef.isEndUnbounded()) {
-          setOperatorIssue(functionName + " UNBOUNDED end frame is not supported for ROWS window type");
+        if (!VectorPTFDesc.isSlidingSupported(supportedFunctionType, colVecType)) {
+          setOperatorIssue(functionName + " not supported for sliding ROWS frame");
           return false;
         }
-        break;
-      default:
-        throw new RuntimeException("Unexpected window type " + windowFrameDef.getWindowType());
       }
-      List<ExprNodeDesc> exprNodeDescList = evaluatorInputExprNodeDescLists[i];
       if (exprNodeDescList != null && exprNodeDescList.size() > 1) {
         setOperatorIssue("More than 1 argument expression of aggregation function " + functionName);
         return false;
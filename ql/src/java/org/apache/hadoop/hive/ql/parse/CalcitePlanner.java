@@ -1919,7 +1919,10 @@ private RelNode applyPreJoinOrderingTransforms(RelNode basePlan, RelMetadataProv
         // Its not clear, if this rewrite is always performant on MR, since extra map phase
         // introduced for 2nd MR job may offset gains of this multi-stage aggregation.
         // We need a cost model for MR to enable this on MR.
-        basePlan = hepPlan(basePlan, true, mdProvider, executorProvider, HiveExpandDistinctAggregatesRule.INSTANCE);
+        basePlan = hepPlan(basePlan, true, mdProvider, executorProvider,
+            conf.getBoolVar(HiveConf.ConfVars.HIVEOPTIMIZEDISTINCTREWRITEGROUPBY) ?
+                HiveExpandDistinctAggregatesRule.INSTANCE_WITH_GROUP_KEYS :
+                HiveExpandDistinctAggregatesRule.INSTANCE);
         perfLogger.PerfLogEnd(this.getClass().getName(), PerfLogger.OPTIMIZER,
          "Calcite: Prejoin ordering transformation, Distinct aggregate rewrite");
       }
@@ -72,6 +72,22 @@ public static UnionWork createUnionWork(
     return unionWork;
   }
 
+  /*
+   * Whether the data size estimates of all the reduce sinks feeding root come from complete basic
+   * and column statistics.
+   */
+  private static boolean hasCompleteStatistics(Operator<?> root) {
+    for (Operator<?> parent : root.getParentOperators()) {
+      Statistics stats = parent.getStatistics();
+      if (stats == null ||
+          stats.getBasicStatsState() != Statistics.State.COMPLETE ||
+          stats.getColumnStatsState() != Statistics.State.COMPLETE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static ReduceWork createReduceWork(
       GenTezProcContext context, Operator<?> root, TezWork tezWork) {
     assert !root.getParentOperators().isEmpty();
@@ -107,17 +123,30 @@ public static ReduceWork createReduceWork(
       // estimated number of reducers
       final int nReducers = reduceSink.getConf().getNumReducers();
 
+      // When the estimate is not backed by complete statistics, let tez pick from a wider
+      // range: down to 1 reducer, and up to the larger uncertain max partition factor.
+      final float uncertainMaxPartitionFactor =
+          context.conf.getFloatVar(HiveConf.ConfVars.TEZ_UNCERTAIN_MAX_PARTITION_FACTOR);
+      final boolean isUncertain = uncertainMaxPartitionFactor > maxPartitionFactor &&
+          !hasCompleteStatistics(root);
+      if (isUncertain) {
+        LOG.info("Widening auto reducer parallelism range of " + reduceWork.getName() +
+            " since its data size estimate is not based on complete statistics");
+      }
+
       // min we allow tez to pick
-      int minPartition = Math.max(1, (int) (nReducers * minPartitionFactor));
+      int minPartition =
+          isUncertain ? 1 : Math.max(1, (int) (nReducers * minPartitionFactor));
       minPartition = (minPartition > maxReducers) ? maxReducers : minPartition;
 
       // max we allow tez to pick
-      int maxPartition = Math.max(1, (int) (nReducers * maxPartitionFactor));
+      int maxPartition = Math.max(1, (int) (nReducers *
+          (isUncertain ? uncertainMaxPartitionFactor : maxPartitionFactor)));
       maxPartition = (maxPartition > maxReducers) ? maxReducers : maxPartition;
 
       // reduce only if the parameters are significant
       if (minPartition < maxPartition &&
-          nReducers * minPartitionFactor >= 1.0) {
+          (isUncertain || nReducers * minPartitionFactor >= 1.0)) {
         reduceWork.setAutoReduceParallelism(true);
 
         reduceWork.setMinReduceTasks(minPartition);
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.TokenRewriteStream;
+import org.antlr.runtime.TokenSource;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.common.metrics.common.Metrics;
+import org.apache.hadoop.hive.common.metrics.common.MetricsConstant;
+import org.apache.hadoop.hive.common.metrics.common.MetricsFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of parse results, so that statements and view definitions which are compiled over and
+ * over again (dashboard queries, for example) do not have to go through the parser every time.
+ *
+ * The cache holds a private copy of the tokens and the tree of every statement.  Semantic
+ * analysis modifies the tree, its tokens and the token rewrite stream, so each hit hands out
+ * fresh copies of both.
+ */
+final class ParseCache {
+
+  private static volatile ParseCache instance;
+
+  private final Cache<String, Entry> cache;
+
+  private static final class Entry {
+    private final List<Token> tokens;
+    private final ASTNode tree;
+    private final long parseTimeMs;
+
+    private Entry(List<Token> tokens, ASTNode tree, long parseTimeMs) {
+      this.tokens = tokens;
+      this.tree = tree;
+      this.parseTimeMs = parseTimeMs;
+    }
+  }
+
+  /**
+   * Result of a cache hit: a token stream and tree which are owned by the caller.
+   */
+  static final class ParseResult {
+    private final TokenRewriteStream tokenStream;
+    private final ASTNode tree;
+
+    private ParseResult(TokenRewriteStream tokenStream, ASTNode tree) {
+      this.tokenStream = tokenStream;
+      this.tree = tree;
+    }
+
+    TokenRewriteStream getTokenStream() {
+      return tokenStream;
+    }
+
+    ASTNode getTree() {
+      return tree;
+    }
+  }
+
+  @VisibleForTesting
+  ParseCache(long maxSize) {
+    cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * @return the process wide cache, or null if caching is disabled.  The cache is sized by the
+   * configuration it is first requested with.
+   */
+  static ParseCache getInstance(Configuration conf) {
+    // Called for every statement, so don't take a lock once the cache exists or when it is off.
+    ParseCache result = instance;
+    if (result != null) {
+      return result;
+    }
+    long maxSize = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_PARSE_CACHE_SIZE);
+    if (maxSize <= 0) {
+      return null;
+    }
+    synchronized (ParseCache.class) {
+      if (instance == null) {
+        instance = new ParseCache(maxSize);
+      }
+      return instance;
+    }
+  }
+
+  /**
+   * Look up a previously parsed command.
+   * @return a private copy of the parse result, or null if the command is not cached
+   */
+  ParseResult get(String command, Configuration conf) {
+    Entry entry = cache.getIfPresent(getKey(command, conf));
+    if (entry == null) {
+      incrementMetric(MetricsConstant.PARSE_CACHE_MISSES, 1);
+      return null;
+    }
+    incrementMetric(MetricsConstant.PARSE_CACHE_HITS, 1);
+    incrementMetric(MetricsConstant.PARSE_CACHE_SAVED_TIME, entry.parseTimeMs);
+
+    TokenRewriteStream tokenStream = new TokenRewriteStream(new ReplayTokenSource(entry.tokens));
+    tokenStream.fill();
+    return new ParseResult(tokenStream, copyTree(entry.tree));
+  }
+
+  /**
+   * Add a successfully parsed command.  Must be called before the tree or tokens are modified.
+   */
+  void put(String command, Configuration conf, TokenRewriteStream tokenStream, ASTNode tree,
+      long parseTimeNs) {
+    List<? extends Token> tokens = tokenStream.getTokens();
+    List<Token> tokensCopy = new ArrayList<>(tokens.size());
+    for (Token token : tokens) {
+      tokensCopy.add(new CommonToken(token));
+    }
+    cache.put(getKey(command, conf), new Entry(tokensCopy, copyTree(tree),
+        TimeUnit.NANOSECONDS.toMillis(parseTimeNs)));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private static String getKey(String command, Configuration conf) {
+    // Quoted identifier support changes how the lexer tokenizes the command.
+    return HiveConf.getVar(conf, HiveConf.ConfVars.HIVE_QUOTEDID_SUPPORT) + ':' + command;
+  }
+
+  private static ASTNode copyTree(ASTNode node) {
+    ASTNode copy = new ASTNode(node);
+    if (node.getToken() != null) {
+      copy.token = new CommonToken(node.getToken());
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      copy.addChild(copyTree((ASTNode) node.getChild(i)));
+    }
+    return copy;
+  }
+
+  private static void incrementMetric(String name, long count) {
+    Metrics metrics = MetricsFactory.getInstance();
+    if (metrics != null) {
+      metrics.incrementCounter(name, count);
+    }
+  }
+
+  /**
+   * Hands out copies of the cached tokens, finishing with the EOF token.
+   */
+  private static final class ReplayTokenSource implements TokenSource {
+    private final List<Token> tokens;
+    private int next = 0;
+
+    private ReplayTokenSource(List<Token> tokens) {
+      this.tokens = tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+      if (next < tokens.size()) {
+        return new CommonToken(tokens.get(next++));
+      }
+      return new CommonToken(Token.EOF);
+    }
+
+    @Override
+    public String getSourceName() {
+      return "ParseCache";
+    }
+  }
+}
@@ -187,16 +187,24 @@ public ASTNode parse(String command, Context ctx, String viewFullyQualifiedName)
       LOG.debug("Parsing command: " + command);
     }
 
+    ParseCache parseCache = null;
+    if (ctx != null) {
+      parseCache = ParseCache.getInstance(ctx.getConf());
+      if (parseCache != null) {
+        ParseCache.ParseResult cached = parseCache.get(command, ctx.getConf());
+        if (cached != null) {
+          LOG.debug("Using cached parse result");
+          setTokenRewriteStream(ctx, viewFullyQualifiedName, cached.getTokenStream());
+          return cached.getTree();
+        }
+      }
+    }
+
+    long startTime = System.nanoTime();
     HiveLexerX lexer = new HiveLexerX(new ANTLRNoCaseStringStream(command));
     TokenRewriteStream tokens = new TokenRewriteStream(lexer);
     if (ctx != null) {
-      if (viewFullyQualifiedName == null) {
-        // Top level query
-        ctx.setTokenRewriteStream(tokens);
-      } else {
-        // It is a view
-        ctx.addViewTokenRewriteStream(viewFullyQualifiedName, tokens);
-      }
+      setTokenRewriteStream(ctx, viewFullyQualifiedName, tokens);
       lexer.setHiveConf(ctx.getConf());
     }
     HiveParser parser = new HiveParser(tokens);
@@ -222,9 +230,23 @@ public ASTNode parse(String command, Context ctx, String viewFullyQualifiedName)
 
     ASTNode tree = (ASTNode) r.getTree();
     tree.setUnknownTokenBoundaries();
+    if (parseCache != null) {
+      parseCache.put(command, ctx.getConf(), tokens, tree, System.nanoTime() - startTime);
+    }
     return tree;
   }
 
+  private static void setTokenRewriteStream(Context ctx, String viewFullyQualifiedName,
+      TokenRewriteStream tokens) {
+    if (viewFullyQualifiedName == null) {
+      // Top level query
+      ctx.setTokenRewriteStream(tokens);
+    } else {
+      // It is a view
+      ctx.addViewTokenRewriteStream(viewFullyQualifiedName, tokens);
+    }
+  }
+
   /*
    * Parse a string as a query hint.
    */
@@ -269,6 +269,7 @@
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.security.UserGroupInformation;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
@@ -14473,26 +14474,46 @@ public void setLoadFileWork(List<LoadFileDesc> loadFileWork) {
   }
 
   private String getQueryStringFromAst(ASTNode ast) {
-    StringBuilder sb = new StringBuilder();
-    int startIdx = ast.getTokenStartIndex();
-    int endIdx = ast.getTokenStopIndex();
-
     boolean queryNeedsQuotes = true;
     if (conf.getVar(ConfVars.HIVE_QUOTEDID_SUPPORT).equals("none")) {
       queryNeedsQuotes = false;
     }
+    return normalizeQueryTokens(ctx.getTokenRewriteStream(),
+        ast.getTokenStartIndex(), ast.getTokenStopIndex(), queryNeedsQuotes);
+  }
 
+  /**
+   * The string is used as the results cache key, so it is normalized to let queries which only
+   * differ in formatting share an entry: whitespace and comments are dropped and the remaining
+   * tokens are separated by a single space, and keywords and identifiers (both case insensitive)
+   * are lower cased. Literals are kept as they are.
+   */
+  @VisibleForTesting
+  static String normalizeQueryTokens(TokenRewriteStream tokens, int startIdx, int endIdx,
+      boolean queryNeedsQuotes) {
+    StringBuilder sb = new StringBuilder();
     for (int idx = startIdx; idx <= endIdx; idx++) {
-      Token curTok = ctx.getTokenRewriteStream().get(idx);
-      if (curTok.getType() == Token.EOF) {
+      Token curTok = tokens.get(idx);
+      if (curTok.getType() == Token.EOF || curTok.getChannel() == Token.HIDDEN_CHANNEL) {
         continue;
-      } else if (queryNeedsQuotes && curTok.getType() == HiveLexer.Identifier) {
-        // The Tokens have no distinction between Identifiers and QuotedIdentifiers.
-        // Ugly solution is just to surround all identifiers with quotes.
-        sb.append('`');
-        // Re-escape any backtick (`) characters in the identifier.
-        sb.append(curTok.getText().replaceAll("`", "``"));
-        sb.append('`');
+      }
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      if (curTok.getType() == HiveLexer.Identifier) {
+        String identifier = curTok.getText().toLowerCase();
+        if (queryNeedsQuotes) {
+          // The Tokens have no distinction between Identifiers and QuotedIdentifiers.
+          // Ugly solution is just to surround all identifiers with quotes.
+          sb.append('`');
+          // Re-escape any backtick (`) characters in the identifier.
+          sb.append(identifier.replaceAll("`", "``"));
+          sb.append('`');
+        } else {
+          sb.append(identifier);
+        }
+      } else if (isKeywordToken(curTok)) {
+        sb.append(curTok.getText().toLowerCase());
       } else {
         sb.append(curTok.getText());
       }
@@ -14500,6 +14521,12 @@ private String getQueryStringFromAst(ASTNode ast) {
     return sb.toString();
   }
 
+  private static boolean isKeywordToken(Token token) {
+    int type = token.getType();
+    return type >= 0 && type < HiveParser.tokenNames.length
+        && HiveParser.tokenNames[type].startsWith("KW_");
+  }
+
   /**
    * Generate the query string for this query (with fully resolved table references).
    * @return The query string with resolved references. NULL if an error occurred.
@@ -14553,7 +14580,9 @@ public ValidTxnWriteIdList get() {
               }
               return cachedWriteIdList;
             }
-          });
+          },
+          // Only results of queries reading transactional tables exclusively are shared
+          getNonTransactionalTables().isEmpty());
     }
     return lookupInfo;
   }
@@ -99,6 +99,9 @@ public ReduceWork(String name) {
   private String vectorReduceColumnSortOrder;
   private String vectorReduceColumnNullOrder;
 
+  // True if the values are shuffled as column blocks of whole batches.
+  private boolean isVectorColumnarValues;
+
   private transient TezEdgeProperty edgeProp;
 
   /**
@@ -287,6 +290,14 @@ public String getVectorReduceColumnNullOrder() {
     return vectorReduceColumnNullOrder;
   }
 
+  public void setIsVectorColumnarValues(boolean isVectorColumnarValues) {
+    this.isVectorColumnarValues = isVectorColumnarValues;
+  }
+
+  public boolean getIsVectorColumnarValues() {
+    return isVectorColumnarValues;
+  }
+
   // Use LinkedHashSet to give predictable display order.
   private static Set<String> reduceVectorizableEngines =
       new LinkedHashSet<String>(Arrays.asList("tez", "spark"));
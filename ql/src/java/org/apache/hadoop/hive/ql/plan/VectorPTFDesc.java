@@ -28,6 +28,7 @@
 import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorBase;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorCount;
+import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorCountSliding;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorCountStar;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDecimalAvg;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDecimalFirstValue;
@@ -41,15 +42,18 @@
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDoubleLastValue;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDoubleMax;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDoubleMin;
+import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDoubleSliding;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorDoubleSum;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongAvg;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongFirstValue;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongLastValue;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongMax;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongMin;
+import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongSliding;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorLongSum;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorRank;
 import org.apache.hadoop.hive.ql.exec.vector.ptf.VectorPTFEvaluatorRowNumber;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.WindowType;
 import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 
@@ -99,6 +103,9 @@ public static enum SupportedFunctionType {
     supportedFunctionNames.addAll(treeSet);
   }
 
+  // The largest ROWS BETWEEN n PRECEDING AND CURRENT ROW frame the sliding evaluators keep.
+  public static final int MAX_SLIDING_WINDOW_SIZE = 64 * 1024;
+
   private TypeInfo[] reducerBatchTypeInfos;
 
   private boolean isPartitionOrderBy;
@@ -133,11 +140,62 @@ public VectorPTFDesc() {
 
   }
 
+  /*
+   * Is the frame a ROWS BETWEEN n PRECEDING AND CURRENT ROW frame?  Those are evaluated by the
+   * streaming sliding evaluators.
+   */
+  public static boolean isSlidingRowsFrame(WindowFrameDef windowFrameDef) {
+    return windowFrameDef.getWindowType() == WindowType.ROWS &&
+        !windowFrameDef.isStartUnbounded() &&
+        !windowFrameDef.getStart().isFollowing() &&
+        windowFrameDef.getEnd().isCurrentRow();
+  }
+
+  public static int getSlidingWindowSize(WindowFrameDef windowFrameDef) {
+    return windowFrameDef.getStart().isCurrentRow() ? 1 : windowFrameDef.getStart().getAmt() + 1;
+  }
+
+  public static boolean isSlidingSupported(SupportedFunctionType functionType,
+      Type columnVectorType) {
+    switch (functionType) {
+    case COUNT:
+      return true;
+    case MIN:
+    case MAX:
+    case SUM:
+    case AVG:
+      return columnVectorType == Type.LONG || columnVectorType == Type.DOUBLE;
+    default:
+      return false;
+    }
+  }
+
+  private static VectorPTFEvaluatorBase getSlidingEvaluator(SupportedFunctionType functionType,
+      WindowFrameDef windowFrameDef, Type columnVectorType, VectorExpression inputVectorExpression,
+      int outputColumnNum) {
+    if (functionType == SupportedFunctionType.COUNT) {
+      return new VectorPTFEvaluatorCountSliding(windowFrameDef, inputVectorExpression, outputColumnNum);
+    }
+    switch (columnVectorType) {
+    case LONG:
+      return new VectorPTFEvaluatorLongSliding(windowFrameDef, functionType, inputVectorExpression, outputColumnNum);
+    case DOUBLE:
+      return new VectorPTFEvaluatorDoubleSliding(windowFrameDef, functionType, inputVectorExpression, outputColumnNum);
+    default:
+      throw new RuntimeException("Unexpected column vector type " + columnVectorType + " for sliding " + functionType);
+    }
+  }
+
   // We provide this public method to help EXPLAIN VECTORIZATION show the evaluator classes.
   public static VectorPTFEvaluatorBase getEvaluator(SupportedFunctionType functionType,
       WindowFrameDef windowFrameDef, Type columnVectorType, VectorExpression inputVectorExpression,
       int outputColumnNum) {
 
+    if (isSlidingRowsFrame(windowFrameDef)) {
+      return getSlidingEvaluator(
+          functionType, windowFrameDef, columnVectorType, inputVectorExpression, outputColumnNum);
+    }
+
     VectorPTFEvaluatorBase evaluator;
     switch (functionType) {
     case ROW_NUMBER:
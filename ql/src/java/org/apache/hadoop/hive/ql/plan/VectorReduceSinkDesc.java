@@ -73,6 +73,7 @@ public VectorReduceSinkInfo getVectorReduceSinkInfo() {
   private boolean isKeyBinarySortable;
   private boolean isValueLazyBinary;
   private boolean isUnexpectedCondition;
+  private boolean isColumnarValue;
 
   /*
    * The following conditions are for native Vector ReduceSink.
@@ -143,4 +144,15 @@ public void setIsUnexpectedCondition(boolean isUnexpectedCondition) {
   public boolean getIsUnexpectedCondition() {
     return isUnexpectedCondition;
   }
+
+  /*
+   * Set when the values are serialized as column blocks of whole batches, see
+   * VectorColumnBlockSerDe.  The reducer must be vectorized to read them.
+   */
+  public void setIsColumnarValue(boolean isColumnarValue) {
+    this.isColumnarValue = isColumnarValue;
+  }
+  public boolean getIsColumnarValue() {
+    return isColumnarValue;
+  }
 }
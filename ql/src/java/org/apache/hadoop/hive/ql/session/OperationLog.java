@@ -19,6 +19,7 @@
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.log.OperationLogBuffer;
 import org.apache.hadoop.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +46,8 @@ public class OperationLog {
   private final boolean isShortLogs;
   // True if the logs should be removed after the operation. Should be used only in test mode
   private final boolean isRemoveLogs;
+  // Set if the logs are kept in memory instead of the log file
+  private final LogBuffer logBuffer;
   private LoggingLevel opLoggingLevel = LoggingLevel.UNKNOWN;
 
   public enum LoggingLevel {
@@ -76,6 +79,13 @@ public OperationLog(String name, File file, HiveConf hiveConf) {
       isShortLogs = false;
       isRemoveLogs = true;
     }
+
+    // The log file is named after the query id the log lines are routed by
+    if (!isShortLogs && OperationLogBuffer.isEnabled()) {
+      logBuffer = new LogBuffer(file.getName());
+    } else {
+      logBuffer = null;
+    }
   }
 
   public static LoggingLevel getLoggingLevel (String mode) {
@@ -107,6 +117,8 @@ public List<String> readOperationLog(boolean isFetchFirst, long maxRows)
       throws SQLException {
     if (isShortLogs) {
       return testLogFile.read(isFetchFirst, maxRows);
+    } else if (logBuffer != null) {
+      return logBuffer.read(isFetchFirst, maxRows);
     } else {
       return logFile.read(isFetchFirst, maxRows);
     }
@@ -120,11 +132,41 @@ public void close() {
       // In case of test, do just close the log files, do not remove them.
       logFile.close(isRemoveLogs);
       testLogFile.close(isRemoveLogs);
+    } else if (logBuffer != null) {
+      logBuffer.close();
     } else {
       logFile.close(true);
     }
   }
 
+  /**
+   * Wrapper for reading the operation log from its in-memory buffer
+   */
+  private static class LogBuffer {
+    private final String queryId;
+    private final OperationLogBuffer buffer;
+    // Sequence number of the next line to return
+    private long cursor = 0;
+
+    LogBuffer(String queryId) {
+      this.queryId = queryId;
+      this.buffer = OperationLogBuffer.create(queryId);
+    }
+
+    synchronized List<String> read(boolean isFetchFirst, long maxRows) {
+      if (isFetchFirst) {
+        cursor = buffer.getFirstSeq();
+      }
+      List<String> logs = new ArrayList<String>();
+      cursor = buffer.read(cursor, maxRows, logs);
+      return logs;
+    }
+
+    void close() {
+      OperationLogBuffer.remove(queryId);
+    }
+  }
+
   /**
    * Wrapper for read the operation log file
    */
@@ -39,6 +39,8 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
@@ -48,6 +50,10 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -60,6 +66,7 @@ public class Cleaner extends CompactorThread {
   private long cleanerCheckInterval = 0;
 
   private ReplChangeManager replChangeManager;
+  private ExecutorService cleanerPool;
   // List of compactions to clean.
   private Map<Long, Set<Long>> compactId2LockMap = new HashMap<>();
   private Map<Long, CompactionInfo> compactId2CompactInfoMap = new HashMap<>();
@@ -68,6 +75,11 @@ public class Cleaner extends CompactorThread {
   public void init(AtomicBoolean stop, AtomicBoolean looped) throws MetaException {
     super.init(stop, looped);
     replChangeManager = ReplChangeManager.getInstance(conf);
+    int numThreads = conf.getIntVar(HiveConf.ConfVars.HIVE_COMPACTOR_CLEANER_THREADS);
+    if (numThreads > 1) {
+      cleanerPool = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("Cleaner-" + getId() + "-%d").build());
+    }
   }
 
   @Override
@@ -156,8 +168,6 @@ public void run() {
                 // Remember to remove this when we're out of the loop,
                 // we can't do it in the loop or we'll get a concurrent modification exception.
                 compactionsCleaned.add(queueEntry.getKey());
-                //Future thought: this may be expensive so consider having a thread pool run in parallel
-                clean(compactId2CompactInfoMap.get(queueEntry.getKey()));
               } else {
                 // Remove the locks we didn't see so we don't look for them again next time
                 for (Long lockId : expiredLocks) {
@@ -165,6 +175,7 @@ public void run() {
                 }
               }
             }
+            cleanAll(compactionsCleaned);
           } finally {
             if (compactionsCleaned.size() > 0) {
               for (Long compactId : compactionsCleaned) {
@@ -198,6 +209,56 @@ public void run() {
         }
       }
     } while (!stop.get());
+    if (cleanerPool != null) {
+      // cleanAll waits for the compactions it submits, so nothing is left running here
+      cleanerPool.shutdown();
+    }
+  }
+
+  /**
+   * Clean the given compactions, in parallel if more than one cleaner thread is configured.
+   * Returns once all of them are done.
+   *
+   * The table and partition are looked up on this thread, since the RawStore is not thread
+   * safe; only the file system work and marking the compactions cleaned run in the pool.
+   */
+  private void cleanAll(List<Long> compactIds) throws MetaException {
+    if (cleanerPool == null || compactIds.size() < 2) {
+      for (Long compactId : compactIds) {
+        clean(compactId2CompactInfoMap.get(compactId));
+      }
+      return;
+    }
+    long startedAt = System.currentTimeMillis();
+    List<Future<Void>> futures = new ArrayList<>(compactIds.size());
+    for (Long compactId : compactIds) {
+      final CompactionInfo ci = compactId2CompactInfoMap.get(compactId);
+      final String location = resolveLocation(ci);
+      if (location == null) {
+        continue;
+      }
+      futures.add(cleanerPool.submit(() -> {
+        removeObsolete(ci, location);
+        return null;
+      }));
+    }
+    MetaException firstError = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException | ExecutionException e) {
+        LOG.error("Caught exception while cleaning in parallel " +
+            StringUtils.stringifyException(e));
+        if (firstError == null) {
+          firstError = new MetaException("Unable to clean: " + e.getMessage());
+        }
+      }
+    }
+    LOG.info("Cleaned " + compactIds.size() + " compactions in " +
+        (System.currentTimeMillis() - startedAt) + "ms");
+    if (firstError != null) {
+      throw firstError;
+    }
   }
 
   private Set<Long> findRelatedLocks(CompactionInfo ci, ShowLocksResponse locksResponse) {
@@ -226,6 +287,18 @@ private Set<Long> buildCurrentLockSet(ShowLocksResponse locksResponse) {
   }
 
   private void clean(CompactionInfo ci) throws MetaException {
+    String location = resolveLocation(ci);
+    if (location != null) {
+      removeObsolete(ci, location);
+    }
+  }
+
+  /**
+   * Find where the compacted table or partition lives.
+   * @return the location, or null if there is nothing left to clean: the table or partition was
+   * dropped (the compaction is marked cleaned) or could not be looked up (marked failed)
+   */
+  private String resolveLocation(CompactionInfo ci) throws MetaException {
     LOG.info("Starting cleaning for " + ci.getFullPartitionName());
     try {
       Table t = resolveTable(ci);
@@ -233,7 +306,7 @@ private void clean(CompactionInfo ci) throws MetaException {
         // The table was dropped before we got around to cleaning it.
         LOG.info("Unable to find table " + ci.getFullTableName() + ", assuming it was dropped");
         txnHandler.markCleaned(ci);
-        return;
+        return null;
       }
       Partition p = null;
       if (ci.partName != null) {
@@ -243,11 +316,25 @@ private void clean(CompactionInfo ci) throws MetaException {
           LOG.info("Unable to find partition " + ci.getFullPartitionName() +
               ", assuming it was dropped");
           txnHandler.markCleaned(ci);
-          return;
+          return null;
         }
       }
       StorageDescriptor sd = resolveStorageDescriptor(t, p);
-      final String location = sd.getLocation();
+      return sd.getLocation();
+    } catch (Exception e) {
+      LOG.error("Caught exception when cleaning, unable to complete cleaning of " + ci + " " +
+          StringUtils.stringifyException(e));
+      txnHandler.markFailed(ci);
+      return null;
+    }
+  }
+
+  /**
+   * Remove the directories made obsolete by the compaction and mark it cleaned.  This does not
+   * use the RawStore, so it may run on any thread.
+   */
+  private void removeObsolete(CompactionInfo ci, final String location) throws MetaException {
+    try {
 
       /**
        * Each Compaction only compacts as far as the highest txn id such that all txns below it
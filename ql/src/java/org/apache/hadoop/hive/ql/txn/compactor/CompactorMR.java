@@ -325,6 +325,18 @@ private void launchCompactionJob(JobConf job, Path baseDir, CompactionType compa
     job.setLong(MIN_TXN, minTxn);
     job.setLong(MAX_TXN, maxTxn);
 
+    // Sizing the input costs a NameNode call per directory, so only do it when local mode is on.
+    long inputBytes = -1;
+    long localModeMaxBytes = hiveConf.getLongVar(HiveConf.ConfVars.COMPACTOR_LOCAL_MODE_MAX_BYTES);
+    if (localModeMaxBytes > 0) {
+      inputBytes = getInputSize(job, dirsToSearch);
+    }
+    if (localModeMaxBytes > 0 && inputBytes <= localModeMaxBytes) {
+      LOG.info("Running compaction job '" + job.getJobName() + "' locally since its input of " +
+          inputBytes + " bytes is below " + HiveConf.ConfVars.COMPACTOR_LOCAL_MODE_MAX_BYTES.varname);
+      ShimLoader.getHadoopShims().setJobLauncherRpcAddress(job, "local");
+    }
+
     if (hiveConf.getBoolVar(HiveConf.ConfVars.HIVE_IN_TEST)) {
       mrJob = job;
     }
@@ -334,6 +346,7 @@ private void launchCompactionJob(JobConf job, Path baseDir, CompactionType compa
       "(current delta dirs count=" + curDirNumber +
       ", obsolete delta dirs count=" + obsoleteDirNumber + ". TxnIdRange[" + minTxn + "," + maxTxn + "]");
     JobClient jc = null;
+    long startedAt = System.currentTimeMillis();
     try {
       jc = new JobClient(job);
       RunningJob rj = jc.submitJob(job);
@@ -345,12 +358,32 @@ private void launchCompactionJob(JobConf job, Path baseDir, CompactionType compa
         throw new IOException((compactionType == CompactionType.MAJOR ? "Major" : "Minor") +
                " compactor job failed for " + jobName + "! Hadoop JobId: " + rj.getID());
       }
+      long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+      if (inputBytes >= 0) {
+        double mbPerSec = (inputBytes / (1024.0 * 1024.0)) / (elapsed / 1000.0);
+        LOG.info("Compaction job '" + job.getJobName() + "' compacted " + inputBytes + " bytes in " +
+            elapsed + "ms (" + String.format("%.2f", mbPerSec) + " MB/s)");
+      } else {
+        LOG.info("Compaction job '" + job.getJobName() + "' finished in " + elapsed + "ms");
+      }
     } finally {
       if (jc!=null) {
         jc.close();
       }
     }
   }
+  /**
+   * @return total length of the files under the given directories and files
+   */
+  private long getInputSize(JobConf job, List<Path> dirsToSearch) throws IOException {
+    long size = 0;
+    for (Path path : dirsToSearch) {
+      FileSystem fs = path.getFileSystem(job);
+      size += fs.getContentSummary(path).getLength();
+    }
+    return size;
+  }
+
   /**
    * Set the column names and types into the job conf for the input format
    * to use.
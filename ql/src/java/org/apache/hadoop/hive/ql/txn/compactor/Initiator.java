@@ -47,7 +47,9 @@
 
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -93,6 +95,7 @@ public void run() {
           Set<CompactionInfo> potentials = txnHandler.findPotentialCompactions(abortedThreshold);
           LOG.debug("Found " + potentials.size() + " potential compactions, " +
               "checking to see if we should compact any of them");
+          List<CompactionCandidate> candidates = new ArrayList<>();
           for (CompactionInfo ci : potentials) {
             LOG.info("Checking to see if we should compact " + ci.getFullPartitionName());
             try {
@@ -157,9 +160,9 @@ public void run() {
               /*Future thought: checkForCompaction will check a lot of file metadata and may be expensive.
               * Long term we should consider having a thread pool here and running checkForCompactionS
               * in parallel*/
-              CompactionType compactionNeeded
+              CompactionCandidate candidate
                       = checkForCompaction(ci, tblValidWriteIds, sd, t.getParameters(), runAs);
-              if (compactionNeeded != null) requestCompaction(ci, runAs, compactionNeeded);
+              if (candidate != null) candidates.add(candidate);
             } catch (Throwable t) {
               LOG.error("Caught exception while trying to determine if we should compact " +
                   ci + ".  Marking failed to avoid repeated failures, " +
@@ -168,6 +171,21 @@ public void run() {
             }
           }
 
+          // Workers pick up requests in the order they were made, so request the compactions
+          // that hurt readers the most first.
+          candidates.sort(Comparator.comparingLong((CompactionCandidate c) -> c.readAmplification)
+              .reversed());
+          for (CompactionCandidate candidate : candidates) {
+            try {
+              requestCompaction(candidate.ci, candidate.runAs, candidate.type);
+            } catch (Throwable t) {
+              LOG.error("Caught exception while requesting compaction of " + candidate.ci +
+                  ".  Marking failed to avoid repeated failures, " +
+                  "" + StringUtils.stringifyException(t));
+              txnHandler.markFailed(candidate.ci);
+            }
+          }
+
           // Check for timed out remote workers.
           recoverFailedCompactions(true);
 
@@ -227,17 +245,47 @@ private boolean lookForCurrentCompactions(ShowCompactResponse compactions,
     return false;
   }
 
-  private CompactionType checkForCompaction(final CompactionInfo ci,
-                                            final ValidWriteIdList writeIds,
-                                            final StorageDescriptor sd,
-                                            final Map<String, String> tblproperties,
-                                            final String runAs)
+  /**
+   * A compaction the Initiator decided to request, with the number of directories a reader
+   * currently has to merge for it.
+   */
+  private static final class CompactionCandidate {
+    private final CompactionInfo ci;
+    private final String runAs;
+    private final CompactionType type;
+    private final long readAmplification;
+
+    private CompactionCandidate(CompactionInfo ci, String runAs, CompactionType type,
+        long readAmplification) {
+      this.ci = ci;
+      this.runAs = runAs;
+      this.type = type;
+      this.readAmplification = readAmplification;
+    }
+  }
+
+  /**
+   * Delete deltas are counted twice since every row read has to be checked against them.
+   */
+  private static long readAmplification(List<AcidUtils.ParsedDelta> deltas) {
+    long cost = 1;
+    for (AcidUtils.ParsedDelta delta : deltas) {
+      cost += delta.isDeleteDelta() ? 2 : 1;
+    }
+    return cost;
+  }
+
+  private CompactionCandidate checkForCompaction(final CompactionInfo ci,
+                                                 final ValidWriteIdList writeIds,
+                                                 final StorageDescriptor sd,
+                                                 final Map<String, String> tblproperties,
+                                                 final String runAs)
       throws IOException, InterruptedException {
     // If it's marked as too many aborted, we already know we need to compact
     if (ci.tooManyAborts) {
       LOG.debug("Found too many aborted transactions for " + ci.getFullPartitionName() + ", " +
           "initiating major compaction");
-      return CompactionType.MAJOR;
+      return new CompactionCandidate(ci, runAs, CompactionType.MAJOR, Long.MAX_VALUE);
     }
 
     // If it is for insert-only transactional table, return null.
@@ -246,15 +294,15 @@ private CompactionType checkForCompaction(final CompactionInfo ci,
     }
 
     if (runJobAsSelf(runAs)) {
-      return determineCompactionType(ci, writeIds, sd, tblproperties);
+      return determineCompactionType(ci, writeIds, sd, tblproperties, runAs);
     } else {
       LOG.info("Going to initiate as user " + runAs);
       UserGroupInformation ugi = UserGroupInformation.createProxyUser(runAs,
         UserGroupInformation.getLoginUser());
-      CompactionType compactionType = ugi.doAs(new PrivilegedExceptionAction<CompactionType>() {
+      CompactionCandidate candidate = ugi.doAs(new PrivilegedExceptionAction<CompactionCandidate>() {
         @Override
-        public CompactionType run() throws Exception {
-          return determineCompactionType(ci, writeIds, sd, tblproperties);
+        public CompactionCandidate run() throws Exception {
+          return determineCompactionType(ci, writeIds, sd, tblproperties, runAs);
         }
       });
       try {
@@ -263,12 +311,14 @@ public CompactionType run() throws Exception {
         LOG.error("Could not clean up file-system handles for UGI: " + ugi + " for " +
             ci.getFullPartitionName(), exception);
       }
-      return compactionType;
+      return candidate;
     }
   }
 
-  private CompactionType determineCompactionType(CompactionInfo ci, ValidWriteIdList writeIds,
-                                                 StorageDescriptor sd, Map<String, String> tblproperties)
+  private CompactionCandidate determineCompactionType(CompactionInfo ci, ValidWriteIdList writeIds,
+                                                      StorageDescriptor sd,
+                                                      Map<String, String> tblproperties,
+                                                      String runAs)
       throws IOException, InterruptedException {
 
     boolean noBase = false;
@@ -324,7 +374,9 @@ private CompactionType determineCompactionType(CompactionInfo ci, ValidWriteIdLi
         msg.append(bigEnough);
         LOG.debug(msg.toString());
       }
-      if (bigEnough) return CompactionType.MAJOR;
+      if (bigEnough) {
+        return new CompactionCandidate(ci, runAs, CompactionType.MAJOR, readAmplification(deltas));
+      }
     }
 
     String deltaNumProp = tblproperties.get(COMPACTORTHRESHOLD_PREFIX +
@@ -338,7 +390,8 @@ private CompactionType determineCompactionType(CompactionInfo ci, ValidWriteIdLi
           (enough ? "" : "not") + " and no base, requesting " + (noBase ? "major" : "minor") +
           " compaction");
       // If there's no base file, do a major compaction
-      return noBase ? CompactionType.MAJOR : CompactionType.MINOR;
+      return new CompactionCandidate(ci, runAs,
+          noBase ? CompactionType.MAJOR : CompactionType.MINOR, readAmplification(deltas));
     }
     return null;
   }
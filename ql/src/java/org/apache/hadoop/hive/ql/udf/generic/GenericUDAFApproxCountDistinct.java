@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.hive.common.ndv.hll.HyperLogLog;
+import org.apache.hadoop.hive.common.ndv.hll.HyperLogLogUtils;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedUDAFs;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates.VectorUDAFApproxCountDistinct;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates.VectorUDAFApproxCountDistinctMerge;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BinaryObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DateObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hive.common.util.Murmur3;
+
+/**
+ * GenericUDAFApproxCountDistinct.
+ *
+ * Estimates the number of distinct values with a HyperLogLog sketch.  The partial aggregation is
+ * the serialized sketch, so the aggregation never shuffles the distinct values themselves.
+ */
+@Description(name = "approx_count_distinct",
+    value = "_FUNC_(x) - Returns an estimate of the number of distinct non-NULL values of x",
+    extended = "The estimate comes from a HyperLogLog sketch with 2^14 registers, which has a "
+        + "standard error of about 0.8%.")
+public class GenericUDAFApproxCountDistinct extends AbstractGenericUDAFResolver {
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(TypeInfo[] parameters) throws SemanticException {
+    if (parameters.length != 1) {
+      throw new UDFArgumentTypeException(parameters.length - 1,
+          "Exactly one argument is expected.");
+    }
+
+    if (parameters[0].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+      throw new UDFArgumentTypeException(0,
+          "Only primitive type arguments are accepted but "
+              + parameters[0].getTypeName() + " is passed.");
+    }
+    switch (((PrimitiveTypeInfo) parameters[0]).getPrimitiveCategory()) {
+    case BOOLEAN:
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case DATE:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case VARCHAR:
+    case BINARY:
+      return new GenericUDAFApproxCountDistinctEvaluator();
+    default:
+      throw new UDFArgumentTypeException(0,
+          "Only integer, floating point, date, string, varchar or binary type arguments are "
+              + "accepted but " + parameters[0].getTypeName() + " is passed.");
+    }
+  }
+
+  /**
+   * GenericUDAFApproxCountDistinctEvaluator.
+   *
+   * The values are hashed the same way by the vectorized aggregations, so sketches built in
+   * row mode and in vector mode can be merged.
+   */
+  @VectorizedUDAFs({
+    VectorUDAFApproxCountDistinct.class,
+    VectorUDAFApproxCountDistinctMerge.class})
+  public static class GenericUDAFApproxCountDistinctEvaluator extends GenericUDAFEvaluator {
+
+    // For PARTIAL1 and COMPLETE: ObjectInspector for the original data.
+    private transient PrimitiveObjectInspector inputOI;
+
+    // For PARTIAL2 and FINAL: ObjectInspector for the serialized sketch.
+    private transient BinaryObjectInspector partialOI;
+
+    private final transient byte[] scratchBytes = new byte[Long.BYTES];
+    private final transient Text text = new Text();
+
+    @Override
+    public ObjectInspector init(Mode m, ObjectInspector[] parameters) throws HiveException {
+      super.init(m, parameters);
+
+      if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
+        inputOI = (PrimitiveObjectInspector) parameters[0];
+      } else {
+        partialOI = (BinaryObjectInspector) parameters[0];
+      }
+
+      if (mode == Mode.PARTIAL1 || mode == Mode.PARTIAL2) {
+        return PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+      } else {
+        return PrimitiveObjectInspectorFactory.writableLongObjectInspector;
+      }
+    }
+
+    /** class for storing the sketch. */
+    @AggregationType(estimable = true)
+    static class HyperLogLogBuffer extends AbstractAggregationBuffer {
+      HyperLogLog hll;
+
+      @Override
+      public int estimate() {
+        return JavaDataModel.PRIMITIVES1 + hll.lengthFor(JavaDataModel.get());
+      }
+    }
+
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      HyperLogLogBuffer buffer = new HyperLogLogBuffer();
+      reset(buffer);
+      return buffer;
+    }
+
+    @Override
+    public void reset(AggregationBuffer agg) throws HiveException {
+      // HyperLogLog.reset() does not clear the registers.
+      ((HyperLogLogBuffer) agg).hll = createHyperLogLog();
+    }
+
+    @Override
+    public void iterate(AggregationBuffer agg, Object[] parameters) throws HiveException {
+      Object p = parameters[0];
+      if (p == null) {
+        return;
+      }
+      HyperLogLog hll = ((HyperLogLogBuffer) agg).hll;
+      switch (inputOI.getPrimitiveCategory()) {
+      case BOOLEAN:
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        hll.add(hashLong(PrimitiveObjectInspectorUtils.getLong(p, inputOI), scratchBytes));
+        break;
+      case DATE:
+        hll.add(hashLong(
+            ((DateObjectInspector) inputOI).getPrimitiveWritableObject(p).getDays(),
+            scratchBytes));
+        break;
+      case FLOAT:
+      case DOUBLE:
+        hll.add(hashDouble(PrimitiveObjectInspectorUtils.getDouble(p, inputOI), scratchBytes));
+        break;
+      case STRING:
+      case VARCHAR:
+        text.set(PrimitiveObjectInspectorUtils.getString(p, inputOI));
+        hll.add(hashBytes(text.getBytes(), 0, text.getLength()));
+        break;
+      case BINARY:
+        {
+          BytesWritable bytes = PrimitiveObjectInspectorUtils.getBinary(p, inputOI);
+          hll.add(hashBytes(bytes.getBytes(), 0, bytes.getLength()));
+        }
+        break;
+      default:
+        throw new HiveException("Unexpected primitive category " + inputOI.getPrimitiveCategory());
+      }
+    }
+
+    @Override
+    public Object terminatePartial(AggregationBuffer agg) throws HiveException {
+      return new BytesWritable(((HyperLogLogBuffer) agg).hll.serialize());
+    }
+
+    @Override
+    public void merge(AggregationBuffer agg, Object partial) throws HiveException {
+      if (partial == null) {
+        return;
+      }
+      BytesWritable bytes = partialOI.getPrimitiveWritableObject(partial);
+      mergeSerialized(((HyperLogLogBuffer) agg).hll, bytes.getBytes(), 0, bytes.getLength());
+    }
+
+    @Override
+    public Object terminate(AggregationBuffer agg) throws HiveException {
+      return new LongWritable(((HyperLogLogBuffer) agg).hll.count());
+    }
+  }
+
+  public static HyperLogLog createHyperLogLog() {
+    return HyperLogLog.builder().build();
+  }
+
+  /*
+   * Hash a value for the sketch.  Integer family values (and dates) are hashed as 8 byte big
+   * endian longs, floating point values as the bits of their double, and strings as their
+   * UTF-8 bytes.  This matches HyperLogLog.addLong / addDouble / addBytes, but does not use the
+   * static buffers those methods share between threads.
+   */
+
+  public static long hashLong(long value, byte[] scratchBytes) {
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      scratchBytes[i] = (byte) value;
+      value >>>= 8;
+    }
+    return Murmur3.hash64(scratchBytes, 0, Long.BYTES);
+  }
+
+  public static long hashDouble(double value, byte[] scratchBytes) {
+    return hashLong(Double.doubleToRawLongBits(value), scratchBytes);
+  }
+
+  public static long hashBytes(byte[] bytes, int start, int length) {
+    return Murmur3.hash64(bytes, start, length);
+  }
+
+  /**
+   * Merge a serialized sketch into a sketch.
+   */
+  public static void mergeSerialized(HyperLogLog hll, byte[] bytes, int start, int length)
+      throws HiveException {
+    try {
+      hll.merge(HyperLogLogUtils.deserializeHLL(new ByteArrayInputStream(bytes, start, length)));
+    } catch (IOException | IllegalArgumentException e) {
+      throw new HiveException("Error merging HyperLogLog sketch", e);
+    }
+  }
+}
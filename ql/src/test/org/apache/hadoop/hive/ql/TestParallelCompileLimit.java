@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.processors.CommandProcessorResponse;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for hive.driver.parallel.compilation.global.limit.
+ */
+public class TestParallelCompileLimit {
+
+  private static HiveConf conf;
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    conf = new HiveConf(TestParallelCompileLimit.class);
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SUPPORT_CONCURRENCY, false);
+    conf.setVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_MANAGER,
+        "org.apache.hadoop.hive.ql.security.authorization.plugin.sqlstd.SQLStdHiveAuthorizerFactory");
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION, true);
+    // A single slot, so a nested compilation which needed its own would time out
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION_LIMIT, 1);
+    conf.setTimeVar(HiveConf.ConfVars.HIVE_SERVER2_COMPILE_LOCK_TIMEOUT, 1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testNestedCompile() throws Exception {
+    // EXPLAIN ANALYZE compiles and runs the query while the explain is being compiled
+    CommandProcessorResponse response = run("explain analyze select 1");
+    assertEquals(response.getErrorMessage(), 0, response.getResponseCode());
+
+    // The slot is free again, also for other threads
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<CommandProcessorResponse> other = executor.submit(() -> run("select 1"));
+      response = other.get();
+      assertEquals(response.getErrorMessage(), 0, response.getResponseCode());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static CommandProcessorResponse run(String query) {
+    SessionState.start(conf);
+    Driver driver = new Driver(conf);
+    try {
+      return driver.run(query);
+    } finally {
+      driver.close();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.cache.results;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.ValidReaderWriteIdList;
+import org.apache.hadoop.hive.common.ValidTxnWriteIdList;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.ql.cache.results.QueryResultsCache.CacheEntry;
+import org.apache.hadoop.hive.ql.cache.results.QueryResultsCache.LookupInfo;
+import org.apache.hadoop.hive.ql.cache.results.QueryResultsCache.QueryInfo;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.hooks.ReadEntity;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for sharing query results cache entries between two cache instances.
+ */
+public class TestQueryResultsCache {
+
+  private static final String QUERY = "select count ( * ) from `default` . `acid_tbl`";
+  private static final long LIFETIME_MS = TimeUnit.HOURS.toMillis(1);
+
+  private HiveConf conf;
+  private FileSystem fs;
+  private Path rootDir;
+  private Path sharedDir;
+  private Set<ReadEntity> inputs;
+  private ValidTxnWriteIdList writeIds;
+  private QueryResultsCache cache1;
+  private QueryResultsCache cache2;
+
+  @Before
+  public void setUp() throws Exception {
+    rootDir = new Path(System.getProperty("java.io.tmpdir") + File.separator
+        + TestQueryResultsCache.class.getCanonicalName() + "-" + System.currentTimeMillis());
+    sharedDir = new Path(rootDir, "shared");
+
+    conf = new HiveConf();
+    conf.setVar(HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_DIRECTORY, rootDir.toString());
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_SHARED_ENABLED, true);
+    conf.setTimeVar(HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_MAX_ENTRY_LIFETIME,
+        LIFETIME_MS, TimeUnit.MILLISECONDS);
+    conf.setTimeVar(HiveConf.ConfVars.HIVE_QUERY_RESULTS_CACHE_SHARED_NEGATIVE_LOOKUP_TTL,
+        LIFETIME_MS, TimeUnit.MILLISECONDS);
+    fs = rootDir.getFileSystem(conf);
+
+    Table table = new Table("default", "acid_tbl");
+    table.setProperty("transactional", "true");
+    inputs = new HashSet<ReadEntity>();
+    inputs.add(new ReadEntity(table));
+    writeIds = new ValidTxnWriteIdList(10L);
+    writeIds.addTableValidWriteIdList(
+        new ValidReaderWriteIdList("default.acid_tbl", new long[0], new BitSet(), 5));
+
+    // Two instances sharing one cache directory, as two HiveServer2 instances would.
+    // Unshared entries are cleaned up through the process wide instance.
+    QueryResultsCache.initialize(conf);
+    cache1 = QueryResultsCache.getInstance();
+    cache2 = new QueryResultsCache(conf);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    cache2.clear();
+    QueryResultsCache.cleanupInstance();
+    fs.delete(rootDir, true);
+  }
+
+  @Test
+  public void testPublishAndLookup() throws Exception {
+    CacheEntry published = addEntry(cache1, createResults(), writeIds);
+    Assert.assertTrue(published.getCachedResultsPath().toString()
+        .startsWith(new Path(sharedDir, "data").toString()));
+
+    CacheEntry imported = cache2.lookup(new LookupInfo(QUERY, () -> writeIds));
+    Assert.assertNotNull(imported);
+    Assert.assertEquals(QueryResultsCache.CacheEntryStatus.VALID, imported.getStatus());
+    Assert.assertEquals(published.getCachedResultsPath(), imported.getCachedResultsPath());
+
+    // A snapshot with newer writes to the table must not use the shared entry
+    ValidTxnWriteIdList newerWriteIds = new ValidTxnWriteIdList(11L);
+    newerWriteIds.addTableValidWriteIdList(
+        new ValidReaderWriteIdList("default.acid_tbl", new long[0], new BitSet(), 6));
+    cache2.clear();
+    Assert.assertNull(cache2.lookup(new LookupInfo(QUERY, () -> newerWriteIds)));
+  }
+
+  @Test
+  public void testZeroRowResultsAreNotShared() throws Exception {
+    Path noResults = new Path(rootDir, "no_results");
+    CacheEntry entry = addEntry(cache1, noResults, writeIds);
+    Assert.assertEquals(QueryResultsCache.CacheEntryStatus.VALID, entry.getStatus());
+
+    Assert.assertEquals(0, listFiles(new Path(sharedDir, "index")).size());
+    Assert.assertNull(cache2.lookup(new LookupInfo(QUERY, () -> writeIds)));
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    CacheEntry published = addEntry(cache1, createResults(), writeIds);
+    Path results = published.getCachedResultsPath();
+    CacheEntry imported = cache2.lookup(new LookupInfo(QUERY, () -> writeIds));
+    Assert.assertNotNull(imported);
+    Assert.assertTrue(imported.addReader());
+
+    // The entry is done on the instance which published it
+    cache1.removeEntry(published);
+    cache1.renewSharedLeases();
+
+    // Long after publishing, the index is gone, but the results are still leased by cache2
+    long later = System.currentTimeMillis() + 3 * LIFETIME_MS;
+    renewLeasesAt(results, later);
+    cache1.cleanupSharedDirectory(later);
+    Assert.assertEquals(0, listFiles(new Path(sharedDir, "index")).size());
+    // The index directory for the query is removed once it is empty
+    Assert.assertEquals(0, fs.listStatus(new Path(sharedDir, "index")).length);
+    Assert.assertTrue(fs.exists(results));
+
+    // Still in use by a reader after being invalidated
+    cache2.removeEntry(imported);
+    cache2.renewSharedLeases();
+    renewLeasesAt(results, later);
+    cache1.cleanupSharedDirectory(later);
+    Assert.assertTrue(fs.exists(results));
+
+    // The last reader is done, so the lease is released and the results can go
+    imported.releaseReader();
+    cache2.renewSharedLeases();
+    cache1.cleanupSharedDirectory(later);
+    Assert.assertFalse(fs.exists(results));
+    Assert.assertFalse(fs.exists(new Path(new Path(sharedDir, "leases"), results.getName())));
+  }
+
+  @Test
+  public void testExpiryOfAbandonedLease() throws Exception {
+    CacheEntry published = addEntry(cache1, createResults(), writeIds);
+    Path results = published.getCachedResultsPath();
+
+    // An instance which went away never releases its lease, it expires instead
+    long later = System.currentTimeMillis() + 3 * LIFETIME_MS;
+    cache1.cleanupSharedDirectory(later);
+    Assert.assertFalse(fs.exists(results));
+  }
+
+  @Test
+  public void testMissIsRemembered() throws Exception {
+    Assert.assertNull(cache2.lookup(new LookupInfo(QUERY, () -> writeIds)));
+    addEntry(cache1, createResults(), writeIds);
+
+    // Within the negative lookup ttl the shared index is not looked at again
+    Assert.assertNull(cache2.lookup(new LookupInfo(QUERY, () -> writeIds)));
+    // An instance which did not look up the query before finds the entry
+    QueryResultsCache cache3 = new QueryResultsCache(conf);
+    try {
+      Assert.assertNotNull(cache3.lookup(new LookupInfo(QUERY, () -> writeIds)));
+    } finally {
+      cache3.clear();
+    }
+  }
+
+  @Test
+  public void testSharedLookupNotUsedForUnshareableQuery() throws Exception {
+    addEntry(cache1, createResults(), writeIds);
+
+    Assert.assertNull(cache2.lookup(new LookupInfo(QUERY, () -> writeIds, false)));
+    Assert.assertNotNull(cache2.lookup(new LookupInfo(QUERY, () -> writeIds, true)));
+  }
+
+  private CacheEntry addEntry(QueryResultsCache cache, Path resultsDir,
+      ValidTxnWriteIdList txnWriteIds) {
+    QueryInfo queryInfo = new QueryInfo(System.currentTimeMillis(),
+        new LookupInfo(QUERY, () -> txnWriteIds), HiveOperation.QUERY,
+        Collections.singletonList(new FieldSchema("_c0", "bigint", null)), null, null, inputs);
+    CacheEntry entry = cache.addToCache(queryInfo);
+    Assert.assertTrue(cache.setEntryValid(entry,
+        new FetchWork(resultsDir, Utilities.defaultTd), txnWriteIds));
+    entry.releaseReader();
+    return entry;
+  }
+
+  private Path createResults() throws Exception {
+    Path resultsDir = new Path(rootDir, "results_" + System.nanoTime());
+    try (OutputStream out = fs.create(new Path(resultsDir, "000000_0"))) {
+      out.write("42\n".getBytes());
+    }
+    return resultsDir;
+  }
+
+  private Set<Path> listFiles(Path dir) throws Exception {
+    Set<Path> files = new HashSet<Path>();
+    for (FileStatus subDir : fs.listStatus(dir)) {
+      for (FileStatus file : fs.listStatus(subDir.getPath())) {
+        files.add(file.getPath());
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Make the current leases look renewed at the given time, the clock the cleanup is run with.
+   */
+  private void renewLeasesAt(Path results, long now) throws Exception {
+    Path leaseDir = new Path(new Path(sharedDir, "leases"), results.getName());
+    for (FileStatus lease : fs.listStatus(leaseDir)) {
+      fs.setTimes(lease.getPath(), now, -1);
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.tez;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hive.common.type.DataTypePhysicalVariation;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorColumnBlockSerDe;
+import org.apache.hadoop.hive.ql.exec.vector.VectorGroupByOperator;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.metadata.VirtualColumn;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinarySerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.tez.runtime.library.api.KeyValuesReader;
+import org.junit.Test;
+
+public class TestReduceRecordSource {
+
+  /**
+   * The batch created by init() itself must be able to take string values from column blocks.
+   */
+  @Test
+  public void testColumnarStringValues() throws Exception {
+    TableDesc keyTableDesc = PlanUtils.getReduceKeyTableDesc(
+        Collections.singletonList(new FieldSchema("reducesinkkey0", "bigint", null)), "+", "a");
+    TableDesc valueTableDesc = PlanUtils.getReduceValueTableDesc(
+        Collections.singletonList(new FieldSchema("_col0", "string", null)));
+    VectorizedRowBatchCtx batchContext = new VectorizedRowBatchCtx(
+        new String[] { "KEY.reducesinkkey0", "VALUE._col0" },
+        new TypeInfo[] { TypeInfoFactory.longTypeInfo, TypeInfoFactory.stringTypeInfo },
+        null, null, 0, 0, new VirtualColumn[0], new String[0], new DataTypePhysicalVariation[0]);
+
+    String[] values = new String[] { "a", "bb", null, "bb", "ccc", "", "dddd" };
+    final BytesWritable key = serializeKey(keyTableDesc, 7L);
+    final List<Object> valueBlocks = Collections.<Object>singletonList(serializeValues(values));
+
+    final List<String> received = new ArrayList<String>();
+    Operator<?> reducer = mock(Operator.class);
+    doAnswer(invocation -> {
+      VectorizedRowBatch batch = (VectorizedRowBatch) invocation.getArguments()[0];
+      BytesColumnVector valueColumn = (BytesColumnVector) batch.cols[1];
+      for (int i = 0; i < batch.size; i++) {
+        int row = valueColumn.isRepeating ? 0 : i;
+        received.add(!valueColumn.noNulls && valueColumn.isNull[row]
+            ? null : valueColumn.toString(row));
+      }
+      return null;
+    }).when(reducer).process(any(), anyInt());
+
+    KeyValuesReader reader = new KeyValuesReader() {
+      private boolean done = false;
+
+      @Override
+      public boolean next() {
+        boolean hasNext = !done;
+        done = true;
+        return hasNext;
+      }
+
+      @Override
+      public Object getCurrentKey() {
+        return key;
+      }
+
+      @Override
+      public Iterable<Object> getCurrentValues() {
+        return valueBlocks;
+      }
+    };
+
+    ReduceRecordSource source = new ReduceRecordSource();
+    source.init(new JobConf(new HiveConf()), reducer, /* vectorized */ true, keyTableDesc,
+        valueTableDesc, reader, /* handleGroupKey */ false, (byte) 0, batchContext, 0, 0,
+        /* isColumnarValues */ true);
+
+    assertTrue(source.pushRecord());
+    assertFalse(source.pushRecord());
+    assertEquals(Arrays.asList(values), received);
+  }
+
+  /**
+   * With group runs, the rows of several key groups share a batch and a group may span batches.
+   */
+  @Test
+  public void testGroupRuns() throws Exception {
+    TableDesc keyTableDesc = PlanUtils.getReduceKeyTableDesc(
+        Collections.singletonList(new FieldSchema("reducesinkkey0", "bigint", null)), "+", "a");
+    TableDesc valueTableDesc = PlanUtils.getReduceValueTableDesc(
+        Collections.singletonList(new FieldSchema("_col0", "bigint", null)));
+    VectorizedRowBatchCtx batchContext = new VectorizedRowBatchCtx(
+        new String[] { "KEY.reducesinkkey0", "VALUE._col0" },
+        new TypeInfo[] { TypeInfoFactory.longTypeInfo, TypeInfoFactory.longTypeInfo },
+        null, null, 0, 0, new VirtualColumn[0], new String[0], new DataTypePhysicalVariation[0]);
+
+    // The key and the values of each key group.
+    final long[][] groups = new long[][] {
+        { 1L, 10L, 11L }, { 2L, 20L }, { 3L, 30L, 31L, 32L, 33L }, { 4L, 40L }, { 5L, 50L, 51L } };
+
+    // What the group by receives: for each batch, the key and the values of each run.
+    final List<List<List<Long>>> batchRuns = new ArrayList<List<List<Long>>>();
+    final List<Boolean> batchLastRunComplete = new ArrayList<Boolean>();
+    final int[][] nextGroupRunEnds = new int[1][];
+    VectorGroupByOperator reducer = mock(VectorGroupByOperator.class);
+    when(reducer.canProcessGroupRuns()).thenReturn(true);
+    doAnswer(invocation -> {
+      int[] groupRunEnds = (int[]) invocation.getArguments()[0];
+      int groupRunCount = (Integer) invocation.getArguments()[1];
+      nextGroupRunEnds[0] = Arrays.copyOf(groupRunEnds, groupRunCount);
+      batchLastRunComplete.add((Boolean) invocation.getArguments()[2]);
+      return null;
+    }).when(reducer).setNextVectorBatchGroupRuns(any(int[].class), anyInt(), anyBoolean());
+    doAnswer(invocation -> {
+      VectorizedRowBatch batch = (VectorizedRowBatch) invocation.getArguments()[0];
+      LongColumnVector keyColumn = (LongColumnVector) batch.cols[0];
+      LongColumnVector valueColumn = (LongColumnVector) batch.cols[1];
+      List<List<Long>> runs = new ArrayList<List<Long>>();
+      int start = 0;
+      for (int end : nextGroupRunEnds[0]) {
+        List<Long> run = new ArrayList<Long>();
+        for (int i = start; i < end; i++) {
+          if (i == start) {
+            run.add(keyColumn.vector[i]);
+          }
+          // Every row of a run has the key of the run.
+          assertEquals(run.get(0).longValue(), keyColumn.vector[i]);
+          run.add(valueColumn.vector[i]);
+        }
+        runs.add(run);
+        start = end;
+      }
+      assertEquals(batch.size, start);
+      batchRuns.add(runs);
+      return null;
+    }).when(reducer).process(any(), anyInt());
+
+    KeyValuesReader reader = new KeyValuesReader() {
+      private int group = -1;
+
+      @Override
+      public boolean next() {
+        return ++group < groups.length;
+      }
+
+      @Override
+      public Object getCurrentKey() throws IOException {
+        try {
+          return serializeKey(keyTableDesc, groups[group][0]);
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+
+      @Override
+      public Iterable<Object> getCurrentValues() throws IOException {
+        List<Object> values = new ArrayList<Object>();
+        try {
+          for (int i = 1; i < groups[group].length; i++) {
+            values.add(serializeValue(valueTableDesc, groups[group][i]));
+          }
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+        return values;
+      }
+    };
+
+    JobConf jobConf = new JobConf(new HiveConf());
+    HiveConf.setBoolVar(jobConf, HiveConf.ConfVars.HIVE_VECTORIZATION_REDUCE_GROUPBY_RUNS_ENABLED,
+        true);
+    ReduceRecordSource source = new ReduceRecordSource();
+    source.init(jobConf, reducer, /* vectorized */ true, keyTableDesc, valueTableDesc, reader,
+        /* handleGroupKey */ true, (byte) 0, batchContext, 0,
+        /* vectorizedTestingReducerBatchSize */ 3, /* isColumnarValues */ false);
+    while (source.pushRecord()) {
+    }
+
+    // Batches of 3 rows: a group continues in the next batch when the last run is not complete.
+    assertEquals(Arrays.asList(
+        Arrays.asList(Arrays.asList(1L, 10L, 11L), Arrays.asList(2L, 20L)),
+        Arrays.asList(Arrays.asList(3L, 30L, 31L, 32L)),
+        Arrays.asList(Arrays.asList(3L, 33L), Arrays.asList(4L, 40L), Arrays.asList(5L, 50L)),
+        Arrays.asList(Arrays.asList(5L, 51L))),
+        batchRuns);
+    assertEquals(Arrays.asList(true, false, false, true), batchLastRunComplete);
+  }
+
+  private static BytesWritable serializeKey(TableDesc keyTableDesc, long key) throws Exception {
+    BinarySortableSerDe serDe = new BinarySortableSerDe();
+    SerDeUtils.initializeSerDe(serDe, null, keyTableDesc.getProperties(), null);
+    ObjectInspector keyInspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Collections.singletonList("reducesinkkey0"),
+        Collections.<ObjectInspector>singletonList(
+            PrimitiveObjectInspectorFactory.javaLongObjectInspector));
+    BytesWritable serialized = (BytesWritable) serDe.serialize(
+        Collections.singletonList(key), keyInspector);
+    // The serde reuses its output, so hand out a copy.
+    return new BytesWritable(serialized.copyBytes());
+  }
+
+  private static BytesWritable serializeValue(TableDesc valueTableDesc, long value)
+      throws Exception {
+    LazyBinarySerDe serDe = new LazyBinarySerDe();
+    SerDeUtils.initializeSerDe(serDe, null, valueTableDesc.getProperties(), null);
+    ObjectInspector valueInspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Collections.singletonList("_col0"),
+        Collections.<ObjectInspector>singletonList(
+            PrimitiveObjectInspectorFactory.javaLongObjectInspector));
+    BytesWritable serialized = (BytesWritable) serDe.serialize(
+        Collections.singletonList(value), valueInspector);
+    return new BytesWritable(serialized.copyBytes());
+  }
+
+  private static BytesWritable serializeValues(String[] values) {
+    VectorizedRowBatch batch = new VectorizedRowBatch(1);
+    BytesColumnVector column = new BytesColumnVector();
+    column.initBuffer();
+    batch.cols[0] = column;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        column.noNulls = false;
+        column.isNull[i] = true;
+      } else {
+        column.setVal(i, values[i].getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    batch.size = values.length;
+
+    Output output = new Output();
+    new VectorColumnBlockSerDe(new TypeInfo[] { TypeInfoFactory.stringTypeInfo })
+        .serialize(batch, new int[] { 0 }, 0, batch.size, output);
+    return new BytesWritable(Arrays.copyOf(output.getData(), output.getLength()));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestVectorColumnBlockSerDe {
+
+  private static final TypeInfo[] TYPE_INFOS = new TypeInfo[] {
+      TypeInfoFactory.longTypeInfo, TypeInfoFactory.doubleTypeInfo,
+      TypeInfoFactory.stringTypeInfo, TypeInfoFactory.intTypeInfo };
+
+  private static VectorizedRowBatch createBatch() {
+    VectorizedRowBatch batch = new VectorizedRowBatch(4);
+    batch.cols[0] = new LongColumnVector();
+    batch.cols[1] = new DoubleColumnVector();
+    batch.cols[2] = new BytesColumnVector();
+    batch.cols[3] = new LongColumnVector();
+    ((BytesColumnVector) batch.cols[2]).initBuffer();
+    return batch;
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    VectorizedRowBatch batch = createBatch();
+    LongColumnVector longCol = (LongColumnVector) batch.cols[0];
+    DoubleColumnVector doubleCol = (DoubleColumnVector) batch.cols[1];
+    BytesColumnVector bytesCol = (BytesColumnVector) batch.cols[2];
+    LongColumnVector repeatingCol = (LongColumnVector) batch.cols[3];
+
+    final int size = 100;
+    String[] strings = new String[] { "a", "a", "bb", "", "bb", "bb" };
+    for (int i = 0; i < size; i++) {
+      longCol.vector[i] = (i % 7 == 0) ? Long.MIN_VALUE + i : i * 1000L - 30000;
+      doubleCol.vector[i] = i / 3.0;
+      bytesCol.setVal(i, bytes(strings[i % strings.length]));
+    }
+    longCol.noNulls = false;
+    longCol.isNull[5] = true;
+    bytesCol.noNulls = false;
+    bytesCol.isNull[1] = true;
+    bytesCol.isNull[99] = true;
+    repeatingCol.isRepeating = true;
+    repeatingCol.vector[0] = 42;
+    batch.size = size;
+
+    // Skip every third row through the selected vector.
+    int selectedSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (i % 3 != 0) {
+        batch.selected[selectedSize++] = i;
+      }
+    }
+    batch.selectedInUse = true;
+    batch.size = selectedSize;
+
+    VectorColumnBlockSerDe serDe = new VectorColumnBlockSerDe(TYPE_INFOS);
+    Output output = new Output();
+    serDe.serialize(batch, new int[] { 0, 1, 2, 3 }, 0, selectedSize, output);
+
+    VectorizedRowBatch result = createBatch();
+    int count = new VectorColumnBlockSerDe(TYPE_INFOS).deserialize(
+        output.getData(), 0, result, 0);
+    assertEquals(selectedSize, count);
+
+    LongColumnVector resultLong = (LongColumnVector) result.cols[0];
+    DoubleColumnVector resultDouble = (DoubleColumnVector) result.cols[1];
+    BytesColumnVector resultBytes = (BytesColumnVector) result.cols[2];
+    LongColumnVector resultRepeating = (LongColumnVector) result.cols[3];
+    for (int i = 0; i < count; i++) {
+      int batchIndex = batch.selected[i];
+      assertEquals(longCol.isNull[batchIndex], !resultLong.noNulls && resultLong.isNull[i]);
+      if (!longCol.isNull[batchIndex]) {
+        assertEquals(longCol.vector[batchIndex], resultLong.vector[i]);
+      }
+      assertEquals(doubleCol.vector[batchIndex], resultDouble.vector[i], 0.0);
+      assertEquals(bytesCol.isNull[batchIndex], !resultBytes.noNulls && resultBytes.isNull[i]);
+      if (!bytesCol.isNull[batchIndex]) {
+        assertEquals(bytesCol.toString(batchIndex), resultBytes.toString(i));
+      }
+    }
+    assertTrue(resultRepeating.isRepeating);
+    assertEquals(42, resultRepeating.vector[0]);
+  }
+
+  @Test
+  public void testAllNull() throws Exception {
+    VectorizedRowBatch batch = createBatch();
+    for (int c = 0; c < TYPE_INFOS.length; c++) {
+      batch.cols[c].noNulls = false;
+      for (int i = 0; i < 10; i++) {
+        batch.cols[c].isNull[i] = true;
+      }
+    }
+    batch.cols[3].isRepeating = true;
+    batch.size = 10;
+
+    Output output = new Output();
+    new VectorColumnBlockSerDe(TYPE_INFOS).serialize(
+        batch, new int[] { 0, 1, 2, 3 }, 0, batch.size, output);
+    VectorizedRowBatch result = createBatch();
+    assertEquals(10, new VectorColumnBlockSerDe(TYPE_INFOS).deserialize(
+        output.getData(), 0, result, 0));
+    for (int c = 0; c < TYPE_INFOS.length; c++) {
+      assertTrue(result.cols[c].isRepeating);
+      assertFalse(result.cols[c].noNulls);
+      assertTrue(result.cols[c].isNull[0]);
+    }
+  }
+
+  @Test
+  public void testIsSupported() throws Exception {
+    assertTrue(VectorColumnBlockSerDe.isSupported(TypeInfoFactory.dateTypeInfo));
+    assertFalse(VectorColumnBlockSerDe.isSupported(TypeInfoFactory.timestampTypeInfo));
+    assertFalse(VectorColumnBlockSerDe.isSupported(TypeInfoFactory.getVarcharTypeInfo(10)));
+    assertFalse(VectorColumnBlockSerDe.isSupported(
+        TypeInfoFactory.getListTypeInfo(TypeInfoFactory.intTypeInfo)));
+  }
+}
@@ -52,6 +52,7 @@
 import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.plan.AggregationDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.GroupByDesc;
 import org.apache.hadoop.hive.ql.plan.OperatorDesc;
@@ -341,6 +342,246 @@ public void remove() {
     assertTrue(0 < outputRowCount);
   }
 
+  @Test
+  public void testRollupGroupingSets() throws HiveException {
+    List<Object> key1Values = new ArrayList<Object>();
+    List<Object> key2Values = new ArrayList<Object>();
+    List<Object> values = new ArrayList<Object>();
+    for (long i = 0; i < 1000; i++) {
+      key1Values.add(i % 5);
+      key2Values.add(i % 7 == 0 ? null : i % 7);
+      values.add(i);
+    }
+
+    // ROLLUP (Key1, Key2): grouping set ids 0 = (Key1, Key2), 1 = (Key1) and 3 = ().
+    List<Long> groupingSets = Arrays.asList(0L, 1L, 3L);
+    Map<List<Object>, Long> expected = new HashMap<List<Object>, Long>();
+    for (int i = 0; i < values.size(); i++) {
+      for (long groupingSet : groupingSets) {
+        List<Object> key = Arrays.asList(
+            (groupingSet & 2) == 0 ? key1Values.get(i) : null,
+            (groupingSet & 1) == 0 ? key2Values.get(i) : null,
+            groupingSet);
+        Long sum = expected.get(key);
+        expected.put(key, (sum == null ? 0 : sum) + (Long) values.get(i));
+      }
+    }
+
+    for (boolean isRollup : new boolean[] {true, false}) {
+      HiveConf.setBoolVar(hconf,
+          HiveConf.ConfVars.HIVE_VECTORIZATION_GROUPBY_GROUPING_SETS_ROLLUP, isRollup);
+      assertEquals(expected,
+          testGroupingSets(key1Values, key2Values, values, groupingSets, 0.0f));
+      // The finer keys which collapse into one coarser key are merged before they are emitted
+      assertEquals(expected.size(), outputRowCount);
+    }
+    HiveConf.setBoolVar(hconf,
+        HiveConf.ConfVars.HIVE_VECTORIZATION_GROUPBY_GROUPING_SETS_ROLLUP, true);
+
+    // Flushing on every batch stops the roll up after the first one.  Those entries are
+    // emitted once per grouping set without being merged.
+    float treshold = 1.0f / ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+    assertEquals(expected,
+        testGroupingSets(key1Values, key2Values, values, groupingSets, treshold));
+    assertTrue(outputRowCount > expected.size());
+  }
+
+  /**
+   * Runs a HASH sum(Value) with the grouping sets over Key1 and Key2, and returns the output
+   * summed up by key, as the reducer would.  The number of rows emitted is left in
+   * outputRowCount.
+   */
+  private Map<List<Object>, Long> testGroupingSets(
+      List<Object> key1Values, List<Object> key2Values, List<Object> values,
+      List<Long> groupingSets, float memoryThreshold) throws HiveException {
+
+    List<String> mapColumnNames = new ArrayList<String>();
+    mapColumnNames.add("Key1");
+    mapColumnNames.add("Key2");
+    mapColumnNames.add("Value");
+    VectorizationContext ctx = new VectorizationContext("name", mapColumnNames);
+
+    Pair<GroupByDesc,VectorGroupByDesc> pair = buildKeyGroupByDesc (ctx, "sum",
+        "Value", TypeInfoFactory.longTypeInfo,
+        "Key1", TypeInfoFactory.longTypeInfo);
+    GroupByDesc desc = pair.fst;
+    VectorGroupByDesc vectorDesc = pair.snd;
+
+    desc.getKeys().add(buildColumnDesc(ctx, "Key2", TypeInfoFactory.longTypeInfo));
+    desc.getKeys().add(new ExprNodeConstantDesc(TypeInfoFactory.longTypeInfo, 0L));
+    desc.getOutputColumnNames().add("_col2");
+    desc.getOutputColumnNames().add("_col3");
+    desc.setGroupingSetsPresent(true);
+    desc.setListGroupingSets(groupingSets);
+    desc.setGroupingSetPosition(2);
+    desc.setMemoryThreshold(memoryThreshold);
+
+    CompilationOpContext cCtx = new CompilationOpContext();
+
+    Operator<? extends OperatorDesc> groupByOp = OperatorFactory.get(cCtx, desc);
+
+    VectorGroupByOperator vgo =
+        (VectorGroupByOperator) Vectorizer.vectorizeGroupByOperator(groupByOp, ctx, vectorDesc);
+
+    FakeCaptureVectorToRowOutputOperator out = FakeCaptureVectorToRowOutputOperator.addCaptureOutputChild(cCtx, vgo);
+    vgo.initialize(hconf, null);
+
+    final Map<List<Object>, Long> results = new HashMap<List<Object>, Long>();
+    this.outputRowCount = 0;
+    out.setOutputInspector(new FakeCaptureVectorToRowOutputOperator.OutputInspector() {
+      @Override
+      public void inspectRow(Object row, int tag) throws HiveException {
+        ++outputRowCount;
+        Object[] fields = (Object[]) row;
+        List<Object> key = new ArrayList<Object>(3);
+        for (int i = 0; i < 3; i++) {
+          key.add(fields[i] == null ? null : ((LongWritable) fields[i]).get());
+        }
+        Long sum = results.get(key);
+        results.put(key, (sum == null ? 0 : sum) + ((LongWritable) fields[3]).get());
+      }
+    });
+
+    FakeVectorRowBatchFromObjectIterables data = new FakeVectorRowBatchFromObjectIterables(
+        100,
+        new String[] {"long", "long", "long"},
+        key1Values,
+        key2Values,
+        values);
+
+    for (VectorizedRowBatch unit: data) {
+      vgo.process(unit,  0);
+    }
+    vgo.close(false);
+
+    return results;
+  }
+
+  @Test
+  public void testMergePartialGroupRuns() throws HiveException {
+
+    // The key and the partial sums of each key group, in the order of the reduce-shuffle.
+    Long[][] groups = new Long[][] {
+        {null, 1L, 2L},
+        {1L, 3L, 4L, 5L},
+        {2L, 6L},
+        {3L, 7L, 8L, 9L, 10L, 11L},
+        {4L, null},
+        {5L, 12L, null, 13L}};
+    List<List<Long>> expected = new ArrayList<List<Long>>();
+    for (Long[] group : groups) {
+      Long sum = null;
+      for (int i = 1; i < group.length; i++) {
+        if (group[i] != null) {
+          sum = (sum == null ? 0 : sum) + group[i];
+        }
+      }
+      expected.add(Arrays.asList(group[0], sum));
+    }
+
+    // Small batches make the groups span batches, large ones pack several groups per batch.
+    for (int batchSize = 1; batchSize <= 8; batchSize++) {
+      assertEquals("batch size " + batchSize, expected, testGroupRuns(groups, batchSize));
+    }
+  }
+
+  /**
+   * Runs a MERGEPARTIAL sum(Value) by Key, packing the groups into batches of batchSize rows
+   * with their group runs the way the reduce-shuffle does, and returns the output rows.
+   */
+  private List<List<Long>> testGroupRuns(Long[][] groups, int batchSize) throws HiveException {
+
+    List<String> mapColumnNames = new ArrayList<String>();
+    mapColumnNames.add("Key");
+    mapColumnNames.add("Value");
+    VectorizationContext ctx = new VectorizationContext("name", mapColumnNames);
+
+    Pair<GroupByDesc,VectorGroupByDesc> pair = buildGroupByDescType(ctx, "sum",
+        GenericUDAFEvaluator.Mode.FINAL, "Value", TypeInfoFactory.longTypeInfo);
+    GroupByDesc desc = pair.fst;
+    VectorGroupByDesc vectorDesc = pair.snd;
+    vectorDesc.setProcessingMode(ProcessingMode.MERGE_PARTIAL);
+
+    ArrayList<ExprNodeDesc> keys = new ArrayList<ExprNodeDesc>();
+    keys.add(buildColumnDesc(ctx, "Key", TypeInfoFactory.longTypeInfo));
+    desc.setKeys(keys);
+    desc.getOutputColumnNames().add("_col1");
+
+    CompilationOpContext cCtx = new CompilationOpContext();
+
+    Operator<? extends OperatorDesc> groupByOp = OperatorFactory.get(cCtx, desc);
+
+    VectorGroupByOperator vgo =
+        (VectorGroupByOperator) Vectorizer.vectorizeGroupByOperator(groupByOp, ctx, vectorDesc);
+    assertTrue(vgo.canProcessGroupRuns());
+
+    FakeCaptureVectorToRowOutputOperator out = FakeCaptureVectorToRowOutputOperator.addCaptureOutputChild(cCtx, vgo);
+    vgo.initialize(hconf, null);
+
+    final List<List<Long>> results = new ArrayList<List<Long>>();
+    out.setOutputInspector(new FakeCaptureVectorToRowOutputOperator.OutputInspector() {
+      @Override
+      public void inspectRow(Object row, int tag) throws HiveException {
+        Object[] fields = (Object[]) row;
+        results.add(Arrays.asList(
+            fields[0] == null ? null : ((LongWritable) fields[0]).get(),
+            fields[1] == null ? null : ((LongWritable) fields[1]).get()));
+      }
+    });
+
+    VectorizedRowBatch batch = newGroupRunsBatch();
+    int[] groupRunEnds = new int[batchSize];
+    int groupRunCount = 0;
+    int rowIdx = 0;
+    for (Long[] group : groups) {
+      int runStart = rowIdx;
+      for (int i = 1; i < group.length; i++) {
+        if (rowIdx == batchSize) {
+
+          // The batch is full, the current group continues in the next one unless it has no
+          // rows in this one yet.
+          final boolean isLastGroupRunComplete = (runStart == rowIdx);
+          if (!isLastGroupRunComplete) {
+            groupRunEnds[groupRunCount++] = rowIdx;
+          }
+          batch.size = rowIdx;
+          vgo.setNextVectorBatchGroupRuns(groupRunEnds, groupRunCount, isLastGroupRunComplete);
+          vgo.process(batch, 0);
+          batch = newGroupRunsBatch();
+          groupRunCount = 0;
+          rowIdx = 0;
+          runStart = 0;
+        }
+        setLong((LongColumnVector) batch.cols[0], rowIdx, group[0]);
+        setLong((LongColumnVector) batch.cols[1], rowIdx, group[i]);
+        rowIdx++;
+      }
+      groupRunEnds[groupRunCount++] = rowIdx;
+    }
+    batch.size = rowIdx;
+    vgo.setNextVectorBatchGroupRuns(groupRunEnds, groupRunCount, true);
+    vgo.process(batch, 0);
+    vgo.close(false);
+
+    return results;
+  }
+
+  private static VectorizedRowBatch newGroupRunsBatch() {
+    VectorizedRowBatch batch = new VectorizedRowBatch(2);
+    batch.cols[0] = new LongColumnVector();
+    batch.cols[1] = new LongColumnVector();
+    return batch;
+  }
+
+  private static void setLong(LongColumnVector colVector, int i, Long value) {
+    if (value == null) {
+      colVector.noNulls = false;
+      colVector.isNull[i] = true;
+    } else {
+      colVector.vector[i] = value;
+    }
+  }
+
   @Test
   public void testMultiKeyIntStringInt() throws HiveException {
     testMultiKey(
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.apache.hadoop.hive.common.ndv.hll.HyperLogLog;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationBufferRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAggregationDesc;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.IdentityExpression;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates.VectorAggregateExpression.AggregationBuffer;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.AggregationDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFApproxCountDistinct;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFApproxCountDistinct.GenericUDAFApproxCountDistinctEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Test;
+
+/**
+ * Tests the vectorized approx_count_distinct against sketches built from the expected values.
+ *
+ * The tests use few enough distinct values for the sketches to stay sparse, where the estimate
+ * only depends on the set of values added.
+ */
+public class TestVectorUDAFApproxCountDistinct {
+
+  @Test
+  public void testRepeating() throws HiveException {
+    VectorAggregateExpression vecAggr = createLongAggregate(Mode.COMPLETE);
+    AggregationBuffer agg = vecAggr.getNewAggregationBuffer();
+
+    VectorizedRowBatch batch = createLongBatch(5, 1);
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.isRepeating = true;
+    col.vector[0] = 7;
+    vecAggr.aggregateInput(agg, batch);
+    vecAggr.aggregateInput(agg, batch);
+
+    // A repeating NULL adds nothing.
+    col.vector[0] = 8;
+    col.noNulls = false;
+    col.isNull[0] = true;
+    vecAggr.aggregateInput(agg, batch);
+
+    assertEquals(countLongs(7), estimate(vecAggr, agg));
+  }
+
+  @Test
+  public void testNulls() throws HiveException {
+    VectorAggregateExpression vecAggr = createLongAggregate(Mode.COMPLETE);
+    AggregationBuffer agg = vecAggr.getNewAggregationBuffer();
+
+    VectorizedRowBatch batch = createLongBatch(6, 1);
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.vector = new long[] {1, 2, 3, 2, 4, 5};
+    col.noNulls = false;
+    col.isNull[2] = true;
+    col.isNull[5] = true;
+    vecAggr.aggregateInput(agg, batch);
+
+    assertEquals(countLongs(1, 2, 4), estimate(vecAggr, agg));
+  }
+
+  @Test
+  public void testSelected() throws HiveException {
+    VectorAggregateExpression vecAggr = createLongAggregate(Mode.COMPLETE);
+    AggregationBuffer agg = vecAggr.getNewAggregationBuffer();
+
+    VectorizedRowBatch batch = createLongBatch(6, 1);
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.vector = new long[] {10, 11, 12, 13, 14, 15};
+    col.noNulls = false;
+    col.isNull[4] = true;
+    batch.selectedInUse = true;
+    batch.selected = new int[] {1, 3, 4};
+    batch.size = 3;
+    vecAggr.aggregateInput(agg, batch);
+
+    assertEquals(countLongs(11, 13), estimate(vecAggr, agg));
+  }
+
+  @Test
+  public void testBytes() throws HiveException {
+    VectorAggregateExpression vecAggr = createAggregate(
+        VectorUDAFApproxCountDistinct.class, Mode.COMPLETE, TypeInfoFactory.stringTypeInfo,
+        ColumnVector.Type.BYTES, TypeInfoFactory.longTypeInfo, ColumnVector.Type.LONG);
+    AggregationBuffer agg = vecAggr.getNewAggregationBuffer();
+
+    // The values are at an offset in a shared buffer, as they are when read from a file.
+    byte[] buffer = "xxabcabxabc".getBytes(StandardCharsets.UTF_8);
+    BytesColumnVector col = new BytesColumnVector(3);
+    col.setRef(0, buffer, 2, 3);
+    col.setRef(1, buffer, 5, 2);
+    col.setRef(2, buffer, 8, 3);
+    VectorizedRowBatch batch = new VectorizedRowBatch(1, 3);
+    batch.cols[0] = col;
+    batch.size = 3;
+    vecAggr.aggregateInput(agg, batch);
+
+    HyperLogLog expected = GenericUDAFApproxCountDistinct.createHyperLogLog();
+    for (String value : new String[] {"abc", "ab"}) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      expected.add(GenericUDAFApproxCountDistinct.hashBytes(bytes, 0, bytes.length));
+    }
+    assertEquals(expected.count(), estimate(vecAggr, agg));
+  }
+
+  @Test
+  public void testAggregateInputSelection() throws HiveException {
+    VectorAggregateExpression vecAggr = createLongAggregate(Mode.COMPLETE);
+    AggregationBuffer agg0 = vecAggr.getNewAggregationBuffer();
+    AggregationBuffer agg1 = vecAggr.getNewAggregationBuffer();
+    VectorAggregationBufferRow group0 =
+        new VectorAggregationBufferRow(new AggregationBuffer[] {agg0});
+    VectorAggregationBufferRow group1 =
+        new VectorAggregationBufferRow(new AggregationBuffer[] {agg1});
+
+    // The buffer rows are indexed by the logical row, the values by the selected row.
+    VectorizedRowBatch batch = createLongBatch(5, 1);
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.vector = new long[] {1, 2, 3, 4, 5};
+    col.noNulls = false;
+    col.isNull[3] = true;
+    batch.selectedInUse = true;
+    batch.selected = new int[] {0, 2, 3, 4};
+    batch.size = 4;
+    vecAggr.aggregateInputSelection(
+        new VectorAggregationBufferRow[] {group0, group1, group0, group1}, 0, batch);
+
+    // A repeating value goes to every group.
+    VectorizedRowBatch repeatingBatch = createLongBatch(2, 1);
+    LongColumnVector repeatingCol = (LongColumnVector) repeatingBatch.cols[0];
+    repeatingCol.isRepeating = true;
+    repeatingCol.vector[0] = 9;
+    vecAggr.aggregateInputSelection(
+        new VectorAggregationBufferRow[] {group0, group1}, 0, repeatingBatch);
+
+    assertEquals(countLongs(1, 9), estimate(vecAggr, agg0));
+    assertEquals(countLongs(3, 5, 9), estimate(vecAggr, agg1));
+  }
+
+  @Test
+  public void testMergePartials() throws HiveException {
+    VectorAggregateExpression partial = createLongAggregate(Mode.PARTIAL1);
+    VectorAggregateExpression merge = createAggregate(
+        VectorUDAFApproxCountDistinctMerge.class, Mode.FINAL, TypeInfoFactory.binaryTypeInfo,
+        ColumnVector.Type.BYTES, TypeInfoFactory.longTypeInfo, ColumnVector.Type.LONG);
+
+    // Two overlapping partials, serialized into a batch as the reduce side reads them.
+    final int size = 200;
+    VectorizedRowBatch partialBatch = new VectorizedRowBatch(1, 3);
+    partialBatch.cols[0] = new BytesColumnVector(3);
+    partialBatch.cols[0].initBuffer();
+    for (int p = 0; p < 2; p++) {
+      AggregationBuffer agg = partial.getNewAggregationBuffer();
+      VectorizedRowBatch batch = createLongBatch(size, 1);
+      LongColumnVector col = (LongColumnVector) batch.cols[0];
+      for (int i = 0; i < size; i++) {
+        col.vector[i] = p * size / 2 + i;
+      }
+      partial.aggregateInput(agg, batch);
+      partial.assignRowColumn(partialBatch, p, 0, agg);
+    }
+    partialBatch.cols[0].noNulls = false;
+    partialBatch.cols[0].isNull[2] = true;
+    partialBatch.size = 3;
+
+    AggregationBuffer agg = merge.getNewAggregationBuffer();
+    merge.aggregateInput(agg, partialBatch);
+
+    long[] expected = new long[size * 3 / 2];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = i;
+    }
+    assertEquals(countLongs(expected), estimate(merge, agg));
+
+    // Merging the same partial again does not change the estimate.
+    partialBatch.selectedInUse = true;
+    partialBatch.selected = new int[] {1};
+    partialBatch.size = 1;
+    merge.aggregateInput(agg, partialBatch);
+    assertEquals(countLongs(expected), estimate(merge, agg));
+  }
+
+  @Test
+  public void testMergeAggregationBuffer() throws HiveException {
+    VectorAggregateExpression vecAggr = createLongAggregate(Mode.COMPLETE);
+    AggregationBuffer agg1 = vecAggr.getNewAggregationBuffer();
+    AggregationBuffer agg2 = vecAggr.getNewAggregationBuffer();
+
+    VectorizedRowBatch batch = createLongBatch(3, 1);
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.vector = new long[] {1, 2, 3};
+    vecAggr.aggregateInput(agg1, batch);
+    col.vector = new long[] {3, 4, 5};
+    vecAggr.aggregateInput(agg2, batch);
+
+    vecAggr.mergeAggregationBuffer(agg1, agg2);
+    assertEquals(countLongs(1, 2, 3, 4, 5), estimate(vecAggr, agg1));
+  }
+
+  private static VectorAggregateExpression createLongAggregate(Mode mode) throws HiveException {
+    return createAggregate(VectorUDAFApproxCountDistinct.class, mode,
+        TypeInfoFactory.longTypeInfo, ColumnVector.Type.LONG,
+        (mode == Mode.PARTIAL1 ? TypeInfoFactory.binaryTypeInfo : TypeInfoFactory.longTypeInfo),
+        (mode == Mode.PARTIAL1 ? ColumnVector.Type.BYTES : ColumnVector.Type.LONG));
+  }
+
+  private static VectorAggregateExpression createAggregate(
+      Class<? extends VectorAggregateExpression> vecAggrClass, Mode mode,
+      TypeInfo inputTypeInfo, ColumnVector.Type inputColVectorType,
+      TypeInfo outputTypeInfo, ColumnVector.Type outputColVectorType) throws HiveException {
+
+    IdentityExpression inputExpression = new IdentityExpression(0);
+    inputExpression.setOutputTypeInfo(inputTypeInfo);
+    GenericUDAFApproxCountDistinctEvaluator evaluator =
+        new GenericUDAFApproxCountDistinctEvaluator();
+    AggregationDesc aggrDesc = new AggregationDesc("approx_count_distinct", evaluator,
+        new ArrayList<ExprNodeDesc>(), false, mode);
+    VectorAggregationDesc vecAggrDesc = new VectorAggregationDesc(aggrDesc, evaluator,
+        inputTypeInfo, inputColVectorType, inputExpression, outputTypeInfo,
+        outputColVectorType, vecAggrClass);
+
+    VectorAggregateExpression vecAggr;
+    if (vecAggrClass == VectorUDAFApproxCountDistinct.class) {
+      vecAggr = new VectorUDAFApproxCountDistinct(vecAggrDesc);
+    } else {
+      vecAggr = new VectorUDAFApproxCountDistinctMerge(vecAggrDesc);
+    }
+    assertTrue(vecAggr.matches("approx_count_distinct", inputColVectorType,
+        outputColVectorType, mode));
+    return vecAggr;
+  }
+
+  private static VectorizedRowBatch createLongBatch(int size, int numCols) {
+    VectorizedRowBatch batch = new VectorizedRowBatch(numCols, size);
+    for (int i = 0; i < numCols; i++) {
+      batch.cols[i] = new LongColumnVector(size);
+    }
+    batch.size = size;
+    return batch;
+  }
+
+  private static long estimate(VectorAggregateExpression vecAggr, AggregationBuffer agg)
+      throws HiveException {
+    VectorizedRowBatch outputBatch = createLongBatch(1, 1);
+    vecAggr.assignRowColumn(outputBatch, 0, 0, agg);
+    return ((LongColumnVector) outputBatch.cols[0]).vector[0];
+  }
+
+  private static long countLongs(long... values) {
+    HyperLogLog hll = GenericUDAFApproxCountDistinct.createHyperLogLog();
+    byte[] scratchBytes = new byte[Long.BYTES];
+    for (long value : values) {
+      hll.add(GenericUDAFApproxCountDistinct.hashLong(value, scratchBytes));
+    }
+    return hll.count();
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.ptf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.IdentityExpression;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.WindowType;
+import org.apache.hadoop.hive.ql.plan.VectorPTFDesc.SupportedFunctionType;
+import org.apache.hadoop.hive.ql.plan.ptf.BoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
+import org.junit.Test;
+
+/**
+ * Compare the sliding ROWS BETWEEN n PRECEDING AND CURRENT ROW evaluators with a naive
+ * computation of each frame.
+ */
+public class TestVectorPTFSlidingEvaluators {
+
+  private static final Long[] LONG_VALUES =
+      { 5L, null, 3L, 8L, null, null, null, 1L, 9L, 9L, 2L, null, 7L };
+
+  @Test
+  public void testLongSlidingAcrossBatches() throws Exception {
+    for (SupportedFunctionType functionType : new SupportedFunctionType[] {
+        SupportedFunctionType.SUM, SupportedFunctionType.MIN,
+        SupportedFunctionType.MAX, SupportedFunctionType.AVG }) {
+      for (int preceding = 0; preceding <= 4; preceding++) {
+        for (int batchSize = 1; batchSize <= 5; batchSize++) {
+          verifyLong(functionType, preceding, batchSize);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDoubleSlidingAcrossBatches() throws Exception {
+    for (SupportedFunctionType functionType : new SupportedFunctionType[] {
+        SupportedFunctionType.SUM, SupportedFunctionType.MIN,
+        SupportedFunctionType.MAX, SupportedFunctionType.AVG }) {
+      for (int preceding = 0; preceding <= 4; preceding++) {
+        for (int batchSize = 1; batchSize <= 5; batchSize++) {
+          verifyDouble(functionType, preceding, batchSize);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCountSlidingAcrossBatches() throws Exception {
+    for (int preceding = 0; preceding <= 4; preceding++) {
+      for (int batchSize = 1; batchSize <= 5; batchSize++) {
+        verifyCount(preceding, batchSize, false);
+        verifyCount(preceding, batchSize, true);
+      }
+    }
+  }
+
+  /**
+   * A new partition must not see the frame of the previous one.
+   */
+  @Test
+  public void testPartitionReset() throws Exception {
+    VectorPTFEvaluatorLongSliding sum = new VectorPTFEvaluatorLongSliding(
+        slidingFrame(2), SupportedFunctionType.SUM, new IdentityExpression(0), 1);
+    VectorPTFEvaluatorDoubleSliding max = new VectorPTFEvaluatorDoubleSliding(
+        slidingFrame(2), SupportedFunctionType.MAX, new IdentityExpression(0), 1);
+    VectorPTFEvaluatorCountSliding count = new VectorPTFEvaluatorCountSliding(
+        slidingFrame(2), new IdentityExpression(0), 1);
+
+    VectorizedRowBatch batch = longBatch(new Long[] { 10L, 20L, 30L });
+    sum.evaluateGroupBatch(batch, true);
+    assertLongs(new Long[] { 10L, 30L, 60L }, batch.cols[1]);
+    sum.resetEvaluator();
+    batch = longBatch(new Long[] { 1L, 2L });
+    sum.evaluateGroupBatch(batch, true);
+    assertLongs(new Long[] { 1L, 3L }, batch.cols[1]);
+
+    batch = doubleBatch(new Double[] { 30.0, 20.0, 10.0 });
+    max.evaluateGroupBatch(batch, true);
+    assertDoubles(new Double[] { 30.0, 30.0, 30.0 }, batch.cols[1]);
+    max.resetEvaluator();
+    batch = doubleBatch(new Double[] { null, 1.0 });
+    max.evaluateGroupBatch(batch, true);
+    assertDoubles(new Double[] { null, 1.0 }, batch.cols[1]);
+
+    batch = longBatch(new Long[] { 1L, null, 3L });
+    count.evaluateGroupBatch(batch, true);
+    assertLongs(new Long[] { 1L, 1L, 2L }, batch.cols[1]);
+    count.resetEvaluator();
+    batch = longBatch(new Long[] { null, 5L });
+    count.evaluateGroupBatch(batch, true);
+    assertLongs(new Long[] { 0L, 1L }, batch.cols[1]);
+  }
+
+  @Test
+  public void testRepeatingInput() throws Exception {
+    VectorPTFEvaluatorLongSliding sum = new VectorPTFEvaluatorLongSliding(
+        slidingFrame(1), SupportedFunctionType.SUM, new IdentityExpression(0), 1);
+    VectorizedRowBatch batch = longBatch(new Long[] { 4L, 4L, 4L });
+    batch.cols[0].isRepeating = true;
+    sum.evaluateGroupBatch(batch, false);
+    assertLongs(new Long[] { 4L, 8L, 8L }, batch.cols[1]);
+
+    VectorPTFEvaluatorCountSliding count = new VectorPTFEvaluatorCountSliding(
+        slidingFrame(1), new IdentityExpression(0), 1);
+    batch = longBatch(new Long[] { null, null, null });
+    batch.cols[0].isRepeating = true;
+    count.evaluateGroupBatch(batch, false);
+    assertLongs(new Long[] { 0L, 0L, 0L }, batch.cols[1]);
+  }
+
+  private static void verifyLong(SupportedFunctionType functionType, int preceding,
+      int batchSize) {
+    Double[] allValues = toDoubles(LONG_VALUES);
+    VectorPTFEvaluatorLongSliding evaluator = new VectorPTFEvaluatorLongSliding(
+        slidingFrame(preceding), functionType, new IdentityExpression(0), 1);
+    for (int start = 0; start < LONG_VALUES.length; start += batchSize) {
+      int end = Math.min(start + batchSize, LONG_VALUES.length);
+      Long[] values = new Long[end - start];
+      System.arraycopy(LONG_VALUES, start, values, 0, values.length);
+      VectorizedRowBatch batch = longBatch(values);
+      if (functionType == SupportedFunctionType.AVG) {
+        batch.cols[1] = new DoubleColumnVector();
+      }
+      evaluator.evaluateGroupBatch(batch, end == LONG_VALUES.length);
+      for (int i = 0; i < values.length; i++) {
+        Double expected = expected(functionType, allValues, start + i, preceding);
+        String message = functionType + " " + preceding + " preceding, batch size " + batchSize
+            + ", row " + (start + i);
+        if (expected == null) {
+          assertNull(message, getValue(batch.cols[1], i));
+        } else if (functionType == SupportedFunctionType.AVG) {
+          assertEquals(message, expected, (Double) getValue(batch.cols[1], i), 1e-9);
+        } else {
+          assertEquals(message, expected.longValue(), getValue(batch.cols[1], i));
+        }
+      }
+    }
+  }
+
+  private static void verifyDouble(SupportedFunctionType functionType, int preceding,
+      int batchSize) {
+    Double[] allValues = toDoubles(LONG_VALUES);
+    for (int i = 0; i < allValues.length; i++) {
+      if (allValues[i] != null) {
+        allValues[i] = allValues[i] - 0.5;
+      }
+    }
+    VectorPTFEvaluatorDoubleSliding evaluator = new VectorPTFEvaluatorDoubleSliding(
+        slidingFrame(preceding), functionType, new IdentityExpression(0), 1);
+    for (int start = 0; start < allValues.length; start += batchSize) {
+      int end = Math.min(start + batchSize, allValues.length);
+      Double[] values = new Double[end - start];
+      System.arraycopy(allValues, start, values, 0, values.length);
+      VectorizedRowBatch batch = doubleBatch(values);
+      evaluator.evaluateGroupBatch(batch, end == allValues.length);
+      for (int i = 0; i < values.length; i++) {
+        Double expected = expected(functionType, allValues, start + i, preceding);
+        String message = functionType + " " + preceding + " preceding, batch size " + batchSize
+            + ", row " + (start + i);
+        if (expected == null) {
+          assertNull(message, getValue(batch.cols[1], i));
+        } else {
+          assertEquals(message, expected, (Double) getValue(batch.cols[1], i), 1e-9);
+        }
+      }
+    }
+  }
+
+  private static void verifyCount(int preceding, int batchSize, boolean isCountStar) {
+    VectorPTFEvaluatorCountSliding evaluator = new VectorPTFEvaluatorCountSliding(
+        slidingFrame(preceding), isCountStar ? null : new IdentityExpression(0), 1);
+    for (int start = 0; start < LONG_VALUES.length; start += batchSize) {
+      int end = Math.min(start + batchSize, LONG_VALUES.length);
+      Long[] values = new Long[end - start];
+      System.arraycopy(LONG_VALUES, start, values, 0, values.length);
+      VectorizedRowBatch batch = longBatch(values);
+      evaluator.evaluateGroupBatch(batch, end == LONG_VALUES.length);
+      for (int i = 0; i < values.length; i++) {
+        int row = start + i;
+        long expected = 0;
+        for (int j = Math.max(0, row - preceding); j <= row; j++) {
+          if (isCountStar || LONG_VALUES[j] != null) {
+            expected++;
+          }
+        }
+        assertEquals("count " + preceding + " preceding, batch size " + batchSize + ", row " + row,
+            expected, getValue(batch.cols[1], i));
+      }
+    }
+  }
+
+  private static Double expected(SupportedFunctionType functionType, Double[] values, int row,
+      int preceding) {
+    Double result = null;
+    int nonNullCount = 0;
+    for (int j = Math.max(0, row - preceding); j <= row; j++) {
+      Double value = values[j];
+      if (value == null) {
+        continue;
+      }
+      nonNullCount++;
+      if (result == null) {
+        result = value;
+        continue;
+      }
+      switch (functionType) {
+      case SUM:
+      case AVG:
+        result += value;
+        break;
+      case MIN:
+        result = Math.min(result, value);
+        break;
+      case MAX:
+        result = Math.max(result, value);
+        break;
+      default:
+        throw new RuntimeException("Unexpected function type " + functionType);
+      }
+    }
+    if (result != null && functionType == SupportedFunctionType.AVG) {
+      result /= nonNullCount;
+    }
+    return result;
+  }
+
+  private static WindowFrameDef slidingFrame(int preceding) {
+    BoundaryDef start = (preceding == 0
+        ? new BoundaryDef(Direction.CURRENT, 0) : new BoundaryDef(Direction.PRECEDING, preceding));
+    return new WindowFrameDef(WindowType.ROWS, start, new BoundaryDef(Direction.CURRENT, 0));
+  }
+
+  private static Double[] toDoubles(Long[] values) {
+    Double[] result = new Double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = (values[i] == null ? null : Double.valueOf(values[i]));
+    }
+    return result;
+  }
+
+  private static VectorizedRowBatch longBatch(Long[] values) {
+    VectorizedRowBatch batch = new VectorizedRowBatch(2);
+    LongColumnVector input = new LongColumnVector();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        input.noNulls = false;
+        input.isNull[i] = true;
+      } else {
+        input.vector[i] = values[i];
+      }
+    }
+    batch.cols[0] = input;
+    batch.cols[1] = new LongColumnVector();
+    batch.size = values.length;
+    return batch;
+  }
+
+  private static VectorizedRowBatch doubleBatch(Double[] values) {
+    VectorizedRowBatch batch = new VectorizedRowBatch(2);
+    DoubleColumnVector input = new DoubleColumnVector();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        input.noNulls = false;
+        input.isNull[i] = true;
+      } else {
+        input.vector[i] = values[i];
+      }
+    }
+    batch.cols[0] = input;
+    batch.cols[1] = new DoubleColumnVector();
+    batch.size = values.length;
+    return batch;
+  }
+
+  private static Object getValue(ColumnVector colVector, int i) {
+    if (!colVector.noNulls && colVector.isNull[i]) {
+      return null;
+    }
+    if (colVector instanceof LongColumnVector) {
+      return ((LongColumnVector) colVector).vector[i];
+    }
+    return ((DoubleColumnVector) colVector).vector[i];
+  }
+
+  private static void assertLongs(Long[] expected, ColumnVector colVector) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("row " + i, expected[i], getValue(colVector, i));
+    }
+  }
+
+  private static void assertDoubles(Double[] expected, ColumnVector colVector) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("row " + i, expected[i], getValue(colVector, i));
+    }
+  }
+}
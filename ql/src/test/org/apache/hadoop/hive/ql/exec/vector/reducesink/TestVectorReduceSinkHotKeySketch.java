@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.reducesink;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestVectorReduceSinkHotKeySketch {
+
+  @Test
+  public void testEmpty() throws Exception {
+    VectorReduceSinkHotKeySketch sketch = new VectorReduceSinkHotKeySketch(4);
+    assertEquals(0, sketch.getTotalCount());
+    assertEquals(-1, sketch.getHeaviestEntry());
+  }
+
+  @Test
+  public void testFindsHotKey() throws Exception {
+    Random random = new Random(12345);
+    VectorReduceSinkHotKeySketch sketch = new VectorReduceSinkHotKeySketch(16);
+    Map<Integer, Long> realCounts = new HashMap<Integer, Long>();
+
+    final int hotHashCode = 424242;
+    for (int i = 0; i < 100000; i++) {
+      final int hashCode = (i % 5 == 0 ? hotHashCode : random.nextInt());
+      final long count = 1 + random.nextInt(3);
+      sketch.add(hashCode, count);
+      Long realCount = realCounts.get(hashCode);
+      realCounts.put(hashCode, (realCount == null ? 0 : realCount) + count);
+    }
+
+    int heaviest = sketch.getHeaviestEntry();
+    assertEquals(hotHashCode, sketch.getHashCode(heaviest));
+
+    // Every tracked count is within the error bound below the real count.
+    final long maxError = sketch.getMaxError();
+    for (int i = 0; i < sketch.getSize(); i++) {
+      long realCount = realCounts.get(sketch.getHashCode(i));
+      assertTrue(sketch.getCount(i) <= realCount);
+      assertTrue(sketch.getCount(i) >= realCount - maxError);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.vector.reducesink;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestVectorReduceSinkTopNKeyFilter {
+
+  private static VectorizedRowBatch createLongBatch(long[] values) {
+    VectorizedRowBatch batch = new VectorizedRowBatch(1);
+    LongColumnVector col = new LongColumnVector();
+    System.arraycopy(values, 0, col.vector, 0, values.length);
+    batch.cols[0] = col;
+    batch.size = values.length;
+    return batch;
+  }
+
+  private static long[] survivors(VectorizedRowBatch batch) {
+    long[] result = new long[batch.size];
+    for (int i = 0; i < batch.size; i++) {
+      int batchIndex = batch.selectedInUse ? batch.selected[i] : i;
+      result[i] = ((LongColumnVector) batch.cols[0]).vector[batchIndex];
+    }
+    return result;
+  }
+
+  @Test
+  public void testAscending() throws Exception {
+    VectorReduceSinkTopNKeyFilter filter =
+        new VectorReduceSinkTopNKeyFilter(2, 0, TypeInfoFactory.longTypeInfo, false);
+
+    VectorizedRowBatch batch = createLongBatch(new long[] { 5, 7, 9, 3, 7, 1 });
+    assertTrue(filter.filter(batch));
+    // 9 sorts after 5 and 7; the later 7 sorts after 5 and 3.
+    assertArrayEquals(new long[] { 5, 7, 3, 1 }, survivors(batch));
+
+    filter.restore(batch);
+    assertFalse(batch.selectedInUse);
+    assertEquals(6, batch.size);
+
+    // Ties with the current second best key are kept.
+    batch = createLongBatch(new long[] { 4, 3, 2 });
+    assertTrue(filter.filter(batch));
+    assertArrayEquals(new long[] { 3, 2 }, survivors(batch));
+    filter.restore(batch);
+
+    batch = createLongBatch(new long[] { 8, 4 });
+    assertFalse(filter.filter(batch));
+    filter.restore(batch);
+    assertEquals(2, batch.size);
+  }
+
+  @Test
+  public void testDescendingWithNulls() throws Exception {
+    VectorReduceSinkTopNKeyFilter filter =
+        new VectorReduceSinkTopNKeyFilter(1, 0, TypeInfoFactory.intTypeInfo, true);
+
+    VectorizedRowBatch batch = createLongBatch(new long[] { 5, 0, 3, 6, 6 });
+    LongColumnVector col = (LongColumnVector) batch.cols[0];
+    col.noNulls = false;
+    col.isNull[1] = true;
+
+    // Start from a selected batch to check it is narrowed and then put back.
+    batch.selectedInUse = true;
+    batch.selected[0] = 0;
+    batch.selected[1] = 1;
+    batch.selected[2] = 2;
+    batch.selected[3] = 3;
+    batch.selected[4] = 4;
+    assertTrue(filter.filter(batch));
+    assertEquals(4, batch.size);
+    assertArrayEquals(new int[] { 0, 1, 3, 4 }, Arrays.copyOf(batch.selected, batch.size));
+
+    filter.restore(batch);
+    assertTrue(batch.selectedInUse);
+    assertEquals(5, batch.size);
+    assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, Arrays.copyOf(batch.selected, batch.size));
+  }
+
+  @Test
+  public void testDoubleKeepsTopN() throws Exception {
+    Random random = new Random(12345);
+    final int topN = 10;
+    VectorReduceSinkTopNKeyFilter filter =
+        new VectorReduceSinkTopNKeyFilter(topN, 0, TypeInfoFactory.doubleTypeInfo, false);
+
+    double[] all = new double[10 * VectorizedRowBatch.DEFAULT_SIZE];
+    int survivorCount = 0;
+    double[] survivorValues = new double[all.length];
+    for (int b = 0; b < 10; b++) {
+      VectorizedRowBatch batch = new VectorizedRowBatch(1);
+      DoubleColumnVector col = new DoubleColumnVector();
+      batch.cols[0] = col;
+      batch.size = VectorizedRowBatch.DEFAULT_SIZE;
+      for (int i = 0; i < batch.size; i++) {
+        col.vector[i] = random.nextInt(2000) - 1000.5;
+        all[b * VectorizedRowBatch.DEFAULT_SIZE + i] = col.vector[i];
+      }
+      if (filter.filter(batch)) {
+        for (int i = 0; i < batch.size; i++) {
+          int batchIndex = batch.selectedInUse ? batch.selected[i] : i;
+          survivorValues[survivorCount++] = col.vector[batchIndex];
+        }
+      }
+      filter.restore(batch);
+    }
+
+    // The N smallest survivors are the N smallest values.
+    Arrays.sort(all);
+    double[] survivors = Arrays.copyOf(survivorValues, survivorCount);
+    Arrays.sort(survivors);
+    assertArrayEquals(Arrays.copyOf(all, topN), Arrays.copyOf(survivors, topN), 0.0);
+    assertTrue(survivorCount < all.length);
+  }
+}
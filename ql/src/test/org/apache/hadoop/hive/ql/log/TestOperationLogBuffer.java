@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for OperationLogBuffer
+ */
+public class TestOperationLogBuffer {
+
+  @Test
+  public void testCursor() {
+    OperationLogBuffer buffer = new OperationLogBuffer(10);
+    buffer.append("a");
+    buffer.append("b");
+    buffer.append("c");
+
+    List<String> lines = new ArrayList<>();
+    long cursor = buffer.read(0, 2, lines);
+    assertEquals(Arrays.asList("a", "b"), lines);
+    assertEquals(2, cursor);
+
+    buffer.append("d");
+    assertEquals(Arrays.asList("c", "d"), buffer.read(cursor, 0));
+    assertTrue(buffer.read(4, 0).isEmpty());
+  }
+
+  @Test
+  public void testOverwrittenLinesAreSkipped() {
+    OperationLogBuffer buffer = new OperationLogBuffer(3);
+    for (int i = 0; i < 5; i++) {
+      buffer.append("line" + i);
+    }
+    assertEquals(2, buffer.getFirstSeq());
+    List<String> lines = new ArrayList<>();
+    assertEquals(5, buffer.read(0, 0, lines));
+    assertEquals(Arrays.asList("line2", "line3", "line4"), lines);
+  }
+}
@@ -25,6 +25,7 @@
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.Properties;
 
@@ -42,6 +43,7 @@
 import org.apache.hadoop.hive.ql.plan.OperatorDesc;
 import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
 import org.apache.hadoop.hive.ql.plan.ReduceWork;
+import org.apache.hadoop.hive.ql.plan.Statistics;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
 import org.apache.hadoop.hive.ql.plan.TezWork;
@@ -182,4 +184,42 @@ public void testCreateReduce() throws SemanticException {
     // should have severed the ties
     assertEquals(fs.getParentOperators().size(),0);
   }
+
+  @Test
+  public void testCreateReduceAutoParallelism() throws SemanticException {
+    ctx.conf.setBoolVar(HiveConf.ConfVars.TEZ_AUTO_REDUCER_PARALLELISM, true);
+    ctx.conf.setFloatVar(HiveConf.ConfVars.TEZ_UNCERTAIN_MAX_PARTITION_FACTOR, 8f);
+    rs.getConf().setNumReducers(10);
+    rs.getConf().setReducerTraits(EnumSet.of(ReduceSinkDesc.ReducerTraits.AUTOPARALLEL));
+
+    Statistics stats = new Statistics(1000, 1000);
+    stats.setBasicStatsState(Statistics.State.COMPLETE);
+    stats.setColumnStatsState(Statistics.State.COMPLETE);
+    rs.setStatistics(stats);
+
+    proc.process(rs, null, ctx, (Object[])null);
+    proc.process(fs, null, ctx, (Object[])null);
+
+    ReduceWork rw = (ReduceWork) ctx.currentTask.getWork().getAllWork().get(1);
+    assertTrue(rw.isAutoReduceParallelism());
+    assertEquals(2, (int) rw.getMinReduceTasks());
+    assertEquals(20, (int) rw.getMaxReduceTasks());
+  }
+
+  @Test
+  public void testCreateReduceUncertainAutoParallelism() throws SemanticException {
+    ctx.conf.setBoolVar(HiveConf.ConfVars.TEZ_AUTO_REDUCER_PARALLELISM, true);
+    ctx.conf.setFloatVar(HiveConf.ConfVars.TEZ_UNCERTAIN_MAX_PARTITION_FACTOR, 8f);
+    rs.getConf().setNumReducers(10);
+    rs.getConf().setReducerTraits(EnumSet.of(ReduceSinkDesc.ReducerTraits.AUTOPARALLEL));
+
+    // No statistics on the reduce sink, so the estimate is uncertain.
+    proc.process(rs, null, ctx, (Object[])null);
+    proc.process(fs, null, ctx, (Object[])null);
+
+    ReduceWork rw = (ReduceWork) ctx.currentTask.getWork().getAllWork().get(1);
+    assertTrue(rw.isAutoReduceParallelism());
+    assertEquals(1, (int) rw.getMinReduceTasks());
+    assertEquals(80, (int) rw.getMaxReduceTasks());
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.parse;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.Context;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for ParseCache
+ */
+public class TestParseCache {
+  private static final String QUERY = "SELECT key, count(*) FROM src WHERE value > 'x' GROUP BY key";
+
+  private static HiveConf conf;
+
+  @BeforeClass
+  public static void initialize() {
+    conf = new HiveConf(SemanticAnalyzer.class);
+    SessionState.start(conf);
+  }
+
+  private ParseCache populatedCache(Context ctx) throws Exception {
+    ParseCache cache = new ParseCache(10);
+    ASTNode tree = new ParseDriver().parse(QUERY, ctx);
+    cache.put(QUERY, conf, ctx.getTokenRewriteStream(), tree, 0);
+    return cache;
+  }
+
+  @Test
+  public void testHit() throws Exception {
+    Context ctx = new Context(conf);
+    ParseCache cache = populatedCache(ctx);
+    Assert.assertEquals(1, cache.size());
+    Assert.assertNull(cache.get("SELECT 1", conf));
+
+    ParseCache.ParseResult cached = cache.get(QUERY, conf);
+    Assert.assertNotNull(cached);
+    Assert.assertEquals(new ParseDriver().parse(QUERY).toStringTree(),
+        cached.getTree().toStringTree());
+    Assert.assertEquals(ctx.getTokenRewriteStream().toString(),
+        cached.getTokenStream().toString());
+    Assert.assertEquals(ctx.getTokenRewriteStream().size(), cached.getTokenStream().size());
+  }
+
+  @Test
+  public void testResultsAreCopies() throws Exception {
+    ParseCache cache = populatedCache(new Context(conf));
+    ParseCache.ParseResult first = cache.get(QUERY, conf);
+    String expectedTree = first.getTree().toStringTree();
+
+    // Semantic analysis modifies the tree, its tokens and the token stream
+    ASTNode query = (ASTNode) first.getTree().getChild(0);
+    query.getToken().setType(HiveParser.TOK_ALLCOLREF);
+    query.deleteChild(0);
+    first.getTokenStream().replace(0, 0, "EXPLAIN SELECT");
+
+    ParseCache.ParseResult second = cache.get(QUERY, conf);
+    Assert.assertEquals(expectedTree, second.getTree().toStringTree());
+    Assert.assertTrue(second.getTokenStream().toString().startsWith("SELECT"));
+  }
+
+  @Test
+  public void testQuotedIdSupportIsPartOfKey() throws Exception {
+    ParseCache cache = populatedCache(new Context(conf));
+    HiveConf noQuotedIds = new HiveConf(conf);
+    noQuotedIds.setVar(HiveConf.ConfVars.HIVE_QUOTEDID_SUPPORT, "none");
+    Assert.assertNull(cache.get(QUERY, noQuotedIds));
+  }
+}
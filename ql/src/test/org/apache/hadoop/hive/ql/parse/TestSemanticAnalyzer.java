@@ -23,6 +23,10 @@
 import java.util.HashMap;
 import java.util.Map;
 
+import org.antlr.runtime.TokenRewriteStream;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.Context;
+import org.apache.hadoop.hive.ql.session.SessionState;
 import org.apache.hadoop.hive.serde2.io.DateWritable;
 import org.junit.Test;
 
@@ -67,6 +71,34 @@ public void checkNormalization(String colType, String originalColSpec,
     }
   }
 
+  @Test
+  public void testNormalizeQueryTokens() throws Exception {
+    HiveConf conf = new HiveConf(SemanticAnalyzer.class);
+    SessionState.start(conf);
+    String normalized = normalizeQuery(conf,
+        "SELECT key, COUNT(*) FROM src WHERE value = 'Val 1' GROUP BY key");
+
+    // Whitespace, comments and the case of keywords and identifiers don't matter
+    assertEquals(normalized, normalizeQuery(conf,
+        "select  key,count( * )\n  from SRC -- filter below\n where VALUE='Val 1'\tGroup By KEY"));
+    assertTrue(normalized, normalized.contains("'Val 1'"));
+
+    // Literals, identifiers and operators do
+    assertNotEquals(normalized, normalizeQuery(conf,
+        "SELECT key, COUNT(*) FROM src WHERE value = 'val 1' GROUP BY key"));
+    assertNotEquals(normalized, normalizeQuery(conf,
+        "SELECT key, COUNT(*) FROM src2 WHERE value = 'Val 1' GROUP BY key"));
+    assertNotEquals(normalized, normalizeQuery(conf,
+        "SELECT key, COUNT(*) FROM src WHERE value > 'Val 1' GROUP BY key"));
+  }
+
+  private static String normalizeQuery(HiveConf conf, String query) throws Exception {
+    Context ctx = new Context(conf);
+    new ParseDriver().parse(query, ctx);
+    TokenRewriteStream tokens = ctx.getTokenRewriteStream();
+    return SemanticAnalyzer.normalizeQueryTokens(tokens, 0, tokens.size() - 1, true);
+  }
+
   @Test
   public void testUnescapeSQLString() {
     assertEquals("abcdefg", BaseSemanticAnalyzer.unescapeSQLString("\"abcdefg\""));
@@ -197,6 +197,46 @@ public void cleanupAfterMinorPartitionCompaction() throws Exception {
     Assert.assertTrue(sawDelta);
   }
 
+  @Test
+  public void cleanupInParallel() throws Exception {
+    Table t = newTable("default", "cip", true);
+    List<Partition> parts = new ArrayList<Partition>();
+    for (int i = 0; i < 4; i++) {
+      Partition p = newPartition(t, "day" + i);
+      addBaseFile(t, p, 20L, 20);
+      addDeltaFile(t, p, 21L, 22L, 2);
+      addDeltaFile(t, p, 23L, 24L, 2);
+      addBaseFile(t, p, 25L, 25);
+      parts.add(p);
+    }
+
+    burnThroughTransactions("default", "cip", 25);
+
+    for (int i = 0; i < parts.size(); i++) {
+      CompactionRequest rqst = new CompactionRequest("default", "cip", CompactionType.MAJOR);
+      rqst.setPartitionname("ds=day" + i);
+      txnHandler.compact(rqst);
+      CompactionInfo ci = txnHandler.findNextToCompact("fred");
+      txnHandler.markCompacted(ci);
+      txnHandler.setRunAs(ci.id, System.getProperty("user.name"));
+    }
+
+    conf.setIntVar(HiveConf.ConfVars.HIVE_COMPACTOR_CLEANER_THREADS, 3);
+    startCleaner();
+
+    // All of them were cleaned, and each partition only has the new base left
+    ShowCompactResponse rsp = txnHandler.showCompact(new ShowCompactRequest());
+    Assert.assertEquals(parts.size(), rsp.getCompactsSize());
+    for (ShowCompactResponseElement compact : rsp.getCompacts()) {
+      Assert.assertEquals(TxnStore.SUCCEEDED_RESPONSE, compact.getState());
+    }
+    for (Partition p : parts) {
+      List<Path> paths = getDirectories(conf, t, p);
+      Assert.assertEquals(1, paths.size());
+      Assert.assertEquals("base_25", paths.get(0).getName());
+    }
+  }
+
   @Test
   public void blockedByLockTable() throws Exception {
     Table t = newTable("default", "bblt", false);
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import junit.framework.TestCase;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.LongWritable;
+
+public class TestGenericUDAFApproxCountDistinct extends TestCase {
+
+  private static final int DISTINCT_COUNT = 100000;
+
+  public void testComplete() throws HiveException {
+    GenericUDAFEvaluator eval = new GenericUDAFApproxCountDistinct().getEvaluator(
+        new TypeInfo[] {TypeInfoFactory.longTypeInfo});
+    eval.init(GenericUDAFEvaluator.Mode.COMPLETE,
+        new ObjectInspector[] {PrimitiveObjectInspectorFactory.javaLongObjectInspector});
+
+    GenericUDAFEvaluator.AggregationBuffer buffer = eval.getNewAggregationBuffer();
+    for (long i = 0; i < DISTINCT_COUNT; i++) {
+      // Every value twice, plus NULLs which are not counted.
+      eval.iterate(buffer, new Object[] {i});
+      eval.iterate(buffer, new Object[] {i});
+      eval.iterate(buffer, new Object[] {null});
+    }
+    assertWithinError(((LongWritable) eval.terminate(buffer)).get());
+  }
+
+  public void testMergePartials() throws HiveException {
+    GenericUDAFEvaluator eval1 = new GenericUDAFApproxCountDistinct().getEvaluator(
+        new TypeInfo[] {TypeInfoFactory.stringTypeInfo});
+    GenericUDAFEvaluator eval2 = new GenericUDAFApproxCountDistinct().getEvaluator(
+        new TypeInfo[] {TypeInfoFactory.stringTypeInfo});
+
+    ObjectInspector poi = eval1.init(GenericUDAFEvaluator.Mode.PARTIAL1,
+        new ObjectInspector[] {PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+    eval2.init(GenericUDAFEvaluator.Mode.PARTIAL1,
+        new ObjectInspector[] {PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+
+    // The two halves overlap, so the merge must not count the shared values twice.
+    GenericUDAFEvaluator.AggregationBuffer buffer1 = eval1.getNewAggregationBuffer();
+    for (int i = 0; i < DISTINCT_COUNT * 3 / 4; i++) {
+      eval1.iterate(buffer1, new Object[] {"value" + i});
+    }
+    Object partial1 = eval1.terminatePartial(buffer1);
+
+    GenericUDAFEvaluator.AggregationBuffer buffer2 = eval2.getNewAggregationBuffer();
+    for (int i = DISTINCT_COUNT / 4; i < DISTINCT_COUNT; i++) {
+      eval2.iterate(buffer2, new Object[] {"value" + i});
+    }
+    Object partial2 = eval2.terminatePartial(buffer2);
+
+    eval2.init(GenericUDAFEvaluator.Mode.FINAL, new ObjectInspector[] {poi});
+    GenericUDAFEvaluator.AggregationBuffer buffer3 = eval2.getNewAggregationBuffer();
+    eval2.merge(buffer3, partial1);
+    eval2.merge(buffer3, partial2);
+    eval2.merge(buffer3, null);
+    assertWithinError(((LongWritable) eval2.terminate(buffer3)).get());
+  }
+
+  private static void assertWithinError(long estimate) {
+    // Well beyond the standard error of the sketch, so the test is not flaky.
+    assertTrue("estimate " + estimate,
+        Math.abs(estimate - DISTINCT_COUNT) < DISTINCT_COUNT * 0.05);
+  }
+}
@@ -161,6 +161,10 @@ public interface SerializeWrite {
 
   /*
    * LIST.
+   *
+   * NOTE: The begin calls of the complex types may only use the size of the collection and
+   * whether each element (or map key and value) is NULL.  The elements themselves are written
+   * by the caller, and VectorSerializeRow passes placeholder element objects.
    */
   void beginList(List list);
   void separateList();
@@ -25,9 +25,12 @@
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.auth.login.LoginException;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
 import org.apache.hadoop.hive.metastore.api.MetaException;
@@ -72,6 +75,9 @@ public class CLIService extends CompositeService implements ICLIService {
   // The HiveServer2 instance running this service
   private final HiveServer2 hiveServer2;
   private int defaultFetchRows;
+  // Number of GetOperationStatus calls currently waiting in long polling
+  private final AtomicInteger longPollingWaiters = new AtomicInteger();
+  private int maxLongPollingWaiters;
 
   public CLIService(HiveServer2 hiveServer2) {
     super(CLIService.class.getSimpleName());
@@ -83,6 +89,7 @@ public synchronized void init(HiveConf hiveConf) {
     this.hiveConf = hiveConf;
     sessionManager = new SessionManager(hiveServer2);
     defaultFetchRows = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_THRIFT_RESULTSET_DEFAULT_FETCH_SIZE);
+    maxLongPollingWaiters = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_LONG_POLLING_MAX_WAITERS);
     addService(sessionManager);
     //  If the hadoop cluster is secure, do a kerberos login for the service from the keytab
     if (UserGroupInformation.isSecurityEnabled()) {
@@ -444,7 +451,7 @@ public OperationStatus getOperationStatus(OperationHandle opHandle, boolean getP
      * However, if the background operation is complete, we return immediately.
      */
     HiveConf conf = operation.getParentSession().getHiveConf();
-    if (operation.shouldRunAsync()) {
+    if (operation.shouldRunAsync() && tryStartLongPolling(opHandle)) {
       long maxTimeout = HiveConf.getTimeVar(conf,
           HiveConf.ConfVars.HIVE_SERVER2_LONG_POLLING_TIMEOUT, TimeUnit.MILLISECONDS);
 
@@ -469,6 +476,8 @@ public OperationStatus getOperationStatus(OperationHandle opHandle, boolean getP
       } catch (InterruptedException e) {
         // No op, this thread was interrupted
         // In this case, the call might return sooner than long polling timeout
+      } finally {
+        finishLongPolling();
       }
     }
     OperationStatus opStatus = operation.getStatus();
@@ -477,6 +486,27 @@ public OperationStatus getOperationStatus(OperationHandle opHandle, boolean getP
     return opStatus;
   }
 
+  /**
+   * Reserves a long polling slot.  Once the configured number of calls is waiting, further
+   * calls return right away so that they do not pin more worker threads.
+   * @return true if the caller may wait, in which case it has to call finishLongPolling
+   */
+  @VisibleForTesting
+  boolean tryStartLongPolling(OperationHandle opHandle) {
+    int waiters = longPollingWaiters.incrementAndGet();
+    if (maxLongPollingWaiters > 0 && waiters > maxLongPollingWaiters) {
+      longPollingWaiters.decrementAndGet();
+      LOG.trace(opHandle + ": Too many long polling calls waiting, not waiting");
+      return false;
+    }
+    return true;
+  }
+
+  @VisibleForTesting
+  void finishLongPolling() {
+    longPollingWaiters.decrementAndGet();
+  }
+
   public HiveConf getSessionConf(SessionHandle sessionHandle)
       throws HiveSQLException {
 	  return sessionManager.getSession(sessionHandle).getSessionConf();
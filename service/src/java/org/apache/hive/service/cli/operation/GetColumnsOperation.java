@@ -21,6 +21,7 @@
 import java.sql.DatabaseMetaData;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,9 +33,11 @@
 
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.PrimaryKeysRequest;
 import org.apache.hadoop.hive.metastore.api.SQLPrimaryKey;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.conf.MetastoreConf;
 import org.apache.hadoop.hive.ql.metadata.TableIterable;
 import org.apache.hadoop.hive.ql.security.authorization.plugin.HiveOperationType;
 import org.apache.hadoop.hive.ql.security.authorization.plugin.HivePrivilegeObject;
@@ -50,6 +53,7 @@
 import org.apache.hive.service.cli.RowSetFactory;
 import org.apache.hive.service.cli.TableSchema;
 import org.apache.hive.service.cli.session.HiveSession;
+import org.apache.thrift.TException;
 
 /**
  * GetColumnsOperation.
@@ -160,23 +164,31 @@ public void runInternal() throws HiveSQLException {
       }
 
       int maxBatchSize = SessionState.get().getConf().getIntVar(ConfVars.METASTORE_BATCH_RETRIEVE_MAX);
+      Collection<String> metastoreSchemaSerdes = MetastoreConf.getStringCollection(
+          SessionState.get().getConf(), MetastoreConf.ConfVars.SERDES_USING_METASTORE_FOR_SCHEMA);
       for (Entry<String, List<String>> dbTabs : db2Tabs.entrySet()) {
         String dbName = dbTabs.getKey();
         List<String> tableNames = dbTabs.getValue();
 
         for (Table table : new TableIterable(metastoreClient, dbName, tableNames, maxBatchSize)) {
 
-          TableSchema schema = new TableSchema(metastoreClient.getSchema(dbName,
-              table.getTableName()));
+          TableSchema schema = new TableSchema(getSchema(metastoreClient, table,
+              metastoreSchemaSerdes));
+          List<ColumnDescriptor> columns = new ArrayList<>();
+          for (ColumnDescriptor column : schema.getColumnDescriptors()) {
+            if (columnPattern == null || columnPattern.matcher(column.getName()).matches()) {
+              columns.add(column);
+            }
+          }
+          if (columns.isEmpty()) {
+            continue;
+          }
           List<SQLPrimaryKey> primaryKeys = metastoreClient.getPrimaryKeys(new PrimaryKeysRequest(dbName, table.getTableName()));
           Set<String> pkColNames = new HashSet<>();
           for(SQLPrimaryKey key : primaryKeys) {
             pkColNames.add(key.getColumn_name().toLowerCase());
           }
-          for (ColumnDescriptor column : schema.getColumnDescriptors()) {
-            if (columnPattern != null && !columnPattern.matcher(column.getName()).matches()) {
-              continue;
-            }
+          for (ColumnDescriptor column : columns) {
             Object[] rowData = new Object[] {
                 null,  // TABLE_CAT
                 table.getDbName(), // TABLE_SCHEM
@@ -216,6 +228,25 @@ public void runInternal() throws HiveSQLException {
   }
 
 
+  /**
+   * Returns the columns of the table followed by its partition keys.  The table fetched in bulk
+   * already holds them when its serde keeps the schema in the metastore, so the metastore is
+   * only asked for the schema of tables using other serdes.
+   */
+  private static List<FieldSchema> getSchema(IMetaStoreClient metastoreClient, Table table,
+      Collection<String> metastoreSchemaSerdes) throws TException {
+    String serdeLib = table.getSd().getSerdeInfo() == null ? null
+        : table.getSd().getSerdeInfo().getSerializationLib();
+    if (serdeLib != null && !metastoreSchemaSerdes.contains(serdeLib)) {
+      return metastoreClient.getSchema(table.getDbName(), table.getTableName());
+    }
+    List<FieldSchema> schema = new ArrayList<>(table.getSd().getCols());
+    if (table.getPartitionKeys() != null) {
+      schema.addAll(table.getPartitionKeys());
+    }
+    return schema;
+  }
+
   private List<HivePrivilegeObject> getPrivObjs(Map<String, List<String>> db2Tabs) {
     List<HivePrivilegeObject> privObjs = new ArrayList<>();
     for (Entry<String, List<String>> dbTabs : db2Tabs.entrySet()) {
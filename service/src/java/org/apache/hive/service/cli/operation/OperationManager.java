@@ -74,7 +74,7 @@ public OperationManager() {
 
   @Override
   public synchronized void init(HiveConf hiveConf) {
-    LogDivertAppender.registerRoutingAppender(hiveConf);
+    LogDivertAppender.registerRoutingAppender(hiveConf, true);
     LogDivertAppenderForTest.registerRoutingAppenderIfInTest(hiveConf);
 
     if (hiveConf.isWebUiQueryInfoCacheEnabled()) {
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hive.service.cli;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCLIServiceLongPolling {
+
+  @Test
+  public void testMaxWaiters() {
+    HiveConf conf = new HiveConf();
+    conf.setVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_MANAGER,
+      "org.apache.hadoop.hive.ql.security.authorization.plugin.sqlstd.SQLStdHiveAuthorizerFactory");
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_LONG_POLLING_MAX_WAITERS, 2);
+    CLIService service = new CLIService(null);
+    service.init(conf);
+
+    Assert.assertTrue(service.tryStartLongPolling(null));
+    Assert.assertTrue(service.tryStartLongPolling(null));
+    // Over the limit the call does not wait, and does not take a slot either
+    Assert.assertFalse(service.tryStartLongPolling(null));
+    Assert.assertFalse(service.tryStartLongPolling(null));
+
+    service.finishLongPolling();
+    Assert.assertTrue(service.tryStartLongPolling(null));
+    Assert.assertFalse(service.tryStartLongPolling(null));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hive.service.cli.operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.metadata.Hive;
+import org.apache.hive.service.cli.CLIService;
+import org.apache.hive.service.cli.ColumnDescriptor;
+import org.apache.hive.service.cli.OperationHandle;
+import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.cli.SessionHandle;
+import org.apache.hive.service.cli.TableSchema;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestGetColumnsOperation {
+
+  private static final String TABLE_NAME = "test_get_columns_partitioned";
+  private static final int COLUMN_NAME = 3;
+  private static final int TYPE_NAME = 5;
+  private static final int ORDINAL_POSITION = 16;
+
+  private HiveConf conf;
+  private CLIService service;
+  private SessionHandle session;
+  private final Map<String, String> confOverlay = new HashMap<String, String>();
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new HiveConf();
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SUPPORT_CONCURRENCY, false);
+    conf.setVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_MANAGER,
+      "org.apache.hadoop.hive.ql.security.authorization.plugin.sqlstd.SQLStdHiveAuthorizerFactory");
+    service = new CLIService(null);
+    service.init(conf);
+    service.start();
+    session = service.openSession("foo", "bar", null);
+    service.executeStatement(session, "DROP TABLE IF EXISTS " + TABLE_NAME, confOverlay);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    service.executeStatement(session, "DROP TABLE IF EXISTS " + TABLE_NAME, confOverlay);
+    service.closeSession(session);
+    service.stop();
+  }
+
+  /**
+   * ORC keeps the schema in the metastore, so the columns are taken from the table fetched in
+   * bulk instead of get_schema. They have to come out the same, partition keys last.
+   */
+  @Test
+  public void testPartitionedTableUsingMetastoreSchema() throws Exception {
+    service.executeStatement(session, "CREATE TABLE " + TABLE_NAME
+        + " (id INT, name STRING, amount DECIMAL(10,2))"
+        + " PARTITIONED BY (ds STRING, hr INT) STORED AS ORC", confOverlay);
+
+    List<String> names = new ArrayList<String>();
+    List<String> types = new ArrayList<String>();
+    OperationHandle opHandle = service.getColumns(session, null, "default", TABLE_NAME, null);
+    RowSet rowSet = service.fetchResults(opHandle);
+    int position = 1;
+    for (Object[] row : rowSet) {
+      names.add((String) row[COLUMN_NAME]);
+      types.add((String) row[TYPE_NAME]);
+      Assert.assertEquals(position++, row[ORDINAL_POSITION]);
+    }
+    service.closeOperation(opHandle);
+
+    Assert.assertEquals(Arrays.asList("id", "name", "amount", "ds", "hr"), names);
+    // What the columns were built from before, the schema returned by get_schema
+    List<String> expectedNames = new ArrayList<String>();
+    List<String> expectedTypes = new ArrayList<String>();
+    TableSchema schema = new TableSchema(Hive.get(conf).getMSC().getSchema("default", TABLE_NAME));
+    for (ColumnDescriptor column : schema.getColumnDescriptors()) {
+      expectedNames.add(column.getName());
+      expectedTypes.add(column.getTypeName());
+    }
+    Assert.assertEquals(expectedNames, names);
+    Assert.assertEquals(expectedTypes, types);
+  }
+}
@@ -71,6 +71,10 @@ public class AggregateStatsCache {
   private boolean isCleaning = false;
   private final AtomicLong cacheHits = new AtomicLong(0);
   private final AtomicLong cacheMisses = new AtomicLong(0);
+  // Incremented by every invalidation; nodes are stamped with it before they are computed
+  private final AtomicLong generation = new AtomicLong(0);
+  // Generation of the last invalidation of each table, by lower case catalog.database.table
+  private final ConcurrentHashMap<String, Long> tableInvalidations = new ConcurrentHashMap<>();
   // To track cleaner metrics
   int numRemovedTTL = 0, numRemovedLRU = 0;
 
@@ -148,6 +152,15 @@ public Float getHitRatio() {
     return null;
   }
 
+  /**
+   * Returns the current generation of the cache.  Callers read it before they aggregate the
+   * statistics they will {@link #add}, so that an aggregate computed concurrently with an
+   * invalidation of its table is not served.
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
   /**
    * Return aggregate stats for a column from the cache or null.
    * While reading from the nodelist for a key, we wait maxReaderWaitTime to acquire the lock,
@@ -177,7 +190,8 @@ public AggrColStats get(String catName, String dbName, String tblName, String co
       // Try to readlock the candidateList; timeout after maxReaderWaitTime
       isLocked = candidateList.readLock.tryLock(maxReaderWaitTime, TimeUnit.MILLISECONDS);
       if (isLocked) {
-        match = findBestMatch(partNames, candidateList.nodes);
+        match = findBestMatch(partNames, candidateList.nodes,
+            getInvalidation(catName, dbName, tblName));
       }
       if (match != null) {
         // Ok to not lock the list for this and use a volatile lastAccessTime instead
@@ -204,9 +218,11 @@ public AggrColStats get(String catName, String dbName, String tblName, String co
    *
    * @param partNames
    * @param candidates
+   * @param invalidation generation of the last invalidation of the table
    * @return best matched node or null
    */
-  private AggrColStats findBestMatch(List<String> partNames, List<AggrColStats> candidates) {
+  private AggrColStats findBestMatch(List<String> partNames, List<AggrColStats> candidates,
+      long invalidation) {
     // Hits, misses tracked for a candidate node
     MatchStats matchStats;
     // MatchStats for each candidate
@@ -228,6 +244,10 @@ private AggrColStats findBestMatch(List<String> partNames, List<AggrColStats> ca
       // TTL check
       if (isExpired(candidate)) {
         continue;
+      }
+      // Built before the statistics of the table changed
+      if (candidate.generation < invalidation) {
+        continue;
       } else {
         candidateMatchStats.put(candidate, new MatchStats(0, 0));
       }
@@ -274,10 +294,17 @@ private AggrColStats findBestMatch(List<String> partNames, List<AggrColStats> ca
    * @param numPartsCached
    * @param colStats
    * @param bloomFilter
+   * @param generation {@link #getGeneration()} before colStats was aggregated
    */
   // TODO: make add asynchronous: add shouldn't block the higher level calls
   public void add(String catName, String dbName, String tblName, String colName, long numPartsCached,
-      ColumnStatisticsObj colStats, BloomFilter bloomFilter) {
+      ColumnStatisticsObj colStats, BloomFilter bloomFilter, long generation) {
+    // The statistics changed while they were aggregated
+    if (generation < getInvalidation(catName, dbName, tblName)) {
+      LOG.debug("Not caching aggregate stats computed before an invalidation of " + catName +
+          "." + dbName + "." + tblName);
+      return;
+    }
     // If we have no space in the cache, run cleaner thread
     if (getCurrentNodes() / maxCacheNodes > maxFull) {
       spawnCleaner();
@@ -285,7 +312,7 @@ public void add(String catName, String dbName, String tblName, String colName, l
     // Cache key
     Key key = new Key(catName, dbName, tblName, colName);
     // Add new node to the cache
-    AggrColStats node = new AggrColStats(numPartsCached, bloomFilter, colStats);
+    AggrColStats node = new AggrColStats(numPartsCached, bloomFilter, colStats, generation);
     AggrColStatsList nodeList;
     AggrColStatsList newNodeList = new AggrColStatsList();
     newNodeList.nodes = new ArrayList<>();
@@ -311,6 +338,30 @@ public void add(String catName, String dbName, String tblName, String colName, l
     }
   }
 
+  /**
+   * Stop serving the aggregate nodes of a table, so that aggregates built before a change to
+   * the underlying partition statistics are not used.  This is O(1): the nodes are skipped by
+   * lookups from now on and removed by the cleaner, and aggregates that were being computed
+   * from the old statistics are not added.  All the columns of the table are invalidated.
+   * @param catName catalog name
+   * @param dbName database name
+   * @param tblName table name
+   */
+  public void invalidate(String catName, String dbName, String tblName) {
+    tableInvalidations.merge(getTableName(catName, dbName, tblName), generation.incrementAndGet(),
+        Math::max);
+    LOG.debug("Invalidated aggregate stats for " + catName + "." + dbName + "." + tblName);
+  }
+
+  private long getInvalidation(String catName, String dbName, String tblName) {
+    Long invalidation = tableInvalidations.get(getTableName(catName, dbName, tblName));
+    return invalidation == null ? 0 : invalidation;
+  }
+
+  private static String getTableName(String catName, String dbName, String tblName) {
+    return (catName + "." + dbName + "." + tblName).toLowerCase();
+  }
+
   /**
    * Cleans the expired nodes or removes LRU nodes of the cache,
    * until the cache size reduces to cleanUntil% full.
@@ -350,8 +401,8 @@ public void run() {
               if (isLocked) {
                 for (Iterator<AggrColStats> listIterator = nodes.iterator(); listIterator.hasNext();) {
                   node = listIterator.next();
-                  // Remove the node if it has expired
-                  if (isExpired(node)) {
+                  // Remove the node if it has expired or its table was invalidated
+                  if (isExpired(node) || isInvalidated(pair.getKey(), node)) {
                     listIterator.remove();
                     numRemovedTTL++;
                     currentNodes.getAndDecrement();
@@ -422,7 +473,7 @@ private void evictOneNode() {
           candidate = iterator.next();
           // Since we have to create space for 1, if we find an expired node we will remove it &
           // return
-          if (isExpired(candidate)) {
+          if (isExpired(candidate) || isInvalidated(lruKey, candidate)) {
             iterator.remove();
             currentNodes.getAndDecrement();
             numRemovedTTL++;
@@ -459,6 +510,10 @@ private boolean isExpired(AggrColStats aggrColStats) {
     return (System.currentTimeMillis() - aggrColStats.lastAccessTime) > timeToLiveMs;
   }
 
+  private boolean isInvalidated(Key key, AggrColStats aggrColStats) {
+    return aggrColStats.generation < getInvalidation(key.catName, key.dbName, key.tblName);
+  }
+
   /**
    * Key object for the stats cache hashtable
    */
@@ -529,12 +584,15 @@ public static class AggrColStats {
     private final BloomFilter bloomFilter;
     private final ColumnStatisticsObj colStats;
     private volatile long lastAccessTime;
+    // Generation of the cache before the stats were aggregated
+    private final long generation;
 
     public AggrColStats(long numPartsCached, BloomFilter bloomFilter,
-        ColumnStatisticsObj colStats) {
+        ColumnStatisticsObj colStats, long generation) {
       this.numPartsCached = numPartsCached;
       this.bloomFilter = bloomFilter;
       this.colStats = colStats;
+      this.generation = generation;
       this.lastAccessTime = System.currentTimeMillis();
     }
 
@@ -3159,6 +3159,7 @@ private List<Partition> add_partitions_core(final RawStore ms, String catName,
         String dbName, String tblName, List<Partition> parts, final boolean ifNotExists)
         throws TException {
       logInfo("add_partitions");
+      long startTime = System.currentTimeMillis();
       boolean success = false;
       // Ensures that the list doesn't have dups, and keeps track of directories we have created.
       final Map<PartValEqWrapperLite, Boolean> addedPartitions = new ConcurrentHashMap<>();
@@ -3180,6 +3181,9 @@ private List<Partition> add_partitions_core(final RawStore ms, String catName,
           firePreEvent(new PreAddPartitionEvent(tbl, parts, this));
         }
 
+        // Look up which of the partitions already exist in batches, instead of one metastore
+        // query per partition
+        Set<String> existingPartNames = getExistingPartitionNames(ms, tbl, parts);
         Set<PartValEqWrapperLite> partsToAdd = new HashSet<>(parts.size());
         List<Partition> partitionsToAdd = new ArrayList<>(parts.size());
         for (final Partition part : parts) {
@@ -3201,7 +3205,9 @@ private List<Partition> add_partitions_core(final RawStore ms, String catName,
             throw new MetaException("Partition value cannot be null.");
           }
 
-          boolean shouldAdd = startAddPartition(ms, part, ifNotExists);
+          boolean shouldAdd = startAddPartition(part, ifNotExists,
+              existingPartNames.contains(Warehouse.makePartName(tbl.getPartitionKeys(),
+                  part.getValues())));
           if (!shouldAdd) {
             existingParts.add(part);
             LOG.info("Not adding partition {} as it already exists", part);
@@ -3293,6 +3299,12 @@ private List<Partition> add_partitions_core(final RawStore ms, String catName,
         }
 
         success = ms.commitTransaction();
+        if (success && !newParts.isEmpty()) {
+          long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+          LOG.info("Added {} partitions to {} in {} ms ({} partitions/s)", newParts.size(),
+              getCatalogQualifiedTableName(catName, dbName, tblName), elapsed,
+              newParts.size() * 1000L / elapsed);
+        }
       } finally {
         if (!success) {
           ms.rollbackTransaction();
@@ -3585,6 +3597,45 @@ private boolean startAddPartition(
       return !doesExist;
     }
 
+    /**
+     * Same as {@link #startAddPartition(RawStore, Partition, boolean)}, for callers that already
+     * know whether the partition exists.
+     */
+    private boolean startAddPartition(
+        Partition part, boolean ifNotExists, boolean doesExist) throws TException {
+      MetaStoreUtils.validatePartitionNameCharacters(part.getValues(),
+          partitionValidationPattern);
+      if (doesExist && !ifNotExists) {
+        throw new AlreadyExistsException("Partition already exists: " + part);
+      }
+      return !doesExist;
+    }
+
+    /**
+     * Find out which of the given partitions already exist, looking up their names in batches
+     * of {@link ConfVars#BATCH_RETRIEVE_MAX}.  Partitions that are not well formed are skipped, the
+     * caller rejects them.
+     * @return names of the partitions that exist
+     */
+    private Set<String> getExistingPartitionNames(RawStore ms, Table tbl, List<Partition> parts)
+        throws MetaException {
+      List<String> partNames = new ArrayList<>(parts.size());
+      for (Partition part : parts) {
+        if (part.getValues() == null || part.getValues().contains(null)
+            || part.getValues().size() != tbl.getPartitionKeysSize()) {
+          continue;
+        }
+        partNames.add(Warehouse.makePartName(tbl.getPartitionKeys(), part.getValues()));
+      }
+      Set<String> existing = new HashSet<>();
+      int batchSize = MetastoreConf.getIntVar(conf, ConfVars.BATCH_RETRIEVE_MAX);
+      for (List<String> nameBatch : Lists.partition(partNames, batchSize)) {
+        existing.addAll(ms.getExistingPartitionNames(tbl.getCatName(), tbl.getDbName(),
+            tbl.getTableName(), nameBatch));
+      }
+      return existing;
+    }
+
     /**
      * Handles the location for a partition being created.
      * @param tbl Table.
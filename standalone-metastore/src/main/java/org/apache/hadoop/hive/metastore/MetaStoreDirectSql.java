@@ -1385,6 +1385,15 @@ public List<Object[]> run(List<String> input) throws MetaException {
     return result;
   }
 
+  /**
+   * Stop serving cached aggregates that were built from the partition statistics of a table.
+   */
+  public void invalidateAggrColStats(String catName, String dbName, String tableName) {
+    if (isAggregateStatsCacheEnabled) {
+      aggrStatsCache.invalidate(catName, dbName, tableName);
+    }
+  }
+
   public AggrStats aggrColStatsForPartitions(String catName, String dbName, String tableName,
       List<String> partNames, List<String> colNames, boolean useDensityFunctionForNDVEstimation,
       double ndvTuner, boolean enableBitVector) throws MetaException {
@@ -1401,33 +1410,46 @@ public AggrStats aggrColStatsForPartitions(String catName, String dbName, String
       List<ColumnStatisticsObj> colStatsAggrFromDB;
       int maxPartsPerCacheNode = aggrStatsCache.getMaxPartsPerCacheNode();
       double fpp = aggrStatsCache.getFalsePositiveProbability();
-      colStatsList = new ArrayList<ColumnStatisticsObj>();
-      // Bloom filter for the new node that we will eventually add to the cache
-      BloomFilter bloomFilter = createPartsBloomFilter(maxPartsPerCacheNode, fpp, partNames);
-      boolean computePartsFound = true;
+      // Read before the partition stats, so aggregates of stats changed meanwhile are not cached
+      long generation = aggrStatsCache.getGeneration();
+      Map<String, ColumnStatisticsObj> colStatsByName = new HashMap<>();
+      // Columns that are not in the cache; they are aggregated together in a single pass over
+      // the partitions rather than one pass per column
+      List<String> colNamesForDB = new ArrayList<>();
       for (String colName : colNames) {
         // Check the cache first
         colStatsAggrCached = aggrStatsCache.get(catName, dbName, tableName, colName, partNames);
         if (colStatsAggrCached != null) {
-          colStatsList.add(colStatsAggrCached.getColStats());
+          colStatsByName.put(colName, colStatsAggrCached.getColStats());
           partsFound = colStatsAggrCached.getNumPartsCached();
         } else {
-          if (computePartsFound) {
-            partsFound = partsFoundForPartitions(catName, dbName, tableName, partNames, colNames);
-            computePartsFound = false;
-          }
-          List<String> colNamesForDB = new ArrayList<>();
           colNamesForDB.add(colName);
-          // Read aggregated stats for one column
-          colStatsAggrFromDB =
-              columnStatisticsObjForPartitions(catName, dbName, tableName, partNames, colNamesForDB,
-                  partsFound, useDensityFunctionForNDVEstimation, ndvTuner, enableBitVector);
-          if (!colStatsAggrFromDB.isEmpty()) {
-            ColumnStatisticsObj colStatsAggr = colStatsAggrFromDB.get(0);
-            colStatsList.add(colStatsAggr);
-            // Update the cache to add this new aggregate node
-            aggrStatsCache.add(catName, dbName, tableName, colName, partsFound, colStatsAggr, bloomFilter);
+        }
+      }
+      if (!colNamesForDB.isEmpty()) {
+        partsFound = partsFoundForPartitions(catName, dbName, tableName, partNames, colNames);
+        // Bloom filter for the new nodes that we will add to the cache
+        BloomFilter bloomFilter = createPartsBloomFilter(maxPartsPerCacheNode, fpp, partNames);
+        colStatsAggrFromDB =
+            columnStatisticsObjForPartitions(catName, dbName, tableName, partNames, colNamesForDB,
+                partsFound, useDensityFunctionForNDVEstimation, ndvTuner, enableBitVector);
+        for (ColumnStatisticsObj colStatsAggr : colStatsAggrFromDB) {
+          String colName = colStatsAggr.getColName();
+          // Only the first aggregate per column is used, as before
+          if (colStatsByName.containsKey(colName)) {
+            continue;
           }
+          colStatsByName.put(colName, colStatsAggr);
+          // Update the cache to add this new aggregate node
+          aggrStatsCache.add(catName, dbName, tableName, colName, partsFound, colStatsAggr,
+              bloomFilter, generation);
+        }
+      }
+      colStatsList = new ArrayList<ColumnStatisticsObj>(colStatsByName.size());
+      for (String colName : colNames) {
+        ColumnStatisticsObj colStatsAggr = colStatsByName.get(colName);
+        if (colStatsAggr != null) {
+          colStatsList.add(colStatsAggr);
         }
       }
     } else {
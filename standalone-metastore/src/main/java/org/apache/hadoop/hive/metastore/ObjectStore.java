@@ -3166,6 +3166,32 @@ public List<Partition> getPartitionsByNames(String catName, String dbName, Strin
     return getPartitionsByNamesInternal(catName, dbName, tblName, partNames, true, true);
   }
 
+  @Override
+  public List<String> getExistingPartitionNames(String catName, String dbName, String tblName,
+      List<String> partNames) throws MetaException {
+    List<String> existing = new ArrayList<>();
+    if (partNames.isEmpty()) {
+      return existing;
+    }
+    boolean success = false;
+    Query query = null;
+    try {
+      openTransaction();
+      ObjectPair<Query, Map<String, String>> queryWithParams =
+          getPartQueryWithParams(catName, dbName, tblName, partNames);
+      query = queryWithParams.getFirst();
+      query.setClass(MPartition.class);
+      query.setResult("partitionName");
+      @SuppressWarnings("unchecked")
+      Collection<String> names = (Collection<String>) query.executeWithMap(queryWithParams.getSecond());
+      existing.addAll(names);
+      success = commitTransaction();
+    } finally {
+      rollbackAndCleanup(success, query);
+    }
+    return existing;
+  }
+
   protected List<Partition> getPartitionsByNamesInternal(String catName, String dbName,
                                                          String tblName,
                                                          final List<String> partNames,
@@ -8010,6 +8036,9 @@ public boolean updatePartitionColumnStatistics(ColumnStatistics colStats, List<S
       StatsSetupConst.setColumnStatsState(parameters, colNames);
       mPartition.setParameters(parameters);
       committed = commitTransaction();
+      if (committed && directSql != null) {
+        directSql.invalidateAggrColStats(catName, statsDesc.getDbName(), statsDesc.getTableName());
+      }
       return committed;
     } finally {
       if (!committed) {
@@ -8389,6 +8418,9 @@ public boolean deletePartitionColumnStatistics(String catName, String dbName, St
         }
       }
       ret = commitTransaction();
+      if (ret && directSql != null) {
+        directSql.invalidateAggrColStats(catName, dbName, tableName);
+      }
     } catch (NoSuchObjectException e) {
       rollbackTransaction();
       throw e;
@@ -600,6 +600,19 @@ List<Partition> getPartitionsByNames(String catName, String dbName, String tblNa
                                        List<String> partNames)
       throws MetaException, NoSuchObjectException;
 
+  /**
+   * Find out which of the given partitions exist, without fetching the partitions.
+   * @param catName catalog name.
+   * @param dbName database name.
+   * @param tblName table name.
+   * @param partNames list of partition names.  These are names not values, so they will include
+   *                  both the key and the value.
+   * @return the names in partNames that match an existing partition
+   * @throws MetaException error accessing the RDBMS.
+   */
+  List<String> getExistingPartitionNames(String catName, String dbName, String tblName,
+                                         List<String> partNames) throws MetaException;
+
   Table markPartitionForEvent(String catName, String dbName, String tblName, Map<String,String> partVals, PartitionEventType evtType) throws MetaException, UnknownTableException, InvalidPartitionException, UnknownPartitionException;
 
   boolean isPartitionMarkedForEvent(String catName, String dbName, String tblName, Map<String, String> partName, PartitionEventType evtType) throws MetaException, UnknownTableException, InvalidPartitionException, UnknownPartitionException;
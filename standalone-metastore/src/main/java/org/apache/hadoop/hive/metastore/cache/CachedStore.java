@@ -1321,6 +1321,25 @@ public List<Partition> getPartitionsByNames(String catName, String dbName, Strin
     return partitions;
   }
 
+  @Override
+  public List<String> getExistingPartitionNames(String catName, String dbName, String tblName,
+      List<String> partNames) throws MetaException {
+    catName = StringUtils.normalizeIdentifier(catName);
+    dbName = StringUtils.normalizeIdentifier(dbName);
+    tblName = StringUtils.normalizeIdentifier(tblName);
+    if (!shouldCacheTable(catName, dbName, tblName)
+        || sharedCache.getTableFromCache(catName, dbName, tblName) == null) {
+      return rawStore.getExistingPartitionNames(catName, dbName, tblName, partNames);
+    }
+    List<String> existing = new ArrayList<>();
+    for (String partName : partNames) {
+      if (sharedCache.existPartitionFromCache(catName, dbName, tblName, partNameToVals(partName))) {
+        existing.add(partName);
+      }
+    }
+    return existing;
+  }
+
   @Override
   public Table markPartitionForEvent(String catName, String dbName, String tblName,
       Map<String, String> partVals, PartitionEventType evtType)
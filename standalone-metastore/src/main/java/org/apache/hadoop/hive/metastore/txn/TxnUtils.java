@@ -62,12 +62,16 @@ public static ValidTxnList createValidReadTxnList(GetOpenTxnsResponse txns, long
     long highWater = txns.getTxn_high_water_mark();
     List<Long> open = txns.getOpen_txns();
     BitSet abortedBits = BitSet.valueOf(txns.getAbortedBits());
-    long[] exceptions = new long[open.size() - (currentTxn > 0 ? 1 : 0)];
+    // Don't assume the current txn is in the list, size the exceptions by what is actually there.
+    long[] exceptions = new long[open.size()];
     int i = 0;
     for (long txn : open) {
       if (currentTxn > 0 && currentTxn == txn) continue;
       exceptions[i++] = txn;
     }
+    if (i < exceptions.length) {
+      exceptions = Arrays.copyOf(exceptions, i);
+    }
     if (txns.isSetMin_open_txn()) {
       return new ValidReadTxnList(exceptions, abortedBits, highWater, txns.getMin_open_txn());
     } else {
@@ -363,6 +363,12 @@ public List<Partition> getPartitionsByNames(String catName, String dbName, Strin
     return Collections.emptyList();
   }
 
+  @Override
+  public List<String> getExistingPartitionNames(String catName, String dbName, String tblName,
+      List<String> partNames) throws MetaException {
+    return Collections.emptyList();
+  }
+
   @Override
   public boolean getPartitionsByExpr(String catName, String dbName, String tblName, byte[] expr,
       String defaultPartitionName, short maxParts, List<Partition> result) throws TException {
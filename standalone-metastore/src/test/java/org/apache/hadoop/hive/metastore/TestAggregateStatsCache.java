@@ -142,7 +142,8 @@ public void testBasicAddAndGet() throws Exception {
     ColumnStatisticsObj aggrColStats =
         getDummyLongColStat(colName, highVal, lowVal, numDVs, numNulls);
     // Now add to cache the dummy colstats for these 10 partitions
-    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter);
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter,
+        cache.getGeneration());
     // Now get from cache
     AggrColStats aggrStatsCached = cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, partNames);
     Assert.assertNotNull(aggrStatsCached);
@@ -169,7 +170,8 @@ public void testAddGetWithVariance() throws Exception {
     ColumnStatisticsObj aggrColStats =
         getDummyLongColStat(colName, highVal, lowVal, numDVs, numNulls);
     // Now add to cache
-    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter);
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter,
+        cache.getGeneration());
 
     // Now prepare partnames with only 5 partitions: [tab1part1...tab1part5]
     partNames = preparePartNames(tables.get(0), 1, 5);
@@ -208,7 +210,8 @@ public void testTimeToLive() throws Exception {
     ColumnStatisticsObj aggrColStats =
         getDummyLongColStat(colName, highVal, lowVal, numDVs, numNulls);
     // Now add to cache
-    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter);
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName, 10, aggrColStats, bloomFilter,
+        cache.getGeneration());
 
     // Sleep for 3 seconds
     Thread.sleep(3000);
@@ -218,6 +221,42 @@ public void testTimeToLive() throws Exception {
     Assert.assertNull(aggrStatsCached);
   }
 
+  @Test
+  public void testInvalidate() throws Exception {
+    // Partnames: [tab2part1...tab2part9]
+    List<String> partNames = preparePartNames(tables.get(1), 1, 9);
+    BloomFilter bloomFilter = prepareBloomFilter(partNames);
+    String tblName = tables.get(1);
+    String colName1 = tabCols.get(0);
+    String colName2 = tabCols.get(1);
+    int highVal = 100, lowVal = 10, numDVs = 50, numNulls = 5;
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, 10,
+        getDummyLongColStat(colName1, highVal, lowVal, numDVs, numNulls), bloomFilter,
+        cache.getGeneration());
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName2, 10,
+        getDummyLongColStat(colName2, highVal, lowVal, numDVs, numNulls), bloomFilter,
+        cache.getGeneration());
+    Assert.assertNotNull(cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, partNames));
+
+    // All columns of the table
+    long generation = cache.getGeneration();
+    cache.invalidate(DEFAULT_CATALOG_NAME, DB_NAME, tblName.toUpperCase());
+    Assert.assertNull(cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, partNames));
+    Assert.assertNull(cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName2, partNames));
+
+    // An aggregate computed from the stats before the invalidation is not added
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, 10,
+        getDummyLongColStat(colName1, highVal, lowVal, numDVs, numNulls), bloomFilter,
+        generation);
+    Assert.assertNull(cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, partNames));
+
+    // One computed after it is
+    cache.add(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, 10,
+        getDummyLongColStat(colName1, highVal, lowVal, numDVs, numNulls), bloomFilter,
+        cache.getGeneration());
+    Assert.assertNotNull(cache.get(DEFAULT_CATALOG_NAME, DB_NAME, tblName, colName1, partNames));
+  }
+
   /**
    * Prepares an array of partition names by getting partitions from minPart ... maxPart and
    * prepending with table name
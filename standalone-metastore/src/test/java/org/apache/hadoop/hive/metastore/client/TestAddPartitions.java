@@ -44,11 +44,13 @@
 import org.apache.hadoop.hive.metastore.client.builder.DatabaseBuilder;
 import org.apache.hadoop.hive.metastore.client.builder.PartitionBuilder;
 import org.apache.hadoop.hive.metastore.client.builder.TableBuilder;
+import org.apache.hadoop.hive.metastore.conf.MetastoreConf;
 import org.apache.hadoop.hive.metastore.minihms.AbstractMetaStoreService;
 import org.apache.thrift.TException;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
@@ -74,6 +76,15 @@ public class TestAddPartitions extends MetaStoreClientTest {
   private static final String YEAR_COL_NAME = "year";
   private static final String MONTH_COL_NAME = "month";
   private static final short MAX = -1;
+  private static final int BATCH_RETRIEVE_MAX = 2;
+
+  @BeforeClass
+  public static void startMetaStores() {
+    Map<MetastoreConf.ConfVars, String> msConf = new HashMap<MetastoreConf.ConfVars, String>();
+    // Use a small batch size, so the existing partitions are looked up in several batches
+    msConf.put(MetastoreConf.ConfVars.BATCH_RETRIEVE_MAX, Integer.toString(BATCH_RETRIEVE_MAX));
+    startMetaStores(msConf, new HashMap<String, String>());
+  }
 
   public TestAddPartitions(String name, AbstractMetaStoreService metaStore) {
     this.metaStore = metaStore;
@@ -766,6 +777,61 @@ public void testAddPartitionsDuplicateInTheList() throws Exception {
     }
   }
 
+  @Test
+  public void testAddPartitionsDuplicateInTheListAcrossBatches() throws Exception {
+
+    createTable();
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < BATCH_RETRIEVE_MAX * 2 + 1; i++) {
+      values.add(Integer.toString(2010 + i));
+    }
+    // The duplicate is in a different batch than the original
+    values.add(values.get(0));
+    List<Partition> partitions = buildPartitions(DB_NAME, TABLE_NAME, values);
+
+    try {
+      client.add_partitions(partitions);
+      Assert.fail("MetaException should have happened.");
+    } catch (MetaException e) {
+      // Expected exception
+    }
+
+    List<Partition> parts = client.listPartitions(DB_NAME, TABLE_NAME, MAX);
+    Assert.assertNotNull(parts);
+    Assert.assertTrue(parts.isEmpty());
+    for (Partition partition : partitions) {
+      Assert.assertFalse(metaStore.isPathExists(new Path(partition.getSd().getLocation())));
+    }
+  }
+
+  @Test
+  public void testAddPartitionsAlreadyExistsInLastBatch() throws Exception {
+
+    createTable();
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < BATCH_RETRIEVE_MAX * 2 + 1; i++) {
+      values.add(Integer.toString(2010 + i));
+    }
+    String existingValue = values.get(values.size() - 1);
+    client.add_partition(buildPartition(DB_NAME, TABLE_NAME, existingValue));
+    List<Partition> partitions = buildPartitions(DB_NAME, TABLE_NAME, values);
+
+    try {
+      client.add_partitions(partitions);
+      Assert.fail("AlreadyExistsException should have happened.");
+    } catch (AlreadyExistsException e) {
+      // Expected exception
+    }
+
+    List<String> partNames = client.listPartitionNames(DB_NAME, TABLE_NAME, MAX);
+    Assert.assertEquals(Lists.newArrayList(YEAR_COL_NAME + "=" + existingValue), partNames);
+
+    // With ifNotExists only the partitions which do not exist yet are added
+    client.add_partitions(partitions, true, false);
+    partNames = client.listPartitionNames(DB_NAME, TABLE_NAME, MAX);
+    Assert.assertEquals(values.size(), partNames.size());
+  }
+
   @Test
   public void testAddPartitionsWithSameNameInTheListCaseSensitive() throws Exception {
 
@@ -18,8 +18,10 @@
 package org.apache.hadoop.hive.metastore.txn;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.common.ValidTxnList;
 import org.apache.hadoop.hive.metastore.DatabaseProduct;
 import org.apache.hadoop.hive.metastore.annotation.MetastoreUnitTest;
+import org.apache.hadoop.hive.metastore.api.GetOpenTxnsResponse;
 import org.apache.hadoop.hive.metastore.tools.SQLGenerator;
 import org.apache.hadoop.hive.metastore.conf.MetastoreConf;
 import org.apache.hadoop.hive.metastore.conf.MetastoreConf.ConfVars;
@@ -29,10 +31,12 @@
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -173,6 +177,26 @@ private void runAgainstDerby(List<String> queries) throws Exception {
       TxnDbUtil.closeResources(conn, stmt, rs);
     }
   }
+
+  @Test
+  public void testCreateValidReadTxnList() throws Exception {
+    GetOpenTxnsResponse txns = new GetOpenTxnsResponse(10L, Arrays.asList(5L, 7L),
+        ByteBuffer.wrap(new byte[0]));
+
+    ValidTxnList validTxns = TxnUtils.createValidReadTxnList(txns, 7L);
+    Assert.assertFalse(validTxns.isTxnValid(5L));
+    Assert.assertTrue(validTxns.isTxnValid(7L));
+    Assert.assertArrayEquals(new long[] {5L}, validTxns.getInvalidTransactions());
+
+    // The current txn is not in the list
+    validTxns = TxnUtils.createValidReadTxnList(txns, 3L);
+    Assert.assertArrayEquals(new long[] {5L, 7L}, validTxns.getInvalidTransactions());
+
+    txns = new GetOpenTxnsResponse(10L, new ArrayList<Long>(), ByteBuffer.wrap(new byte[0]));
+    validTxns = TxnUtils.createValidReadTxnList(txns, 3L);
+    Assert.assertEquals(0, validTxns.getInvalidTransactions().length);
+  }
+
   @Test
   public void testSQLGenerator() throws Exception {
     //teseted on Oracle Database 11g Express Edition Release 11.2.0.2.0 - 64bit Production